@@ -0,0 +1,137 @@
+package nesrs;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import nesrs.util.Util;
+
+/**
+ * Roms used by the benchmarks.
+ */
+public class BenchmarkRoms {
+
+   public static final String SYNTHETIC = "synthetic";
+
+   /**
+    * Returns the synthetic rom for {@link #SYNTHETIC}, otherwise loads the rom from
+    * the classpath (e.g. one of the bundled test roms).
+    */
+   public static byte[] load(String rom) throws IOException {
+      if (SYNTHETIC.equals(rom)) {
+         return createSyntheticRom();
+      }
+
+      try (InputStream in = BenchmarkRoms.class.getResourceAsStream(rom)) {
+         if (in == null) {
+            throw new IOException("Rom not found on classpath: " + rom);
+         }
+         return Util.toByteArray(in);
+      }
+   }
+
+   /**
+    * NROM image which fills the palette, a name table and the sprite ram, turns on
+    * background and sprite rendering and the first rectangle channel, and then keeps
+    * the cpu busy with a loop over ram. The nmi handler does sprite dma and scrolls.
+    */
+   public static byte[] createSyntheticRom() {
+      int[] program = {
+            0x78,              // $C000 reset:  SEI
+            0xD8,              // $C001         CLD
+            0xA2, 0xFF,        // $C002         LDX #$FF
+            0x9A,              // $C004         TXS
+            0xA9, 0x40,        // $C005         LDA #$40
+            0x8D, 0x17, 0x40,  // $C007         STA $4017
+            0x2C, 0x02, 0x20,  // $C00A w1:     BIT $2002
+            0x10, 0xFB,        // $C00D         BPL w1
+            0x2C, 0x02, 0x20,  // $C00F w2:     BIT $2002
+            0x10, 0xFB,        // $C012         BPL w2
+            0xA9, 0x3F,        // $C014         LDA #$3F
+            0x8D, 0x06, 0x20,  // $C016         STA $2006
+            0xA9, 0x00,        // $C019         LDA #$00
+            0x8D, 0x06, 0x20,  // $C01B         STA $2006
+            0xA2, 0x00,        // $C01E         LDX #$00
+            0x8A,              // $C020 pal:    TXA
+            0x8D, 0x07, 0x20,  // $C021         STA $2007
+            0xE8,              // $C024         INX
+            0xE0, 0x20,        // $C025         CPX #$20
+            0xD0, 0xF7,        // $C027         BNE pal
+            0xA9, 0x20,        // $C029         LDA #$20
+            0x8D, 0x06, 0x20,  // $C02B         STA $2006
+            0xA9, 0x00,        // $C02E         LDA #$00
+            0x8D, 0x06, 0x20,  // $C030         STA $2006
+            0xA0, 0x04,        // $C033         LDY #$04
+            0x8A,              // $C035 nt:     TXA
+            0x8D, 0x07, 0x20,  // $C036         STA $2007
+            0xE8,              // $C039         INX
+            0xD0, 0xF9,        // $C03A         BNE nt
+            0x88,              // $C03C         DEY
+            0xD0, 0xF6,        // $C03D         BNE nt
+            0x8A,              // $C03F spr:    TXA
+            0x0A,              // $C040         ASL
+            0x9D, 0x00, 0x02,  // $C041         STA $0200,X
+            0xE8,              // $C044         INX
+            0xD0, 0xF8,        // $C045         BNE spr
+            0xA9, 0x01,        // $C047         LDA #$01
+            0x8D, 0x15, 0x40,  // $C049         STA $4015
+            0xA9, 0xBF,        // $C04C         LDA #$BF
+            0x8D, 0x00, 0x40,  // $C04E         STA $4000
+            0xA9, 0x08,        // $C051         LDA #$08
+            0x8D, 0x03, 0x40,  // $C053         STA $4003
+            0xA9, 0x88,        // $C056         LDA #$88
+            0x8D, 0x00, 0x20,  // $C058         STA $2000
+            0xA9, 0x1E,        // $C05B         LDA #$1E
+            0x8D, 0x01, 0x20,  // $C05D         STA $2001
+            0xA2, 0x00,        // $C060 main:   LDX #$00
+            0xBD, 0x00, 0x03,  // $C062 loop:   LDA $0300,X
+            0x18,              // $C065         CLC
+            0x69, 0x03,        // $C066         ADC #$03
+            0x9D, 0x00, 0x03,  // $C068         STA $0300,X
+            0x45, 0x10,        // $C06B         EOR $10
+            0x85, 0x10,        // $C06D         STA $10
+            0xE8,              // $C06F         INX
+            0xD0, 0xF0,        // $C070         BNE loop
+            0xE6, 0x11,        // $C072         INC $11
+            0xA5, 0x11,        // $C074         LDA $11
+            0x8D, 0x02, 0x40,  // $C076         STA $4002
+            0x4C, 0x60, 0xC0,  // $C079         JMP main
+            0x48,              // $C07C nmi:    PHA
+            0xA9, 0x02,        // $C07D         LDA #$02
+            0x8D, 0x14, 0x40,  // $C07F         STA $4014
+            0xA5, 0x11,        // $C082         LDA $11
+            0x8D, 0x05, 0x20,  // $C084         STA $2005
+            0x8D, 0x05, 0x20,  // $C087         STA $2005
+            0x68,              // $C08A         PLA
+            0x40,              // $C08B         RTI
+      };
+      int nmi = 0xC07C;
+      int reset = 0xC000;
+
+      byte[] rom = new byte[16 + 16384 + 8192];
+      rom[0] = 'N';
+      rom[1] = 'E';
+      rom[2] = 'S';
+      rom[3] = 0x1A;
+      rom[4] = 1; // 16KB PRG ROM
+      rom[5] = 1; // 8KB CHR ROM
+      for (int i = 0; i < program.length; i++) {
+         rom[16 + i] = (byte) program[i];
+      }
+
+      // NMI, RESET and IRQ vectors
+      int vectors = 16 + 0x3FFA;
+      rom[vectors] = (byte) nmi;
+      rom[vectors + 1] = (byte) (nmi >> 8);
+      rom[vectors + 2] = (byte) reset;
+      rom[vectors + 3] = (byte) (reset >> 8);
+      rom[vectors + 4] = (byte) nmi;
+      rom[vectors + 5] = (byte) (nmi >> 8);
+
+      // Pattern tables
+      for (int i = 0; i < 8192; i++) {
+         rom[16 + 16384 + i] = (byte) ((i * 37) ^ (i >> 4));
+      }
+
+      return rom;
+   }
+}
@@ -0,0 +1,44 @@
+package nesrs;
+
+import java.util.Collection;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs NesBenchmark.frameRate on the synthetic rom with the gc profiler and prints
+ * the bytes allocated per emulated frame once warmed up. Exits with 1 if a frame
+ * allocates anything.
+ */
+public class NesAllocationBenchmark {
+
+   private static final String ALLOC_RATE_NORM = "gc.alloc.rate.norm";
+
+   public static void main(String[] args) throws Exception {
+      Options options = new OptionsBuilder()
+            .include(NesBenchmark.class.getName() + ".frameRate")
+            .param("rom", BenchmarkRoms.SYNTHETIC)
+            .addProfiler(GCProfiler.class)
+            .build();
+
+      Collection<RunResult> results = new Runner(options).run();
+
+      boolean allocates = false;
+      for (RunResult result : results) {
+         Result<?> allocRateNorm = result.getSecondaryResults().get(ALLOC_RATE_NORM);
+         double bytesPerFrame = allocRateNorm.getScore();
+         System.out.println(result.getParams().getBenchmark() + ": " + bytesPerFrame + " bytes/frame");
+
+         // Rounded, as the profiler spreads its own sampling over the operations
+         if (Math.round(bytesPerFrame) > 0) {
+            allocates = true;
+         }
+      }
+
+      System.exit(allocates ? 1 : 0);
+   }
+}
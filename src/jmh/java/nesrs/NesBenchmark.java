@@ -0,0 +1,61 @@
+package nesrs;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end emulation of whole frames, headless and without pacing.
+ * frameRate is reported in frames/sec and cycleTime in ns per emulated cpu cycle.
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NesBenchmark {
+
+   private static final int CPU_CYCLES_IN_FRAME = 29781;
+
+   @Param({
+         BenchmarkRoms.SYNTHETIC,
+         "/testroms/blargg_ppu_tests_2005.09.15b/vram_access.nes",
+         "/testroms/sprite_hit_tests/sprite_hit_tests_2005.10.05/09.timing_basics.nes" })
+   public String rom;
+
+   private Nes _nes;
+
+   @Setup
+   public void setUp() throws Exception {
+      _nes = new Nes(BenchmarkRoms.load(rom), frame -> {}, null, null);
+      _nes.powerUp();
+
+      // Get past the rom's initialization
+      _nes.runFrames(60);
+   }
+
+   @Benchmark
+   @BenchmarkMode(Mode.Throughput)
+   @OutputTimeUnit(TimeUnit.SECONDS)
+   public void frameRate() {
+      _nes.stepFrame();
+   }
+
+   @Benchmark
+   @BenchmarkMode(Mode.AverageTime)
+   @OutputTimeUnit(TimeUnit.NANOSECONDS)
+   @OperationsPerInvocation(CPU_CYCLES_IN_FRAME)
+   public void cycleTime() {
+      _nes.stepFrame();
+   }
+}
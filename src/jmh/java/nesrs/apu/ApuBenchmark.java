@@ -0,0 +1,74 @@
+package nesrs.apu;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import nesrs.cpu.NesCpuMemory;
+
+/**
+ * Apu.executeCycles and endFrame for one frame worth of cpu cycles with all wave
+ * channels playing, with and without an AudioOutListener. Reported in ns per cpu cycle.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApuBenchmark {
+
+   private static final int CYCLES = 29781;
+
+   @Param({ "true", "false" })
+   public boolean audioOut;
+
+   private Apu _apu;
+
+   @Setup
+   public void setUp(Blackhole blackhole) {
+      _apu = new Apu(new NesCpuMemory());
+      if (audioOut) {
+         _apu.setAudioOutListener((samples, sampleCount) -> blackhole.consume(samples));
+      }
+      _apu.init();
+
+      _apu.writeRegister(0x4015, 0x0F);
+      _apu.writeRegister(0x4017, 0x40);
+      // Rectangles
+      _apu.writeRegister(0x4000, 0xBF);
+      _apu.writeRegister(0x4002, 0xFD);
+      _apu.writeRegister(0x4003, 0x08);
+      _apu.writeRegister(0x4004, 0x7F);
+      _apu.writeRegister(0x4005, 0x9A);
+      _apu.writeRegister(0x4006, 0x80);
+      _apu.writeRegister(0x4007, 0x09);
+      // Triangle
+      _apu.writeRegister(0x4008, 0xFF);
+      _apu.writeRegister(0x400A, 0x40);
+      _apu.writeRegister(0x400B, 0x08);
+      // Noise
+      _apu.writeRegister(0x400C, 0x3F);
+      _apu.writeRegister(0x400E, 0x04);
+      _apu.writeRegister(0x400F, 0x08);
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(CYCLES)
+   public void cycle() {
+      _apu.executeCycles(CYCLES);
+      _apu.endFrame();
+   }
+}
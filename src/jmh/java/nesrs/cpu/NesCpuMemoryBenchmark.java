@@ -0,0 +1,84 @@
+package nesrs.cpu;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import nesrs.BenchmarkRoms;
+import nesrs.apu.Apu;
+import nesrs.cartridge.Cartridge;
+import nesrs.cartridge.INesRomCartridgeReader;
+import nesrs.ppu.Ppu;
+
+/**
+ * NesCpuMemory.read/write for the main regions of the cpu address space.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NesCpuMemoryBenchmark {
+
+   private NesCpuMemory _memory;
+   private int _address;
+
+   @Setup
+   public void setUp() {
+      Cartridge cartridge = new INesRomCartridgeReader(
+            new ByteArrayInputStream(BenchmarkRoms.createSyntheticRom())).readCartridge();
+
+      Ppu ppu = new Ppu(cartridge);
+      ppu.setVideoOutListener(frame -> {});
+      ppu.init();
+
+      _memory = new NesCpuMemory();
+
+      Apu apu = new Apu(_memory);
+      apu.init();
+
+      _memory.setCartridge(cartridge);
+      _memory.setPpu(ppu);
+      _memory.setApu(apu);
+   }
+
+   @Benchmark
+   public int readRam() {
+      _address = (_address + 1) & 0x07FF;
+      return _memory.read(_address);
+   }
+
+   @Benchmark
+   public int writeRam() {
+      _address = (_address + 1) & 0x07FF;
+      return _memory.write(_address, _address & 0xFF);
+   }
+
+   @Benchmark
+   public int readPrgRom() {
+      _address = (_address + 1) & 0x7FFF;
+      return _memory.read(0x8000 | _address);
+   }
+
+   @Benchmark
+   public int readPpuStatus() {
+      return _memory.read(0x2002);
+   }
+
+   @Benchmark
+   public int writePpuData() {
+      _address = (_address + 1) & 0xFF;
+      return _memory.write(0x2007, _address);
+   }
+}
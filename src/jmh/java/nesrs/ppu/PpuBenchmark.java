@@ -0,0 +1,89 @@
+package nesrs.ppu;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import nesrs.BenchmarkRoms;
+import nesrs.cartridge.Cartridge;
+import nesrs.cartridge.INesRomCartridgeReader;
+
+/**
+ * Ppu.executeCycles with background and sprite rendering enabled, or with rendering
+ * disabled, where only the blank time bookkeeping is left. scanline is reported in
+ * ns per ppu cycle and frame in frames/sec.
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PpuBenchmark {
+
+   private static final int CYCLES_IN_SCANLINE = 341;
+   private static final int CYCLES_IN_FRAME = 262 * CYCLES_IN_SCANLINE;
+
+   @Param({"true", "false"})
+   public boolean rendering;
+
+   private Ppu _ppu;
+
+   @Setup
+   public void setUp() {
+      Cartridge cartridge = new INesRomCartridgeReader(
+            new ByteArrayInputStream(BenchmarkRoms.createSyntheticRom())).readCartridge();
+
+      _ppu = new Ppu(cartridge);
+      _ppu.setVideoOutListener(frame -> {});
+      _ppu.init();
+
+      // Palette
+      _ppu.writeRegister(PpuPin.REG_VRAM_ADDR, 0x3F);
+      _ppu.writeRegister(PpuPin.REG_VRAM_ADDR, 0x00);
+      for (int i = 0; i < 32; i++) {
+         _ppu.writeRegister(PpuPin.REG_VRAM_IO, i);
+      }
+
+      // Name tables
+      _ppu.writeRegister(PpuPin.REG_VRAM_ADDR, 0x20);
+      _ppu.writeRegister(PpuPin.REG_VRAM_ADDR, 0x00);
+      for (int i = 0; i < 2048; i++) {
+         _ppu.writeRegister(PpuPin.REG_VRAM_IO, i & 0xFF);
+      }
+
+      // Sprites
+      _ppu.writeRegister(PpuPin.REG_SPR_RAM_ADDR, 0);
+      for (int i = 0; i < 256; i++) {
+         _ppu.writeRegister(PpuPin.REG_SPR_RAM_IO, (i * 2) & 0xFF);
+      }
+
+      _ppu.writeRegister(PpuPin.REG_CTRL, 0x08);
+      _ppu.writeRegister(PpuPin.REG_MASK, rendering ? 0x1E : 0x00);
+   }
+
+   @Benchmark
+   @BenchmarkMode(Mode.AverageTime)
+   @OutputTimeUnit(TimeUnit.NANOSECONDS)
+   @OperationsPerInvocation(CYCLES_IN_SCANLINE)
+   public void scanline() {
+      _ppu.executeCycles(CYCLES_IN_SCANLINE);
+   }
+
+   @Benchmark
+   @BenchmarkMode(Mode.Throughput)
+   @OutputTimeUnit(TimeUnit.SECONDS)
+   public void frame() {
+      _ppu.executeCycles(CYCLES_IN_FRAME);
+   }
+}
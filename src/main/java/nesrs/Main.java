@@ -36,7 +36,7 @@ public class Main {
          window.setLayout(new FlowLayout());
 
          // Create video player
-         VideoPlayer videoPlayer = new VideoPlayer(true);
+         VideoPlayer videoPlayer = new VideoPlayer();
          videoPlayer.setEnabled(false);
          window.add(videoPlayer);
 
@@ -54,6 +54,7 @@ public class Main {
 
          // Set page-flip buffer strategy.
          videoPlayer.createBufferStrategy(2);
+         videoPlayer.start();
 
          // Start NES
          Nes nes = new Nes(nesRom, videoPlayer, audioPlayer, controller1);
@@ -1,6 +1,7 @@
 package nesrs;
 
 import java.io.ByteArrayInputStream;
+import java.util.concurrent.locks.LockSupport;
 
 import nesrs.apu.Apu;
 import nesrs.apu.AudioOutListener;
@@ -26,14 +27,28 @@ public class Nes implements Runnable {
    private final Cpu _cpu;
    private final Apu _apu;
    private final Ppu _ppu;
+   private final Scheduler _scheduler = new Scheduler();
 
    private Thread _nesThread;
 
+   // Cpu cycles already run into the next frame (carried between updateFrame calls)
+   private long _frameCpuCycles;
+   private long _frameCount;
+   private long _droppedFrameCount;
+
+   private final NesMetrics _metrics = new NesMetrics();
+   private NesMetricsListener _metricsListener;
+
    private final VideoOutListener _videoOut;
    private final AudioOutListener _audioOut;
    private final Controller _controller1;
 
    static final double nanoToMs = 1000000.0;
+
+   // NTSC frame, 29781 cpu cycles at 1789773 Hz
+   private static final long FRAME_NANOS = 1000000000L * 29781 / 1789773;
+   // Frames the paced loop runs at once to catch up with real time
+   private static final int MAX_FRAMES_TO_RUN = 4;
    
    public Nes(byte[] rom, VideoOutListener videoOut, AudioOutListener audioOut,
          Controller controller1) {
@@ -50,11 +65,13 @@ public class Nes implements Runnable {
       _ppu = new Ppu(cartridge);
       _ppu.setVblListener(() -> _cpu.nmi());
       _ppu.setVideoOutListener(videoOut);
+      _ppu.setScheduler(_scheduler);
 
       // Assemble apu
       _apu = new Apu(cpuMemory);
       _apu.setIrqListener(() -> _cpu.irq());
       _apu.setAudioOutListener(audioOut);
+      _apu.setScheduler(_scheduler);
 
       // Memory-mapped devices
       cpuMemory.setCartridge(cartridge);
@@ -67,15 +84,31 @@ public class Nes implements Runnable {
       _controller1 = controller1;
    }
 
+   /**
+    * Sets the listener receiving per-frame metrics. Without a listener no timing is
+    * done at all.
+    */
+   public void setMetricsListener(NesMetricsListener metricsListener) {
+      _metricsListener = metricsListener;
+      _apu.setCatchUpTimed(metricsListener != null);
+      _ppu.setCatchUpTimed(metricsListener != null);
+   }
+
+   /**
+    * Enables the cpu's dynamic recompiler. Compiled blocks only run while neither the ppu nor
+    * the apu can interrupt the cpu, so emulation stays exactly the same.
+    */
+   public void setDynarecEnabled(boolean enabled) {
+      _cpu.setDynarecEnabled(enabled);
+   }
+
    public void start() {
       synchronized (_stateLock) {
          if (_state != State.STOPPED) {
             return;
          }
 
-         _cpu.init();
-         _apu.init();
-         _ppu.init();
+         initDevices();
 
          _state = State.STARTED;
 
@@ -85,6 +118,85 @@ public class Nes implements Runnable {
       }
    }
 
+   /**
+    * Powers up the console for headless use. Instead of start(), frames are then
+    * advanced synchronously on the caller's thread with stepFrame(), runFrames(int)
+    * or runUntilCycle(long), without any wall-clock pacing.
+    */
+   public void powerUp() {
+      synchronized (_stateLock) {
+         checkNotStarted();
+         initDevices();
+      }
+   }
+
+   /**
+    * Emulates exactly one frame (29781 cpu cycles, including the cycles carried
+    * over from the previous frame).
+    */
+   public void stepFrame() {
+      checkNotStarted();
+      updateInput();
+      _frameCpuCycles = updateFrame(_frameCpuCycles);
+   }
+
+   public void runFrames(int numberOfFrames) {
+      for (int i = 0; i < numberOfFrames; i++) {
+         stepFrame();
+      }
+   }
+
+   /**
+    * Emulates until the total number of cpu cycles since power up reaches the
+    * given cycle. The last instruction may overshoot it by a few cycles.
+    * Controller state is not captured, as frames are not stepped as a whole.
+    */
+   public void runUntilCycle(long cpuCycle) {
+      checkNotStarted();
+      _scheduler.schedule(Scheduler.STOP, cpuCycle * Scheduler.CPU_DIVIDER);
+      scheduleFrameEnd(_frameCpuCycles);
+
+      while (_scheduler.getCpuCycle() < cpuCycle) {
+         _frameCpuCycles += executeOp();
+
+         if (_frameCpuCycles >= 29781) {
+            _frameCpuCycles -= 29781;
+            _frameCount++;
+            scheduleFrameEnd(_frameCpuCycles);
+            _apu.endFrame();
+         }
+      }
+
+      _scheduler.cancel(Scheduler.STOP);
+      _apu.catchUp();
+      _ppu.catchUp();
+   }
+
+   public long getTotalCpuCycles() {
+      return _scheduler.getCpuCycle();
+   }
+
+   public long getFrameCount() {
+      return _frameCount;
+   }
+
+   private void checkNotStarted() {
+      if (_state == State.STARTED) {
+         throw new IllegalStateException("Nes is running on its own thread");
+      }
+   }
+
+   private void initDevices() {
+      _scheduler.reset();
+      _cpu.init();
+      _apu.init();
+      _ppu.init();
+
+      _frameCpuCycles = 0;
+      _frameCount = 0;
+      _droppedFrameCount = 0;
+   }
+
    public void reset() {
       if (_state == State.STARTED) {
          _cpu.reset();
@@ -99,65 +211,86 @@ public class Nes implements Runnable {
       }
    }
 
-   public void run2() {
-//      long _lastFrameEnd = 0;
-//      int ppuCyclesF = 0;
-
-      while (_state == State.STARTED) {
-         // CPU
-         int cpuCycles = _cpu.executeOp();
-
-         // APU
-         _apu.executeCycles(cpuCycles);
-
-         // PPU
-         int ppuCycles = (cpuCycles * 3); // TODO cycles between ppu and cpu depends on nes type
-         _ppu.executeCycles(ppuCycles);
-
-//         ppuCyclesF += ppuCycles;
-//         if (ppuCyclesF >= 89342) {
-//            long currentFrameEnd = System.currentTimeMillis();
-//            if (_lastFrameEnd != 0) {
-//               long currentFrameDuration = currentFrameEnd - _lastFrameEnd;
-//               int fps = (int) (1000f / currentFrameDuration);
-//               System.out.println("fps: " + fps);
-//            }
-//            _lastFrameEnd = currentFrameEnd;
-//            ppuCyclesF = 0;
-//         }
-      }
-   }
-   
    @Override
    public void run() {
-      long lastRunEnd = 0;
-      long frameCpuCycles = 0;
+      long nextFrameTime = System.nanoTime();
 
       while (_state == State.STARTED) {
+         // Paced by the clock, the audio out doesn't block
+         long now = System.nanoTime();
+         if (now < nextFrameTime) {
+            LockSupport.parkNanos(nextFrameTime - now);
+            continue;
+         }
+
+         int framesToRun = (int) Math.min(1 + (now - nextFrameTime) / FRAME_NANOS, MAX_FRAMES_TO_RUN);
+         // Too far behind to catch up, start over from now
+         nextFrameTime = Math.max(nextFrameTime + framesToRun * FRAME_NANOS, now);
+
          updateInput();
-         frameCpuCycles = runFrames(lastRunEnd, frameCpuCycles);
+         _frameCpuCycles = runPacedFrames(framesToRun, _frameCpuCycles);
          renderGraphics();
          playAudio();
-         lastRunEnd = System.currentTimeMillis();
       }
    }
    
+   /**
+    * Runs the cpu for an op, or with the dynarec up to the next scheduled event, and the apu and
+    * ppu along.
+    */
+   private int executeOp() {
+      int cpuCycles;
+      if (_cpu.isDynarecEnabled()) {
+         cpuCycles = _cpu.executeOps(_scheduler.getCpuCyclesToNextEvent());
+      } else {
+         cpuCycles = _cpu.executeOp();
+      }
+      _scheduler.addCpuCycles(cpuCycles);
+      _apu.addCycles(cpuCycles);
+      _ppu.addCycles(Scheduler.PPU_CYCLES_PER_CPU_CYCLE * cpuCycles);
+
+      int idleLoopCycles = _cpu.getIdleLoopCycles();
+      if (idleLoopCycles > 0) {
+         cpuCycles += skipIdleLoop(idleLoopCycles);
+      }
+
+      return cpuCycles;
+   }
+
+   /**
+    * Fast-forwards the cpu through the passes of an idle loop it would make before the next
+    * scheduled event or before what the loop reads may change. They leave the cpu as it is, so
+    * only their cycles are run on the apu and ppu.
+    */
+   private int skipIdleLoop(int idleLoopCycles) {
+      int budget = Math.min(_scheduler.getCpuCyclesToNextEvent(), _cpu.getIdleLoopStableCycles());
+      if (budget < idleLoopCycles) {
+         return 0;
+      }
+
+      int cpuCycles = budget / idleLoopCycles * idleLoopCycles;
+      _cpu.skipIdleLoop(cpuCycles);
+      _scheduler.addCpuCycles(cpuCycles);
+      _apu.addCycles(cpuCycles);
+      _ppu.addCycles(Scheduler.PPU_CYCLES_PER_CPU_CYCLE * cpuCycles);
+
+      return cpuCycles;
+   }
+
+   // Lets the cpu run up to the end of the frame which already ran frameCpuCycles
+   private void scheduleFrameEnd(long frameCpuCycles) {
+      _scheduler.scheduleCpuCycles(Scheduler.FRAME_END, (int) (29781 - frameCpuCycles));
+   }
+
    public void updateInput() {
       if (_controller1 != null) {
          _controller1.captureState();
       }
    }
    
-   public long runFrames(long lastRunEnd, long frameCpuCycles) {
-      long now = System.currentTimeMillis();
-      // Each update is 16ms -> 60fps
-      int framesToRun = 1;
-      if (lastRunEnd != 0) {
-         framesToRun = (int) ((now - lastRunEnd) / 16);
-         if (framesToRun == 0) {
-            framesToRun = 1;
-         }
-      }
+   // Runs the frames run() is due for, of which only the last gets rendered
+   private long runPacedFrames(int framesToRun, long frameCpuCycles) {
+      _droppedFrameCount += framesToRun - 1;
 
       while (framesToRun-- > 0) {
          frameCpuCycles = updateFrame(frameCpuCycles);
@@ -167,50 +300,62 @@ public class Nes implements Runnable {
    }
    
    public long updateFrame(long frameCpuCycles) {
-      long cpuTime = 0;
-      long ppuTime = 0;
-      long apuTime = 0;
-
-      while (frameCpuCycles < 29781) {      
-         long start = System.nanoTime();
-         // CPU
-         int cpuCycles = _cpu.executeOp();
-         long end = System.nanoTime();
-         cpuTime += (end - start);
-         
-         start = System.nanoTime();
-         // APU
-         _apu.executeCycles(cpuCycles);
-         end = System.nanoTime();
-         apuTime += (end - start);
-         
-         start = System.nanoTime();
-         // PPU
-         int ppuCycles = 3 * cpuCycles; // TODO cycles between ppu and cpu depends on nes type
-         _ppu.executeCycles(ppuCycles);
-         end = System.nanoTime();
-         ppuTime += (end - start);
-         
-         frameCpuCycles += cpuCycles;
+      NesMetricsListener metricsListener = _metricsListener;
+      scheduleFrameEnd(frameCpuCycles);
+
+      if (metricsListener == null) {
+         while (frameCpuCycles < 29781) {
+            frameCpuCycles += executeOp();
+         }
+         // Run the apu and ppu cycles still owed, so the frame's audio and video are out
+         _apu.endFrame();
+         _ppu.catchUp();
+      } else {
+         frameCpuCycles = updateFrameWithMetrics(frameCpuCycles);
       }
-      
+
       frameCpuCycles -= 29781;
+      _frameCount++;
+
+      if (metricsListener != null) {
+         _metrics.frame = _frameCount;
+         _metrics.framesDropped = _droppedFrameCount;
+         if (_audioOut != null) {
+            _metrics.audioUnderruns = _audioOut.getUnderrunCount();
+            _metrics.audioOverruns = _audioOut.getOverrunCount();
+         }
+         metricsListener.handleFrameMetrics(_metrics);
+      }
 
-//      System.out.println(
-//            "CPU: " + (cpuTime / nanoToMs) +
-//            ", APU: " + (apuTime / nanoToMs) +
-//            ", PPU: " + (ppuTime / nanoToMs));
-//            ", PPU FT: " + (_ppu.frameTime / nanoToMs) +
-//            ", Render BG: " + (_ppu.renderTime / nanoToMs) +
-//            ", Render SP: " + (_ppu.renderSpriteTime / nanoToMs));
-//            ", Video: " + (_ppu.videoTime / nanoToMs));
-//            ", Vblank: " + (_ppu.vblankTime / nanoToMs) +
-//            ", Dummy: " + (_ppu.dummyTime / nanoToMs) + 
-//            ", Regular: " + (_ppu.regularTime / nanoToMs) +
-//            ", RegularX: " + (_ppu.regularXTime / nanoToMs) +
-//            ", HandleFrame: " + (_ppu.handleFrameTime / nanoToMs));
       return frameCpuCycles;
+   }
+
+   private long updateFrameWithMetrics(long frameCpuCycles) {
+      _metrics.reset();
+
+      long apuTimeStart = _apu.getCatchUpTimeNs();
+      long ppuTimeStart = _ppu.getCatchUpTimeNs();
+      int opCountStart = _cpu.getOpCount();
+      int compiledCyclesStart = _cpu.getCompiledCycles();
+      long start = System.nanoTime();
 
+      while (frameCpuCycles < 29781) {
+         int cpuCycles = executeOp();
+
+         frameCpuCycles += cpuCycles;
+         _metrics.cpuCycles += cpuCycles;
+      }
+      _apu.endFrame();
+      _ppu.catchUp();
+
+      long frameTime = System.nanoTime() - start;
+      _metrics.instructions = _cpu.getOpCount() - opCountStart;
+      _metrics.compiledCycles = _cpu.getCompiledCycles() - compiledCyclesStart;
+      _metrics.apuTimeNs = _apu.getCatchUpTimeNs() - apuTimeStart;
+      _metrics.ppuTimeNs = _ppu.getCatchUpTimeNs() - ppuTimeStart;
+      _metrics.cpuTimeNs = frameTime - _metrics.apuTimeNs - _metrics.ppuTimeNs;
+
+      return frameCpuCycles;
    }
    
    public void renderGraphics() {
@@ -0,0 +1,47 @@
+package nesrs;
+
+/**
+ * Per-frame timing of the emulated subsystems. The apu and ppu only run when caught up, on
+ * register accesses and at the end of the frame, so their times are those of the catch-ups.
+ * The cpu time is the rest of the frame.
+ */
+public class NesMetrics {
+   // Frame
+   public long frame;
+   public int instructions;
+   public int cpuCycles;
+   // Of the cpu cycles, those run by compiled blocks of the dynarec
+   public int compiledCycles;
+   public long cpuTimeNs;
+   public long apuTimeNs;
+   public long ppuTimeNs;
+
+   // Totals since power up
+   // Frames emulated by the paced loop without being rendered, to catch up with real time
+   public long framesDropped;
+   // Times the audio device ran out of samples, and times samples were dropped as it fell behind
+   public long audioUnderruns;
+   public long audioOverruns;
+
+   void reset() {
+      instructions = 0;
+      cpuCycles = 0;
+      compiledCycles = 0;
+      cpuTimeNs = 0;
+      apuTimeNs = 0;
+      ppuTimeNs = 0;
+   }
+
+   @Override
+   public String toString() {
+      return "frame: " + frame +
+            ", instructions: " + instructions +
+            ", compiled cycles: " + compiledCycles + "/" + cpuCycles +
+            ", CPU: " + (cpuTimeNs / 1000) + "us" +
+            ", APU: " + (apuTimeNs / 1000) + "us" +
+            ", PPU: " + (ppuTimeNs / 1000) + "us" +
+            ", dropped: " + framesDropped +
+            ", audio underruns: " + audioUnderruns +
+            ", overruns: " + audioOverruns;
+   }
+}
@@ -0,0 +1,9 @@
+package nesrs;
+
+public interface NesMetricsListener {
+   /**
+    * Called on the emulation thread after every emulated frame. The metrics instance
+    * is reused for the next frame, so it must be copied if it is kept.
+    */
+   void handleFrameMetrics(NesMetrics metrics);
+}
@@ -0,0 +1,159 @@
+package nesrs;
+
+/**
+ * Master clock of the console. Devices schedule their next event at an absolute master cycle:
+ * when the ppu may raise the vbl nmi or a mapper irq, when the apu may raise its irq, the end of
+ * the frame. The cpu then runs freely until the earliest of them, and devices which aren't due
+ * catch up lazily.
+ *
+ * Events are only deadlines, nothing is called when they come. A device may schedule its event
+ * too early, then the cpu just stops there once more, but never too late.
+ */
+public final class Scheduler {
+
+   // Master clock cycles per cpu and per ppu cycle (NTSC)
+   public static final int CPU_DIVIDER = 12;
+   public static final int PPU_DIVIDER = 4;
+   public static final int PPU_CYCLES_PER_CPU_CYCLE = CPU_DIVIDER / PPU_DIVIDER;
+
+   public static final long NEVER = Long.MAX_VALUE;
+
+   // Events
+   public static final int FRAME_END = 0;
+   public static final int STOP = 1;
+   public static final int PPU = 2;
+   public static final int APU = 3;
+   private static final int EVENT_COUNT = 4;
+
+   private long _cycle;
+
+   // Master cycle of each event, and a min-heap of the events by it with each event's index
+   private final long[] _eventCycles = new long[EVENT_COUNT];
+   private final int[] _heap = new int[EVENT_COUNT];
+   private final int[] _heapIndices = new int[EVENT_COUNT];
+
+   public Scheduler() {
+      reset();
+   }
+
+   // Back to master cycle 0 without any event
+   public void reset() {
+      _cycle = 0;
+      for (int event = 0; event < EVENT_COUNT; event++) {
+         _eventCycles[event] = NEVER;
+         _heap[event] = event;
+         _heapIndices[event] = event;
+      }
+   }
+
+   public long getCycle() {
+      return _cycle;
+   }
+
+   public long getCpuCycle() {
+      return _cycle / CPU_DIVIDER;
+   }
+
+   public void addCpuCycles(int cpuCycles) {
+      _cycle += (long) cpuCycles * CPU_DIVIDER;
+   }
+
+   public void schedule(int event, long cycle) {
+      long oldCycle = _eventCycles[event];
+      _eventCycles[event] = cycle;
+
+      if (cycle < oldCycle) {
+         siftUp(_heapIndices[event]);
+      } else if (cycle > oldCycle) {
+         siftDown(_heapIndices[event]);
+      }
+   }
+
+   // Schedules the event the cpu cycles from now, never for Integer.MAX_VALUE
+   public void scheduleCpuCycles(int event, int cpuCycles) {
+      schedule(event, cpuCycles == Integer.MAX_VALUE ? NEVER :
+            _cycle + (long) cpuCycles * CPU_DIVIDER);
+   }
+
+   // Schedules the event the ppu cycles from now, never for Integer.MAX_VALUE
+   public void schedulePpuCycles(int event, int ppuCycles) {
+      schedule(event, ppuCycles == Integer.MAX_VALUE ? NEVER :
+            _cycle + (long) ppuCycles * PPU_DIVIDER);
+   }
+
+   public void cancel(int event) {
+      schedule(event, NEVER);
+   }
+
+   public long getEventCycle(int event) {
+      return _eventCycles[event];
+   }
+
+   // The event due first
+   public int getNextEvent() {
+      return _heap[0];
+   }
+
+   public long getNextEventCycle() {
+      return _eventCycles[_heap[0]];
+   }
+
+   /**
+    * Cpu cycles before the next event, rounded up as an op ending after it is fine as long as it
+    * starts before it. 0 once it's due, Integer.MAX_VALUE if there is none.
+    */
+   public int getCpuCyclesToNextEvent() {
+      long cycles = getNextEventCycle() - _cycle;
+      if (cycles <= 0) {
+         return 0;
+      }
+
+      long cpuCycles = cycles / CPU_DIVIDER + (cycles % CPU_DIVIDER != 0 ? 1 : 0);
+      return (int) Math.min(cpuCycles, Integer.MAX_VALUE);
+   }
+
+   private void siftUp(int index) {
+      int event = _heap[index];
+      long cycle = _eventCycles[event];
+
+      while (index > 0) {
+         int parentIndex = (index - 1) >> 1;
+         int parent = _heap[parentIndex];
+         if (_eventCycles[parent] <= cycle) {
+            break;
+         }
+         move(parent, index);
+         index = parentIndex;
+      }
+      move(event, index);
+   }
+
+   private void siftDown(int index) {
+      int event = _heap[index];
+      long cycle = _eventCycles[event];
+
+      while (true) {
+         int childIndex = 2 * index + 1;
+         if (childIndex >= EVENT_COUNT) {
+            break;
+         }
+         if (childIndex + 1 < EVENT_COUNT &&
+               _eventCycles[_heap[childIndex + 1]] < _eventCycles[_heap[childIndex]]) {
+            childIndex++;
+         }
+
+         int child = _heap[childIndex];
+         if (_eventCycles[child] >= cycle) {
+            break;
+         }
+         move(child, index);
+         index = childIndex;
+      }
+      move(event, index);
+   }
+
+   private void move(int event, int index) {
+      _heap[index] = event;
+      _heapIndices[event] = index;
+   }
+}
@@ -1,14 +1,24 @@
 package nesrs.apu;
 
+import nesrs.Scheduler;
 import nesrs.apu.channels.DeltaModulationChannel;
 import nesrs.apu.channels.RandomWaveChannel;
 import nesrs.apu.channels.RectangleWaveChannel;
 import nesrs.apu.channels.TriangleWaveChannel;
+import nesrs.apu.devices.Mixer;
 import nesrs.cpu.CpuMemory;
 import nesrs.cpu.IrqListener;
 
 public class Apu implements ApuPin {
 
+   // Audio out (NTSC)
+   public static final int CLOCK_RATE = 1789773;
+   public static final int MAX_SAMPLE_RATE = 96000;
+   // Longest frame, after which the audio goes out even without endFrame(). A frame may run
+   // over it by the cycles skipped at once, which are less than a frame sequencer step.
+   private static final int MAX_FRAME_CYCLES = 2 * 29781;
+   private static final int MAX_FRAME_OVERRUN = 7458;
+
    private final RectangleWaveChannel _rectangleWaveChannel1;
    private final RectangleWaveChannel _rectangleWaveChannel2;
    private final TriangleWaveChannel _triangleWaveChannel;
@@ -21,6 +31,24 @@ public class Apu implements ApuPin {
    private IrqListener _irqListener;
    private boolean _isTimerCycle;
 
+   // Audio synthesis
+   private final Mixer _mixer = new Mixer(Short.MAX_VALUE, false);
+   private final BlipBuffer _blipBuffer =
+         new BlipBuffer(CLOCK_RATE, MAX_SAMPLE_RATE, MAX_FRAME_CYCLES + MAX_FRAME_OVERRUN);
+   private final short[] _samples = new short[
+         BlipBuffer.getMaxSamples(CLOCK_RATE, MAX_SAMPLE_RATE, MAX_FRAME_CYCLES + MAX_FRAME_OVERRUN)];
+   private int _sampleRate;
+   private int _amplitude;
+   private int _frameCycle;
+
+   // Catch-up execution
+   private int _pendingCycles;
+   private int _cyclesToNextEvent;
+   private Scheduler _scheduler;
+   // Time spent catching up and sending audio, only measured for the metrics
+   private boolean _isCatchUpTimed;
+   private long _catchUpTimeNs;
+
    public Apu(CpuMemory cpuMemory) {
       _rectangleWaveChannel1 = new RectangleWaveChannel(false);
       _rectangleWaveChannel2 = new RectangleWaveChannel(true);
@@ -38,6 +66,13 @@ public class Apu implements ApuPin {
    @Override
    public void setAudioOutListener(AudioOutListener audioOutListener) {
       _audioOutListener = audioOutListener;
+      _frameCycle = 0;
+      _amplitude = 0;
+      _blipBuffer.clear();
+
+      if (audioOutListener != null) {
+         updateSampleRate();
+      }
    }
 
    @Override
@@ -45,9 +80,15 @@ public class Apu implements ApuPin {
       _irqListener = irqListener;
    }
 
+   @Override
+   public void setScheduler(Scheduler scheduler) {
+      _scheduler = scheduler;
+   }
+
    @Override
    public void init() {
       _isTimerCycle = false;
+      _pendingCycles = 0;
 
       _frameSequencer.resetIrqStatus();
 //      _deltaModulationChannel.resetIrqStatus();
@@ -56,10 +97,12 @@ public class Apu implements ApuPin {
 //      _triangleWaveChannel.setLengthCounterEnabled(true);
 //      _rectangleWaveChannel1.setLengthCounterEnabled(true);
 //      _rectangleWaveChannel2.setLengthCounterEnabled(true);
+      updateNextEvent();
    }
 
    @Override
    public void reset() {
+      catchUp();
       _isTimerCycle = false;
 
       _frameSequencer.resetIrqStatus();
@@ -69,43 +112,228 @@ public class Apu implements ApuPin {
       _triangleWaveChannel.setLengthCounterEnabled(true);
       _rectangleWaveChannel1.setLengthCounterEnabled(true);
       _rectangleWaveChannel2.setLengthCounterEnabled(true);
+
+      updateNextEvent();
    }
 
    @Override
    public void executeCycles(int cycles) {
-      for (int i = 0; i < cycles; i++) {
-         _frameSequencer.clock();
+      while (cycles > 0) {
+         int quietCycles = Math.min(getQuietCycles(), cycles);
+         if (quietCycles > 0) {
+            skipCycles(quietCycles);
+            cycles -= quietCycles;
+         } else {
+            clock();
+            cycles--;
+         }
+      }
+
+      updateNextEvent();
+   }
 
-         // Clock channels
-         _triangleWaveChannel.clockTimer();
+   @Override
+   public void addCycles(int cycles) {
+      _pendingCycles += cycles;
+
+      if (_pendingCycles >= _cyclesToNextEvent) {
+         catchUp();
+      }
+   }
 
-         if (_isTimerCycle) {
-            _rectangleWaveChannel1.clockTimer();
-            _rectangleWaveChannel2.clockTimer();
-            _randomWaveChannel.clockTimer();
-            _deltaModulationChannel.clockTimer();
+   @Override
+   public void catchUp() {
+      if (_pendingCycles > 0) {
+         int cycles = _pendingCycles;
+         _pendingCycles = 0;
+
+         if (_isCatchUpTimed) {
+            long start = System.nanoTime();
+            executeCycles(cycles);
+            _catchUpTimeNs += System.nanoTime() - start;
+         } else {
+            executeCycles(cycles);
          }
+      }
+   }
+
+   @Override
+   public void endFrame() {
+      catchUp();
+
+      if (_isCatchUpTimed) {
+         long start = System.nanoTime();
+         flushAudio();
+         _catchUpTimeNs += System.nanoTime() - start;
+      } else {
+         flushAudio();
+      }
+   }
+
+   /**
+    * Measures the time catchUp() and endFrame() take from now on, which is where the apu does
+    * all its work. Off by default, as it costs two System.nanoTime() calls per catch-up.
+    */
+   public void setCatchUpTimed(boolean isCatchUpTimed) {
+      _isCatchUpTimed = isCatchUpTimed;
+   }
+
+   // Total time spent catching up and sending audio while timed
+   public long getCatchUpTimeNs() {
+      return _catchUpTimeNs;
+   }
+
+   @Override
+   public int getCyclesToNextIrq() {
+      int cycles = Math.min(
+            _frameSequencer.getCyclesToNextIrq(),
+            _deltaModulationChannel.getCyclesToNextIrq());
+      return cycles == Integer.MAX_VALUE ? cycles : cycles - _pendingCycles;
+   }
+
+   // Runs one cycle the slow way, also for unit tests
+   /*package*/ void clock() {
+      _frameSequencer.clock();
+
+      // Clock channels
+      _triangleWaveChannel.clockTimer();
+
+      if (_isTimerCycle) {
+         _rectangleWaveChannel1.clockTimer();
+         _rectangleWaveChannel2.clockTimer();
+         _randomWaveChannel.clockTimer();
+         _deltaModulationChannel.clockTimer();
+      }
+      _isTimerCycle = !_isTimerCycle;
+
+      handleCycles(1);
+   }
+
+   /**
+    * Cycles from now on during which neither the frame sequencer nor any channel timer produces
+    * an output clock. They only count down, so nothing audible changes.
+    */
+   private int getQuietCycles() {
+      int cycles = Math.min(
+            _frameSequencer.getQuietClocks(),
+            _triangleWaveChannel.getQuietTimerClocks());
+
+      int timerClocks = Math.min(
+            Math.min(_rectangleWaveChannel1.getQuietTimerClocks(), _rectangleWaveChannel2.getQuietTimerClocks()),
+            Math.min(_randomWaveChannel.getQuietTimerClocks(), _deltaModulationChannel.getQuietTimerClocks()));
+      if (timerClocks != Integer.MAX_VALUE) {
+         // Up to the cycle of the first timer clock which isn't quiet
+         cycles = Math.min(cycles, getTimerCycles(timerClocks + 1) - 1);
+      }
+      return cycles;
+   }
+
+   // Runs quiet cycles, at most getQuietCycles()
+   private void skipCycles(int cycles) {
+      _frameSequencer.skip(cycles);
+      _triangleWaveChannel.skipTimer(cycles);
+
+      int timerClocks = _isTimerCycle ? (cycles + 1) / 2 : cycles / 2;
+      _rectangleWaveChannel1.skipTimer(timerClocks);
+      _rectangleWaveChannel2.skipTimer(timerClocks);
+      _randomWaveChannel.skipTimer(timerClocks);
+      _deltaModulationChannel.skipTimer(timerClocks);
+      if ((cycles & 1) != 0) {
          _isTimerCycle = !_isTimerCycle;
+      }
+
+      handleCycles(cycles);
+   }
+
+   // Cycles until the channel timers got clocked as often, as they are every other cycle
+   private int getTimerCycles(int timerClocks) {
+      if (timerClocks >= Integer.MAX_VALUE / 2) {
+         return Integer.MAX_VALUE;
+      }
+      return 2 * timerClocks - (_isTimerCycle ? 1 : 0);
+   }
+
+   // Raises the irq and synthesizes the audio of cycles which ran with the same state: the
+   // output only needs a step where the mixed amplitude changes
+   private void handleCycles(int cycles) {
+      // IRQ
+      if (isIrqRaised()) {
+         if (_irqListener != null) {
+            _irqListener.handleIrq();
+         }
+      }
+
+      // Audio
+      if (_audioOutListener != null) {
+         if (_frameCycle >= MAX_FRAME_CYCLES) {
+            flushAudio();
+         }
+
+         int amplitude = _mixer.mix(
+               _rectangleWaveChannel1.getDac(),
+               _rectangleWaveChannel2.getDac(),
+               _triangleWaveChannel.getDac(),
+               _randomWaveChannel.getDac(),
+               _deltaModulationChannel.getDac());
+         if (amplitude != _amplitude) {
+            _blipBuffer.addDelta(_frameCycle, amplitude - _amplitude);
+            _amplitude = amplitude;
+         }
+         _frameCycle += cycles;
+      }
+   }
+
+   // Sends the samples of the cycles since the last flush
+   private void flushAudio() {
+      if (_frameCycle > 0) {
+         _blipBuffer.endFrame(_frameCycle);
+         _frameCycle = 0;
 
-         // IRQ
-         if (_frameSequencer.getIrqStatus() || _deltaModulationChannel.getIrqStatus()) {
-            if (_irqListener != null) {
-               _irqListener.handleIrq();
-            }
+         int sampleCount = _blipBuffer.readSamples(_samples);
+         if (sampleCount > 0) {
+            _audioOutListener.handleSamples(_samples, sampleCount);
          }
+         updateSampleRate();
+      }
+   }
 
-         // Send audio
-         if (_audioOutListener != null) {
-            _audioOutListener.handleAudio(
-                    _rectangleWaveChannel1.getDac(),
-                    _rectangleWaveChannel2.getDac(),
-                    _triangleWaveChannel.getDac(),
-                    _randomWaveChannel.getDac(),
-                    _deltaModulationChannel.getDac());
+   // The listener's rate may change a little between frames, as it keeps pace with its device
+   private void updateSampleRate() {
+      int sampleRate = _audioOutListener.getSampleRate();
+      if (sampleRate != _sampleRate) {
+         if (sampleRate <= 0 || sampleRate > MAX_SAMPLE_RATE) {
+            throw new IllegalArgumentException("Unsupported sample rate: " + sampleRate);
          }
+         _blipBuffer.setSampleRate(sampleRate);
+         _sampleRate = sampleRate;
+      }
+   }
+
+   /**
+    * Finds the cycles after which the apu has to catch up on its own: when it may raise the irq,
+    * which is also scheduled, or fetch a sample byte, which has to see the cpu memory of the time.
+    * Both only come earlier through register accesses and move on as the apu catches up, so this
+    * is called after either.
+    */
+   private void updateNextEvent() {
+      int cyclesToIrq = Math.min(
+            _frameSequencer.getCyclesToNextIrq(),
+            _deltaModulationChannel.getCyclesToNextIrq());
+      int cyclesToFetch = getTimerCycles(_deltaModulationChannel.getTimerClocksToNextFetch());
+      _cyclesToNextEvent = Math.min(cyclesToIrq, cyclesToFetch);
+
+      // A raised irq is raised again by every catch-up, which with _cyclesToNextEvent at 0
+      // follows each op or compiled block, so only raising it is an event for the scheduler
+      if (_scheduler != null) {
+         _scheduler.scheduleCpuCycles(
+               Scheduler.APU, isIrqRaised() ? Integer.MAX_VALUE : getCyclesToNextIrq());
       }
    }
 
+   private boolean isIrqRaised() {
+      return _frameSequencer.getIrqStatus() || _deltaModulationChannel.getIrqStatus();
+   }
+
    @Override
    public int readRegister(int register) {
       if (register == 0x4015) {
@@ -118,6 +346,7 @@ public class Apu implements ApuPin {
          int rectangle1StatusFlag = _rectangleWaveChannel1.getLengthCounterCount() > 0 ? 0x01 : 0;
 
          _frameSequencer.resetIrqStatus();
+         updateNextEvent();
 
          return (dmcIrqFlag |
                frameIrqFlag |
@@ -244,5 +473,7 @@ public class Apu implements ApuPin {
          default:
             break;
       }
+
+      updateNextEvent();
    }
 }
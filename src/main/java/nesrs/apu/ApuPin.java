@@ -1,5 +1,6 @@
 package nesrs.apu;
 
+import nesrs.Scheduler;
 import nesrs.cpu.IrqListener;
 
 public interface ApuPin {
@@ -14,6 +15,16 @@ public interface ApuPin {
    void reset();
 
    void executeCycles(int cycles);
+   // Lazy CLK. Cycles are only run once the irq may be raised or a sample byte fetched, or on
+   // catchUp(), which must be called before registers are accessed.
+   void addCycles(int cycles);
+   void catchUp();
+   // Catches up and sends the audio of the cycles since the last call as a block of samples
+   void endFrame();
+   // Lower bound of the cycles until the irq may be raised, Integer.MAX_VALUE if it can't be,
+   // also kept scheduled as the scheduler's APU event unless the irq is already raised
+   int getCyclesToNextIrq();
+   void setScheduler(Scheduler scheduler);
 
    //
    // From inside
@@ -1,7 +1,29 @@
 package nesrs.apu;
 
 public interface AudioOutListener {
-   void handleAudio(int rec1Dac, int rec2Dac, int triDac, int randomDac, int dmcDac);
+   int SAMPLE_RATE_22050 = 22050;
+   int SAMPLE_RATE_44100 = 44100;
+   int SAMPLE_RATE_48000 = 48000;
+
+   // Rate the apu samples its output at for this listener, read as it's set and after each
+   // frame. A listener may nudge it a little to keep pace with its device.
+   default int getSampleRate() {
+      return SAMPLE_RATE_44100;
+   }
+
+   // Signed 16 bit mono samples of one frame, the first sampleCount of samples. Each frame has
+   // exactly the samples its cycles take at the sample rate, the fraction of a sample left over
+   // goes into the next frame. The array is reused for the next frame.
+   void handleSamples(short[] samples, int sampleCount);
 
    default void render() {}
+
+   // Totals of the times the device ran out of samples and samples had to be dropped
+   default long getUnderrunCount() {
+      return 0;
+   }
+
+   default long getOverrunCount() {
+      return 0;
+   }
 }
@@ -0,0 +1,157 @@
+package nesrs.apu;
+
+import java.util.Arrays;
+
+/**
+ * Band-limited synthesis of a waveform from its amplitude changes, after the idea of Shay
+ * Green's blip_buf. A change is added as a band-limited step at its exact clock time, which
+ * keeps the square waves of the apu from aliasing. Once a frame's clocks ended, its samples are
+ * read in one block at the output rate; the fraction of a sample left over carries into the
+ * next frame.
+ *
+ * The buffer holds the steps' derivative, so reading integrates it. The integrator leaks a
+ * little, which removes the DC offset of the apu's output.
+ */
+final class BlipBuffer {
+
+   // Sample times are fixed point with this many fraction bits
+   private static final int TIME_BITS = 32;
+   // Steps start at one of this many positions between two samples
+   private static final int PHASE_BITS = 5;
+   private static final int PHASE_COUNT = 1 << PHASE_BITS;
+   // Samples of a step on either side of it
+   private static final int HALF_WIDTH = 8;
+   private static final int KERNEL_BITS = 15;
+   // The integrator loses 1/2^BASS_SHIFT of itself each sample
+   private static final int BASS_SHIFT = 9;
+
+   private static final int[][] KERNELS = createKernels();
+
+   // Samples per clock and the time of the frame's first clock, in samples
+   private final int _clockRate;
+   private long _factor;
+   private long _offset;
+
+   private final long[] _buffer;
+   private long _integrator;
+
+   /**
+    * Buffer for frames of up to maxFrameClocks clocks at clockRate, sampled at up to
+    * maxSampleRate. It starts out sampling at maxSampleRate.
+    */
+   BlipBuffer(int clockRate, int maxSampleRate, int maxFrameClocks) {
+      _clockRate = clockRate;
+      _buffer = new long[getMaxSamples(clockRate, maxSampleRate, maxFrameClocks) + 2 * HALF_WIDTH];
+      setSampleRate(maxSampleRate);
+   }
+
+   /**
+    * Changes the output rate, up to the maximum, between frames. The samples of the frames
+    * ended so far stay as they are.
+    */
+   void setSampleRate(int sampleRate) {
+      _factor = (((long) sampleRate << TIME_BITS) + _clockRate - 1) / _clockRate;
+   }
+
+   // Drops all steps and samples
+   void clear() {
+      Arrays.fill(_buffer, 0);
+      _offset = 0;
+      _integrator = 0;
+   }
+
+   // Most samples a frame of maxFrameClocks clocks can produce
+   static int getMaxSamples(int clockRate, int sampleRate, int maxFrameClocks) {
+      return (int) ((long) maxFrameClocks * sampleRate / clockRate) + 2;
+   }
+
+   /**
+    * Adds a change of the amplitude by delta at the clock of the current frame.
+    */
+   void addDelta(int clock, int delta) {
+      long time = clock * _factor + _offset;
+      int index = (int) (time >>> TIME_BITS);
+      int[] kernel = KERNELS[(int) (time >>> (TIME_BITS - PHASE_BITS)) & (PHASE_COUNT - 1)];
+
+      for (int i = 0; i < kernel.length; i++) {
+         _buffer[index + i] += (long) delta * kernel[i];
+      }
+   }
+
+   /**
+    * Ends the frame after the clocks, which makes its samples available.
+    */
+   void endFrame(int clocks) {
+      _offset += clocks * _factor;
+   }
+
+   int getSamplesAvailable() {
+      return (int) (_offset >>> TIME_BITS);
+   }
+
+   /**
+    * Reads all available samples into samples and returns how many there were.
+    */
+   int readSamples(short[] samples) {
+      int count = getSamplesAvailable();
+      long integrator = _integrator;
+
+      for (int i = 0; i < count; i++) {
+         integrator += _buffer[i];
+         int sample = (int) (integrator >> KERNEL_BITS);
+         integrator -= (long) sample << (KERNEL_BITS - BASS_SHIFT);
+
+         if (sample > Short.MAX_VALUE) {
+            sample = Short.MAX_VALUE;
+         } else if (sample < Short.MIN_VALUE) {
+            sample = Short.MIN_VALUE;
+         }
+         samples[i] = (short) sample;
+      }
+
+      _integrator = integrator;
+      _offset -= (long) count << TIME_BITS;
+
+      // The steps reaching past the samples read stay
+      System.arraycopy(_buffer, count, _buffer, 0, 2 * HALF_WIDTH);
+      Arrays.fill(_buffer, 2 * HALF_WIDTH, 2 * HALF_WIDTH + count, 0);
+
+      return count;
+   }
+
+   /**
+    * Band-limited impulses for each phase: a sinc cut off a little below the output's Nyquist
+    * frequency in a Blackman window, with taps summing up to exactly 1 << KERNEL_BITS so steps
+    * integrate to their full height.
+    */
+   private static int[][] createKernels() {
+      double cutoff = 0.9;
+      int[][] kernels = new int[PHASE_COUNT][2 * HALF_WIDTH];
+
+      for (int phase = 0; phase < PHASE_COUNT; phase++) {
+         double[] taps = new double[2 * HALF_WIDTH];
+         double sum = 0;
+         for (int i = 0; i < taps.length; i++) {
+            double x = i - (HALF_WIDTH - 1) - (double) phase / PHASE_COUNT;
+            double sinc = x == 0 ? 1 : Math.sin(Math.PI * cutoff * x) / (Math.PI * cutoff * x);
+            double window = 0.42 + 0.5 * Math.cos(Math.PI * x / HALF_WIDTH) +
+                  0.08 * Math.cos(2 * Math.PI * x / HALF_WIDTH);
+            taps[i] = sinc * window;
+            sum += taps[i];
+         }
+
+         int total = 0;
+         int largest = 0;
+         for (int i = 0; i < taps.length; i++) {
+            kernels[phase][i] = (int) Math.round(taps[i] / sum * (1 << KERNEL_BITS));
+            total += kernels[phase][i];
+            if (kernels[phase][i] > kernels[phase][largest]) {
+               largest = i;
+            }
+         }
+         kernels[phase][largest] += (1 << KERNEL_BITS) - total;
+      }
+
+      return kernels;
+   }
+}
@@ -34,6 +34,7 @@ public class FrameSequencer {
 
    private boolean _isIrqDisabled;
    private boolean _irqFlag;
+   private int[] _sequenceSteps = MODE0_SEQUENCE_STEPS;
 
    private RectangleWaveChannel _rectangleWaveChannel1;
    private RectangleWaveChannel _rectangleWaveChannel2;
@@ -65,7 +66,8 @@ public class FrameSequencer {
          _irqFlag = false;
       }
 
-      _sequencer.setSequence(mode == 0 ? MODE0_SEQUENCE_STEPS : MODE1_SEQUENCE_STEPS);
+      _sequenceSteps = mode == 0 ? MODE0_SEQUENCE_STEPS : MODE1_SEQUENCE_STEPS;
+      _sequencer.setSequence(_sequenceSteps);
 
       if (mode == 1) {
          clockSequencer();
@@ -80,6 +82,31 @@ public class FrameSequencer {
       _irqFlag = false;
    }
 
+   /**
+    * Cycles until the step setting the interrupt flag, Integer.MAX_VALUE if there's none.
+    */
+   public int getCyclesToNextIrq() {
+      if (_irqFlag) {
+         return 0;
+      }
+      if (_isIrqDisabled || _sequenceSteps != MODE0_SEQUENCE_STEPS) {
+         return Integer.MAX_VALUE;
+      }
+
+      // The interrupt step is mode 0's last one
+      int steps = MODE0_SEQUENCE_STEPS.length - 1 - _sequencer.getPosition();
+      return _divider.getCounter() + steps * _divider.getPeriod();
+   }
+
+   // Clocks from now on which don't clock the sequencer
+   public int getQuietClocks() {
+      return _divider.getQuietClocks();
+   }
+
+   public void skip(int clocks) {
+      _divider.skip(clocks);
+   }
+
    public void clock() {
       boolean shouldClockSequencer = _divider.clock();
       if (shouldClockSequencer) {
@@ -72,8 +72,9 @@ public class DeltaModulationChannel {
    }
 
    public void writeDacCounterRegister(int value) {
-      _dacCounter = value;
-      _dac = value;
+      // 7 bit load, bit 7 is unused
+      _dacCounter = value & 0x7F;
+      _dac = value & 0x7F;
    }
 
    public void writeSampleAddressRegister(int value) {
@@ -112,6 +113,31 @@ public class DeltaModulationChannel {
       _irqFlag = false;
    }
 
+   /**
+    * 0 while a sample which ends with an interrupt plays, Integer.MAX_VALUE otherwise.
+    */
+   public int getCyclesToNextIrq() {
+      if (_irqFlag || (_isIrqEnabled && !_isLoopingOn && _dmaReaderBytesRemainCounter > 0)) {
+         return 0;
+      }
+      return Integer.MAX_VALUE;
+   }
+
+   /**
+    * Timer clocks until the one which may fetch the next sample byte from memory,
+    * Integer.MAX_VALUE if there's none.
+    */
+   public int getTimerClocksToNextFetch() {
+      if (_dmaReaderBytesRemainCounter == 0 || _timer.getQuietClocks() == Integer.MAX_VALUE) {
+         return Integer.MAX_VALUE;
+      }
+
+      // The next output if the sample buffer is empty, otherwise the one after the output unit
+      // takes the buffer
+      int outputs = _sampleBufferEmptyFlag ? 1 : _outputUnitCounter + 2;
+      return _timer.getCounter() + (outputs - 1) * _timer.getPeriod();
+   }
+
    private void dmaReaderRestartSampleCounters() {
       _dmaReaderAddressCounter = (_sampleAddress << 6) + 0xC000;
       _dmaReaderBytesRemainCounter = (_sampleLength << 4) + 1;
@@ -145,6 +171,15 @@ public class DeltaModulationChannel {
       return _dac;
    }
 
+   // Timer clocks from now on which don't clock the output unit
+   public int getQuietTimerClocks() {
+      return _timer.getQuietClocks();
+   }
+
+   public void skipTimer(int clocks) {
+      _timer.skip(clocks);
+   }
+
    public void clockTimer() {
       boolean shouldOutputClock = _timer.clock();
       if (shouldOutputClock) {
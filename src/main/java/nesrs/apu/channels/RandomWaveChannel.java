@@ -110,6 +110,15 @@ public class RandomWaveChannel {
       }
    }
 
+   // Timer clocks from now on which don't clock the shift register
+   public int getQuietTimerClocks() {
+      return _timer.getQuietClocks();
+   }
+
+   public void skipTimer(int clocks) {
+      _timer.skip(clocks);
+   }
+
    public void clockLengthCounter() {
       _lengthCounter.clock();
    }
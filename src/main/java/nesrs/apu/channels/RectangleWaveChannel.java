@@ -103,6 +103,15 @@ public class RectangleWaveChannel {
       }
    }
 
+   // Timer clocks from now on which don't clock the duty cycle sequencer
+   public int getQuietTimerClocks() {
+      return _timer.getQuietClocks();
+   }
+
+   public void skipTimer(int clocks) {
+      _timer.skip(clocks);
+   }
+
    public void clockLengthCounterAndSweepUnit() {
       _lengthCounter.clock();
 
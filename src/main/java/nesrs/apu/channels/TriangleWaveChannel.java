@@ -74,6 +74,15 @@ public class TriangleWaveChannel {
       }
    }
 
+   // Timer clocks from now on which don't clock the sequencer
+   public int getQuietTimerClocks() {
+      return _timer.getQuietClocks();
+   }
+
+   public void skipTimer(int clocks) {
+      _timer.skip(clocks);
+   }
+
    public void clockLengthCounter() {
       _lengthCounter.clock();
    }
@@ -14,6 +14,10 @@ public class Divider {
       return _period;
    }
 
+   public int getCounter() {
+      return _counter;
+   }
+
    /**
     * Changing a divider's period doesn't affect its current count.
     */
@@ -41,6 +45,25 @@ public class Divider {
       return outputClock;
    }
 
+   /**
+    * Clocks from now on which produce no output clock, Integer.MAX_VALUE if none ever does.
+    */
+   public int getQuietClocks() {
+      if (_period == 0 || _counter <= 0) {
+         return Integer.MAX_VALUE;
+      }
+      return _counter - 1;
+   }
+
+   /**
+    * Clocks the divider as often at once, at most getQuietClocks() times.
+    */
+   public void skip(int clocks) {
+      if (_period != 0) {
+         _counter -= clocks;
+      }
+   }
+
    /**
     * Resetting a divider reloads its counter without generating an output clock.
     */
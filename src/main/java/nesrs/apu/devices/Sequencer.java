@@ -30,6 +30,11 @@ public class Sequencer {
       return _currentValue;
    }
 
+   // Index of the step the next clock outputs
+   public int getPosition() {
+      return _counter;
+   }
+
    public int getCurrentValue() {
       return _currentValue;
    }
@@ -21,6 +21,16 @@ public class Cartridge implements CartridgePin {
       _mapper.setIrqListener(irqListener);
    }
 
+   @Override
+   public final void setPrgBankListener(PrgBankListener prgBankListener) {
+      _mapper.setPrgBankListener(prgBankListener);
+   }
+
+   @Override
+   public final boolean isIrqClockedByPpu() {
+      return _mapper.isIrqClockedByPpu();
+   }
+
    @Override
    public final int readPrgMemory(int cpuAddress) {
       return _mapper.readPrgMemory(cpuAddress);
@@ -31,11 +41,21 @@ public class Cartridge implements CartridgePin {
       _mapper.writePrgMemory(cpuAddress, value);
    }
 
+   @Override
+   public final int[] getPrgRomBank(int cpuAddress) {
+      return _mapper.getPrgRomBank(cpuAddress);
+   }
+
    @Override
    public final int readChrMemory(int ppuAddress) {
       return _mapper.readChrMemory(ppuAddress);
    }
 
+   @Override
+   public final int readChrPattern(int ppuAddress) {
+      return _mapper.readChrPattern(ppuAddress);
+   }
+
    @Override
    public final void writeChrMemory(int ppuAddress, int value) {
       _mapper.writeChrMemory(ppuAddress, value);
@@ -9,6 +9,8 @@ public class CartridgeMemory {
 
    public final int[][] chrMem;
    public boolean isChrMemRam;
+   // Decoded rows of chrMem, see ChrPatternCache
+   public final ChrPatternCache chrPatterns;
 
    public NameTableMirroringType ntMirroringType;
 
@@ -26,6 +28,7 @@ public class CartridgeMemory {
 
       this.chrMem = chrMem;
       this.isChrMemRam = isChrMemRam;
+      this.chrPatterns = new ChrPatternCache(chrMem);
 
       this.ntMirroringType = ntMirroringType;
    }
@@ -9,9 +9,15 @@ public interface CartridgePin {
 
    int readPrgMemory(int cpuAddress);
    void writePrgMemory(int cpuAddress, int value);
+   // Backing array of the 1KB PRG ROM bank at cpuAddress ($8000-$FFFF). Valid until the
+   // next PRG bank switch.
+   int[] getPrgRomBank(int cpuAddress);
 
    int readChrMemory(int ppuAddress);
    void writeChrMemory(int ppuAddress, int value);
+   // Decoded tile row holding the pattern byte at ppuAddress, see ChrPatternCache. Counts as
+   // a read of ppuAddress for mappers watching the address lines.
+   int readChrPattern(int ppuAddress);
 
    int readNameTable(int ppuAddress, int[][] ppuNtRAM);
    void writeNameTable(int ppuAddress, int value, int[][] ppuNtRAM);
@@ -22,4 +28,9 @@ public interface CartridgePin {
 
    // /INT (kind of)
    void setIrqListener(IrqListener irqListener);
+   // PRG bank switch
+   void setPrgBankListener(PrgBankListener prgBankListener);
+   // True if IRQs are raised from PPU memory accesses (e.g. MMC3 scanline counter), so
+   // the PPU can't be run behind the CPU while it renders.
+   boolean isIrqClockedByPpu();
 }
@@ -0,0 +1,70 @@
+package nesrs.cartridge;
+
+/**
+ * The pattern rows of every 1KB CHR bank, decoded up front so the ppu fetches a tile row with
+ * one read instead of combining two bit planes pixel by pixel.
+ *
+ * A row is the 8 pixels' 2 bit palette indices, leftmost pixel in bits 0-1. The low 16 bits
+ * hold the row as it is, the high 16 bits the row flipped horizontally. Rows are kept per bank
+ * like chrMem itself, so whichever banks a mapper switches in are already decoded. CHR RAM
+ * writes must go through update() to keep the row in step.
+ */
+public final class ChrPatternCache {
+   // 64 tiles of 8 rows
+   public static final int ROWS_PER_BANK = 512;
+
+   private final int[][] _chrMem;
+   private final int[][] _rows;
+
+   public ChrPatternCache(int[][] chrMem) {
+      _chrMem = chrMem;
+      _rows = new int[chrMem.length][ROWS_PER_BANK];
+
+      for (int bank = 0; bank < chrMem.length; bank++) {
+         for (int row = 0; row < ROWS_PER_BANK; row++) {
+            updateRow(bank, row);
+         }
+      }
+   }
+
+   /**
+    * The decoded row holding the byte at bankOffset (0..1023) of the bank, from either of the
+    * tile's bit planes.
+    */
+   public int getRow(int bank, int bankOffset) {
+      return _rows[bank][toRowIndex(bankOffset)];
+   }
+
+   // Must be called after the byte at bankOffset of the bank was written
+   public void update(int bank, int bankOffset) {
+      updateRow(bank, toRowIndex(bankOffset));
+   }
+
+   public static int decodeRow(int tileDataLow, int tileDataHigh) {
+      int row = 0;
+      int flippedRow = 0;
+
+      for (int x = 0; x < 8; x++) {
+         int bit = 7 - x;
+         int pixel = ((tileDataLow >> bit) & 0x1) | (((tileDataHigh >> bit) & 0x1) << 1);
+
+         row |= pixel << (x << 1);
+         flippedRow |= pixel << (bit << 1);
+      }
+
+      return (flippedRow << 16) | row;
+   }
+
+   private void updateRow(int bank, int rowIndex) {
+      // Tile's low plane at bytes 0-7, high plane at bytes 8-15
+      int tileDataLowOffset = ((rowIndex >> 3) << 4) | (rowIndex & 0x7);
+
+      _rows[bank][rowIndex] = decodeRow(
+            _chrMem[bank][tileDataLowOffset],
+            _chrMem[bank][tileDataLowOffset + 8]);
+   }
+
+   private static int toRowIndex(int bankOffset) {
+      return ((bankOffset >> 4) << 3) | (bankOffset & 0x7);
+   }
+}
@@ -0,0 +1,5 @@
+package nesrs.cartridge;
+
+public interface PrgBankListener {
+   void handlePrgBankSwitch();
+}
@@ -3,6 +3,7 @@ package nesrs.cartridge.mappers;
 import nesrs.cartridge.CartridgeMemory;
 import nesrs.cartridge.NameTableMirroring;
 import nesrs.cartridge.NameTableMirroring.NameTableIndex;
+import nesrs.cartridge.PrgBankListener;
 import nesrs.cpu.IrqListener;
 
 public abstract class BaseMapper implements Mapper {
@@ -14,6 +15,7 @@ public abstract class BaseMapper implements Mapper {
    protected final int[] _chrMemMap = new int[8];
 
    protected IrqListener _irqListener;
+   private PrgBankListener _prgBankListener;
 
    public BaseMapper(CartridgeMemory cartridgeMemory) {
       _cartridgeMemory = cartridgeMemory;
@@ -32,6 +34,25 @@ public abstract class BaseMapper implements Mapper {
       _irqListener = irqListener;
    }
 
+   @Override
+   public void setPrgBankListener(PrgBankListener prgBankListener) {
+      _prgBankListener = prgBankListener;
+   }
+
+   /**
+    * Must be called by the mappers after _prgRomMap changed.
+    */
+   protected void prgBanksSwitched() {
+      if (_prgBankListener != null) {
+         _prgBankListener.handlePrgBankSwitch();
+      }
+   }
+
+   @Override
+   public boolean isIrqClockedByPpu() {
+      return false;
+   }
+
    public CartridgeMemory getCartridgeMemory() {
       return _cartridgeMemory;
    }
@@ -65,17 +86,30 @@ public abstract class BaseMapper implements Mapper {
       }
    }
 
+   @Override
+   public int[] getPrgRomBank(int cpuAddress) {
+      return _cartridgeMemory.prgRom[_prgRomMap[(cpuAddress & 0x7FFF) >> 10]];
+   }
+
    @Override
    public int readChrMemory(int ppuAddress) {
       return _cartridgeMemory.chrMem[_chrMemMap[(ppuAddress & 0x1FFF) >> 10]] // 8
                                     [ppuAddress & 0x03FF]; // 1KB
    }
 
+   @Override
+   public int readChrPattern(int ppuAddress) {
+      return _cartridgeMemory.chrPatterns.getRow(
+            _chrMemMap[(ppuAddress & 0x1FFF) >> 10], // 8
+            ppuAddress & 0x03FF); // 1KB
+   }
+
    @Override
    public void writeChrMemory(int ppuAddress, int value) {
       if (_cartridgeMemory.isChrMemRam) {
-         _cartridgeMemory.chrMem[_chrMemMap[(ppuAddress & 0x1FFF) >> 10]] // 3 bits -> 0..7
-                                [ppuAddress & 0x03FF] = value;
+         int bank = _chrMemMap[(ppuAddress & 0x1FFF) >> 10]; // 3 bits -> 0..7
+         _cartridgeMemory.chrMem[bank][ppuAddress & 0x03FF] = value;
+         _cartridgeMemory.chrPatterns.update(bank, ppuAddress & 0x03FF);
       }
    }
 
@@ -123,6 +123,7 @@ public class Mapper001 extends BaseMapper {
             _prgRomMap[i] = (bankNumberIndex + (i - 16)) & (_cartridgeMemory.prgRom.length - 1);
          }
       }
+      prgBanksSwitched();
 
       // CHR MEM
       int chrRomBankMode = (_controlRegister & 0x10) >> 4;
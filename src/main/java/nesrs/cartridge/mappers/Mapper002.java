@@ -25,6 +25,7 @@ public class Mapper002 extends BaseMapper {
          for (int i = 0; i < 16; i++) {
             _prgRomMap[i] = (bankNumberIndex + i) & (_cartridgeMemory.prgRom.length - 1);
          }
+         prgBanksSwitched();
 
       } else {
          super.writePrgMemory(cpuAddress, value);
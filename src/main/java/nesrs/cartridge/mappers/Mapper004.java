@@ -25,6 +25,12 @@ public class Mapper004 extends BaseMapper {
       }
    }
 
+   @Override
+   public boolean isIrqClockedByPpu() {
+      // Scanline counter is clocked by A12 rising edges
+      return true;
+   }
+
    @Override
    public void writePrgMemory(int cpuAddress, int value) {
       if (0x8000 <= cpuAddress && cpuAddress <= 0xFFFF) {
@@ -105,6 +111,18 @@ public class Mapper004 extends BaseMapper {
       return value;
    }
 
+   @Override
+   public int readChrPattern(int ppuAddress) {
+      int row = super.readChrPattern(ppuAddress);
+
+      if ((_ppuAddress & 0x1000) == 0 && (ppuAddress & 0x1000) != 0) {
+         updateIrqCounter();
+      }
+      _ppuAddress = ppuAddress;
+
+      return row;
+   }
+
    private void updateBanks() {
       // PRG
       if ((_bankSelect & 0x40) == 0) {
@@ -159,6 +177,7 @@ public class Mapper004 extends BaseMapper {
       for (int i = 0; i < 32; i++) {
          _prgRomMap[i] = _prgRomMap[i] & (_cartridgeMemory.prgRom.length - 1);
       }
+      prgBanksSwitched();
 
       // CHR
       if ((_bankSelect & 0x80) == 0) {
@@ -24,6 +24,7 @@ public class Mapper066 extends BaseMapper {
          for (int i = 0; i < 32; i++) {
             _prgRomMap[i] = (prgBankNumberIndex + i) & (_cartridgeMemory.prgRom.length - 1);
          }
+         prgBanksSwitched();
 
        } else {
          super.writePrgMemory(cpuAddress, value);
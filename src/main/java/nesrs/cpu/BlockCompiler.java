@@ -0,0 +1,932 @@
+package nesrs.cpu;
+
+import static nesrs.cpu.ClassFileWriter.ALOAD;
+import static nesrs.cpu.ClassFileWriter.DUP;
+import static nesrs.cpu.ClassFileWriter.GETFIELD;
+import static nesrs.cpu.ClassFileWriter.GOTO;
+import static nesrs.cpu.ClassFileWriter.IADD;
+import static nesrs.cpu.ClassFileWriter.IAND;
+import static nesrs.cpu.ClassFileWriter.IFEQ;
+import static nesrs.cpu.ClassFileWriter.IFNE;
+import static nesrs.cpu.ClassFileWriter.IF_ICMPEQ;
+import static nesrs.cpu.ClassFileWriter.IF_ICMPLT;
+import static nesrs.cpu.ClassFileWriter.ILOAD;
+import static nesrs.cpu.ClassFileWriter.INVOKESPECIAL;
+import static nesrs.cpu.ClassFileWriter.INVOKEVIRTUAL;
+import static nesrs.cpu.ClassFileWriter.IOR;
+import static nesrs.cpu.ClassFileWriter.IRETURN;
+import static nesrs.cpu.ClassFileWriter.ISHL;
+import static nesrs.cpu.ClassFileWriter.ISHR;
+import static nesrs.cpu.ClassFileWriter.ISTORE;
+import static nesrs.cpu.ClassFileWriter.PUTFIELD;
+import static nesrs.cpu.ClassFileWriter.RETURN;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import nesrs.cpu.ClassFileWriter.Code;
+import nesrs.cpu.ClassFileWriter.Label;
+
+/**
+ * Compiles blocks of 6502 code to hidden classes implementing CompiledBlock.
+ *
+ * A block is the straight run of ops from its start address to the first jump, return, op that
+ * may clear the I flag or op that can't be compiled, within one page. Not taken branches fall
+ * through to the next op, and branches and jumps to an op of the same block stay in the
+ * generated method, so small loops run in it until the cycle budget runs out. Each op becomes
+ * a call of its Cpu handler with the address resolved inline (constant for immediate, zero
+ * page and absolute addressing), and its OP_CYCLES, page crossing and branch cycles are added
+ * to a local. Ops whose address is only known at run time first check it's plain RAM or ROM
+ * and otherwise leave the block, so the interpreter runs them; ops with a constant address
+ * that isn't aren't compiled at all.
+ */
+final class BlockCompiler {
+
+   // Keeps the generated method well below the size the JIT is willing to compile
+   private static final int MAX_OPS = 64;
+
+   // Kinds of ops, the addressing mode for those calling a handler with an address
+   private static final int IMPL = 1;            // handler()
+   private static final int ACC = 2;             // _A = handler(_A)
+   private static final int REG_X = 3;           // _X = handler(_X)
+   private static final int REG_Y = 4;           // _Y = handler(_Y)
+   private static final int CLEAR_FLAG = 5;
+   private static final int SET_FLAG = 6;
+   private static final int NOP = 7;
+   private static final int IMM = 8;
+   private static final int ZP = 9;
+   private static final int ZPX = 10;
+   private static final int ZPY = 11;
+   private static final int ABS = 12;
+   private static final int ABSX = 13;
+   private static final int ABSY = 14;
+   private static final int INDX = 15;
+   private static final int INDY = 16;
+   private static final int BRANCH_IF_CLEAR = 17;
+   private static final int BRANCH_IF_SET = 18;
+   private static final int JMP = 19;
+   private static final int JMP_IND = 20;
+   private static final int JSR = 21;
+   private static final int PC_FROM_STACK = 22;  // handler(), which pops PC
+   private static final int KIND_MASK = 0xFF;
+   // Additional cycle when the indexed address crosses a page
+   private static final int PAGE_CYCLE = 0x100;
+
+   private static final int[] KINDS = new int[256];
+   private static final String[] HANDLERS = new String[256];
+   private static final int[] FLAGS = new int[256];
+
+   // Handlers writing their address
+   private static final Set<String> WRITING_HANDLERS = new HashSet<String>(Arrays.asList(
+         "opSTA", "opSTX", "opSTY", "opAAX",
+         "opASL", "opLSR", "opROL", "opROR", "opINC", "opDEC",
+         "opDCP", "opISC", "opSLO", "opRLA", "opSRE", "opRRA"));
+   // Handlers pushing or popping
+   private static final Set<String> STACK_HANDLERS = new HashSet<String>(Arrays.asList(
+         "opPHA", "opPHP", "opPLA", "opPLP", "opJSR", "opRTI", "opRTS"));
+
+   // Locals of CompiledBlock.execute(Cpu cpu, Dynarec dynarec, int cycleBudget)
+   private static final int CPU = 1;
+   private static final int DYNAREC = 2;
+   private static final int CYCLE_BUDGET = 3;
+   private static final int CYCLES = 4;
+   private static final int ADDRESS = 5;
+   private static final int BASE_ADDRESS = 6;
+   private static final int OPS = 7;
+   private static final int MAX_LOCALS = 8;
+   private static final int MAX_STACK = 6;
+
+   private static final String CPU_CLASS = "nesrs/cpu/Cpu";
+   private static final String DYNAREC_CLASS = "nesrs/cpu/Dynarec";
+   private static final String EXECUTE_DESCRIPTOR = "(Lnesrs/cpu/Cpu;Lnesrs/cpu/Dynarec;I)I";
+
+   static {
+      /*ADC*/
+      define(0x69, IMM, "opADC");
+      define(0x65, ZP, "opADC");
+      define(0x75, ZPX, "opADC");
+      define(0x6D, ABS, "opADC");
+      define(0x7D, ABSX | PAGE_CYCLE, "opADC");
+      define(0x79, ABSY | PAGE_CYCLE, "opADC");
+      define(0x61, INDX, "opADC");
+      define(0x71, INDY | PAGE_CYCLE, "opADC");
+
+      /*AND*/
+      define(0x29, IMM, "opAND");
+      define(0x25, ZP, "opAND");
+      define(0x35, ZPX, "opAND");
+      define(0x2D, ABS, "opAND");
+      define(0x3D, ABSX | PAGE_CYCLE, "opAND");
+      define(0x39, ABSY | PAGE_CYCLE, "opAND");
+      define(0x21, INDX, "opAND");
+      define(0x31, INDY | PAGE_CYCLE, "opAND");
+
+      /*ASL*/
+      define(0x0A, ACC, "opShiftLeft");
+      define(0x06, ZP, "opASL");
+      define(0x16, ZPX, "opASL");
+      define(0x0E, ABS, "opASL");
+      define(0x1E, ABSX, "opASL");
+
+      /*BCC*/
+      define(0x90, BRANCH_IF_CLEAR, Cpu.C_FLAG);
+
+      /*BCS*/
+      define(0xB0, BRANCH_IF_SET, Cpu.C_FLAG);
+
+      /*BEQ*/
+      define(0xF0, BRANCH_IF_SET, Cpu.Z_FLAG);
+
+      /*BIT*/
+      define(0x24, ZP, "opBIT");
+      define(0x2C, ABS, "opBIT");
+
+      /*BMI*/
+      define(0x30, BRANCH_IF_SET, Cpu.N_FLAG);
+
+      /*BNE*/
+      define(0xD0, BRANCH_IF_CLEAR, Cpu.Z_FLAG);
+
+      /*BPL*/
+      define(0x10, BRANCH_IF_CLEAR, Cpu.N_FLAG);
+
+      /*BRK*/
+      // Left to the interpreter
+
+      /*BVC*/
+      define(0x50, BRANCH_IF_CLEAR, Cpu.V_FLAG);
+
+      /*BVS*/
+      define(0x70, BRANCH_IF_SET, Cpu.V_FLAG);
+
+      /*CLC*/
+      define(0x18, CLEAR_FLAG, Cpu.C_FLAG);
+
+      /*CLD*/
+      define(0xD8, CLEAR_FLAG, Cpu.D_FLAG);
+
+      /*CLI*/
+      define(0x58, CLEAR_FLAG, Cpu.I_FLAG);
+
+      /*CLV*/
+      define(0xB8, CLEAR_FLAG, Cpu.V_FLAG);
+
+      /*CMP*/
+      define(0xC9, IMM, "opCMP");
+      define(0xC5, ZP, "opCMP");
+      define(0xD5, ZPX, "opCMP");
+      define(0xCD, ABS, "opCMP");
+      define(0xDD, ABSX | PAGE_CYCLE, "opCMP");
+      define(0xD9, ABSY | PAGE_CYCLE, "opCMP");
+      define(0xC1, INDX, "opCMP");
+      define(0xD1, INDY | PAGE_CYCLE, "opCMP");
+
+      /*CPX*/
+      define(0xE0, IMM, "opCPX");
+      define(0xE4, ZP, "opCPX");
+      define(0xEC, ABS, "opCPX");
+
+      /*CPY*/
+      define(0xC0, IMM, "opCPY");
+      define(0xC4, ZP, "opCPY");
+      define(0xCC, ABS, "opCPY");
+
+      /*DEC*/
+      define(0xC6, ZP, "opDEC");
+      define(0xD6, ZPX, "opDEC");
+      define(0xCE, ABS, "opDEC");
+      define(0xDE, ABSX, "opDEC");
+
+      /*DEX*/
+      define(0xCA, REG_X, "opDecrease");
+
+      /*DEY*/
+      define(0x88, REG_Y, "opDecrease");
+
+      /*EOR*/
+      define(0x49, IMM, "opEOR");
+      define(0x45, ZP, "opEOR");
+      define(0x55, ZPX, "opEOR");
+      define(0x4D, ABS, "opEOR");
+      define(0x5D, ABSX | PAGE_CYCLE, "opEOR");
+      define(0x59, ABSY | PAGE_CYCLE, "opEOR");
+      define(0x41, INDX, "opEOR");
+      define(0x51, INDY | PAGE_CYCLE, "opEOR");
+
+      /*INC*/
+      define(0xE6, ZP, "opINC");
+      define(0xF6, ZPX, "opINC");
+      define(0xEE, ABS, "opINC");
+      define(0xFE, ABSX, "opINC");
+
+      /*INX*/
+      define(0xE8, REG_X, "opIncrease");
+
+      /*INY*/
+      define(0xC8, REG_Y, "opIncrease");
+
+      /*JMP*/
+      define(0x4C, JMP, null);
+      define(0x6C, JMP_IND, null);
+
+      /*JSR*/
+      define(0x20, JSR, "opJSR");
+
+      /*LDA*/
+      define(0xA9, IMM, "opLDA");
+      define(0xA5, ZP, "opLDA");
+      define(0xB5, ZPX, "opLDA");
+      define(0xAD, ABS, "opLDA");
+      define(0xBD, ABSX | PAGE_CYCLE, "opLDA");
+      define(0xB9, ABSY | PAGE_CYCLE, "opLDA");
+      define(0xA1, INDX, "opLDA");
+      define(0xB1, INDY | PAGE_CYCLE, "opLDA");
+
+      /*LDX*/
+      define(0xA2, IMM, "opLDX");
+      define(0xA6, ZP, "opLDX");
+      define(0xB6, ZPY, "opLDX");
+      define(0xAE, ABS, "opLDX");
+      define(0xBE, ABSY | PAGE_CYCLE, "opLDX");
+
+      /*LDY*/
+      define(0xA0, IMM, "opLDY");
+      define(0xA4, ZP, "opLDY");
+      define(0xB4, ZPX, "opLDY");
+      define(0xAC, ABS, "opLDY");
+      define(0xBC, ABSX | PAGE_CYCLE, "opLDY");
+
+      /*LSR*/
+      define(0x4A, ACC, "opShiftRight");
+      define(0x46, ZP, "opLSR");
+      define(0x56, ZPX, "opLSR");
+      define(0x4E, ABS, "opLSR");
+      define(0x5E, ABSX, "opLSR");
+
+      /*NOP*/
+      define(0xEA, NOP, null);
+
+      /*ORA*/
+      define(0x09, IMM, "opORA");
+      define(0x05, ZP, "opORA");
+      define(0x15, ZPX, "opORA");
+      define(0x0D, ABS, "opORA");
+      define(0x1D, ABSX | PAGE_CYCLE, "opORA");
+      define(0x19, ABSY | PAGE_CYCLE, "opORA");
+      define(0x01, INDX, "opORA");
+      define(0x11, INDY | PAGE_CYCLE, "opORA");
+
+      /*PHA*/
+      define(0x48, IMPL, "opPHA");
+
+      /*PHP*/
+      define(0x08, IMPL, "opPHP");
+
+      /*PLA*/
+      define(0x68, IMPL, "opPLA");
+
+      /*PLP*/
+      define(0x28, IMPL, "opPLP");
+
+      /*ROL*/
+      define(0x2A, ACC, "opRotateLeft");
+      define(0x26, ZP, "opROL");
+      define(0x36, ZPX, "opROL");
+      define(0x2E, ABS, "opROL");
+      define(0x3E, ABSX, "opROL");
+
+      /*ROR*/
+      define(0x6A, ACC, "opRotateRight");
+      define(0x66, ZP, "opROR");
+      define(0x76, ZPX, "opROR");
+      define(0x6E, ABS, "opROR");
+      define(0x7E, ABSX, "opROR");
+
+      /*RTI*/
+      define(0x40, PC_FROM_STACK, "opRTI");
+
+      /*RTS*/
+      define(0x60, PC_FROM_STACK, "opRTS");
+
+      /*SBC*/
+      define(0xE9, IMM, "opSBC");
+      define(0xE5, ZP, "opSBC");
+      define(0xF5, ZPX, "opSBC");
+      define(0xED, ABS, "opSBC");
+      define(0xFD, ABSX | PAGE_CYCLE, "opSBC");
+      define(0xF9, ABSY | PAGE_CYCLE, "opSBC");
+      define(0xE1, INDX, "opSBC");
+      define(0xF1, INDY | PAGE_CYCLE, "opSBC");
+
+      /*SEC*/
+      define(0x38, SET_FLAG, Cpu.C_FLAG);
+
+      /*SED*/
+      define(0xF8, SET_FLAG, Cpu.D_FLAG);
+
+      /*SEI*/
+      define(0x78, SET_FLAG, Cpu.I_FLAG);
+
+      /*STA*/
+      define(0x85, ZP, "opSTA");
+      define(0x95, ZPX, "opSTA");
+      define(0x8D, ABS, "opSTA");
+      define(0x9D, ABSX, "opSTA");
+      define(0x99, ABSY, "opSTA");
+      define(0x81, INDX, "opSTA");
+      define(0x91, INDY, "opSTA");
+
+      /*STX*/
+      define(0x86, ZP, "opSTX");
+      define(0x96, ZPY, "opSTX");
+      define(0x8E, ABS, "opSTX");
+
+      /*STY*/
+      define(0x84, ZP, "opSTY");
+      define(0x94, ZPX, "opSTY");
+      define(0x8C, ABS, "opSTY");
+
+      /*TAX*/
+      define(0xAA, IMPL, "opTAX");
+
+      /*TAY*/
+      define(0xA8, IMPL, "opTAY");
+
+      /*TSX*/
+      define(0xBA, IMPL, "opTSX");
+
+      /*TXA*/
+      define(0x8A, IMPL, "opTXA");
+
+      /*TXS*/
+      define(0x9A, IMPL, "opTXS");
+
+      /*TYA*/
+      define(0x98, IMPL, "opTYA");
+
+      /*DOP*/
+      define(0x04, ZP, "opDOP");
+      define(0x14, ZPX, "opDOP");
+      define(0x34, ZPX, "opDOP");
+      define(0x44, ZP, "opDOP");
+      define(0x54, ZPX, "opDOP");
+      define(0x64, ZP, "opDOP");
+      define(0x74, ZPX, "opDOP");
+      define(0x80, IMM, "opDOP");
+      define(0x82, IMM, "opDOP");
+      define(0x89, IMM, "opDOP");
+      define(0xC2, IMM, "opDOP");
+      define(0xD4, ZPX, "opDOP");
+      define(0xE2, IMM, "opDOP");
+      define(0xF4, ZPX, "opDOP");
+
+      /*TOP*/
+      define(0x0C, ABS, "opTOP");
+      define(0x1C, ABSX | PAGE_CYCLE, "opTOP");
+      define(0x3C, ABSX | PAGE_CYCLE, "opTOP");
+      define(0x5C, ABSX | PAGE_CYCLE, "opTOP");
+      define(0x7C, ABSX | PAGE_CYCLE, "opTOP");
+      define(0xDC, ABSX | PAGE_CYCLE, "opTOP");
+      define(0xFC, ABSX | PAGE_CYCLE, "opTOP");
+
+      /*LAX*/
+      define(0xA7, ZP, "opLAX");
+      define(0xB7, ZPY, "opLAX");
+      define(0xAF, ABS, "opLAX");
+      define(0xBF, ABSY, "opLAX");
+      define(0xA3, INDX, "opLAX");
+      define(0xB3, INDY | PAGE_CYCLE, "opLAX");
+
+      /*AAX*/
+      define(0x87, ZP, "opAAX");
+      define(0x97, ZPY, "opAAX");
+      define(0x83, INDX, "opAAX");
+      define(0x8F, ABS, "opAAX");
+
+      /*SBC*/
+      define(0xEB, IMM, "opSBC");
+
+      /*DCP*/
+      define(0xC7, ZP, "opDCP");
+      define(0xD7, ZPX, "opDCP");
+      define(0xCF, ABS, "opDCP");
+      define(0xDF, ABSX, "opDCP");
+      define(0xDB, ABSY, "opDCP");
+      define(0xC3, INDX, "opDCP");
+      define(0xD3, INDY, "opDCP");
+
+      /*ISC*/
+      define(0xE7, ZP, "opISC");
+      define(0xF7, ZPX, "opISC");
+      define(0xEF, ABS, "opISC");
+      define(0xFF, ABSX, "opISC");
+      define(0xFB, ABSY, "opISC");
+      define(0xE3, INDX, "opISC");
+      define(0xF3, INDY, "opISC");
+
+      /*SLO*/
+      define(0x07, ZP, "opSLO");
+      define(0x17, ZPX, "opSLO");
+      define(0x0F, ABS, "opSLO");
+      define(0x1F, ABSX, "opSLO");
+      define(0x1B, ABSY, "opSLO");
+      define(0x03, INDX, "opSLO");
+      define(0x13, INDY, "opSLO");
+
+      /*RLA*/
+      define(0x27, ZP, "opRLA");
+      define(0x37, ZPX, "opRLA");
+      define(0x2F, ABS, "opRLA");
+      define(0x3F, ABSX, "opRLA");
+      define(0x3B, ABSY, "opRLA");
+      define(0x23, INDX, "opRLA");
+      define(0x33, INDY, "opRLA");
+
+      /*SRE*/
+      define(0x47, ZP, "opSRE");
+      define(0x57, ZPX, "opSRE");
+      define(0x4F, ABS, "opSRE");
+      define(0x5F, ABSX, "opSRE");
+      define(0x5B, ABSY, "opSRE");
+      define(0x43, INDX, "opSRE");
+      define(0x53, INDY, "opSRE");
+
+      /*RRA*/
+      define(0x67, ZP, "opRRA");
+      define(0x77, ZPX, "opRRA");
+      define(0x6F, ABS, "opRRA");
+      define(0x7F, ABSX, "opRRA");
+      define(0x7B, ABSY, "opRRA");
+      define(0x63, INDX, "opRRA");
+      define(0x73, INDY, "opRRA");
+   }
+
+   private static void define(int opCode, int kind, String handler) {
+      KINDS[opCode] = kind;
+      HANDLERS[opCode] = handler;
+   }
+
+   private static void define(int opCode, int kind, int flag) {
+      KINDS[opCode] = kind;
+      FLAGS[opCode] = flag;
+   }
+
+   private final Dynarec _dynarec;
+   private final MethodHandles.Lookup _lookup = MethodHandles.lookup();
+
+   BlockCompiler(Dynarec dynarec) {
+      _dynarec = dynarec;
+   }
+
+   /**
+    * Compiles the block starting at pc, whose page is backed by memory from offset on. Returns
+    * null if not even the op at pc can be compiled.
+    */
+   CompiledBlock compile(int[] memory, int offset, int pc) {
+      int[] pcs = new int[MAX_OPS + 1];
+      int count = 0;
+      int pageEnd = (pc & 0xFF00) + 0x100;
+      int address = pc;
+
+      while (count < MAX_OPS) {
+         int opCode = memory[offset | (address & 0xFF)];
+         int kind = KINDS[opCode] & KIND_MASK;
+         int length = getLength(kind);
+         if (kind == 0 || address + length > pageEnd
+               || !isCompilable(opCode, getOperand(memory, offset, address, length))) {
+            break;
+         }
+
+         pcs[count++] = address;
+         address += length;
+         if (kind == JMP || kind == JMP_IND || kind == JSR || kind == PC_FROM_STACK) {
+            break;
+         }
+         // CLI, PLP: an irq raised while I was set must be taken right after them
+         if (opCode == 0x58 || opCode == 0x28) {
+            break;
+         }
+      }
+
+      if (count == 0) {
+         return null;
+      }
+      pcs[count] = address;
+
+      ClassFileWriter writer = new ClassFileWriter(
+            "nesrs/cpu/Block" + Integer.toHexString(pc), "java/lang/Object", "nesrs/cpu/CompiledBlock");
+
+      Code constructor = writer.newCode();
+      constructor.local(ALOAD, 0);
+      constructor.method(INVOKESPECIAL, "java/lang/Object", "<init>", "()V");
+      constructor.op(RETURN);
+      writer.addMethod(ClassFileWriter.ACC_PUBLIC, "<init>", "()V", 1, 1, constructor);
+
+      Code code = writer.newCode();
+      code.push(0);
+      code.local(ISTORE, CYCLES);
+      code.push(0);
+      code.local(ISTORE, ADDRESS);
+      code.push(0);
+      code.local(ISTORE, BASE_ADDRESS);
+      code.push(0);
+      code.local(ISTORE, OPS);
+
+      Label[] labels = new Label[count];
+      for (int i = 0; i < count; i++) {
+         labels[i] = code.newLabel();
+      }
+      boolean leftBlock = false;
+      for (int i = 0; i < count; i++) {
+         int opCode = memory[offset | (pcs[i] & 0xFF)];
+         int operand = getOperand(memory, offset, pcs[i], pcs[i + 1] - pcs[i]);
+
+         code.mark(labels[i]);
+         Label withinBudget = code.newLabel();
+         code.local(ILOAD, CYCLES);
+         code.local(ILOAD, CYCLE_BUDGET);
+         code.jump(IF_ICMPLT, withinBudget);
+         emitExit(code, pcs[i]);
+         code.mark(withinBudget);
+
+         leftBlock = emitOp(code, opCode, operand, pcs, i, labels);
+      }
+      if (!leftBlock) {
+         emitExit(code, pcs[count]);
+      }
+      writer.addMethod(ClassFileWriter.ACC_PUBLIC, "execute", EXECUTE_DESCRIPTOR, MAX_STACK, MAX_LOCALS, code);
+
+      try {
+         Class<?> blockClass = _lookup.defineHiddenClass(writer.toByteArray(), true).lookupClass();
+         return (CompiledBlock) blockClass.getDeclaredConstructor().newInstance();
+      } catch (ReflectiveOperationException e) {
+         throw new IllegalStateException("Failed to compile block at " + Integer.toHexString(pc), e);
+      }
+   }
+
+   private static int getLength(int kind) {
+      switch (kind) {
+      case IMM:
+      case ZP:
+      case ZPX:
+      case ZPY:
+      case INDX:
+      case INDY:
+      case BRANCH_IF_CLEAR:
+      case BRANCH_IF_SET:
+         return 2;
+      case ABS:
+      case ABSX:
+      case ABSY:
+      case JMP:
+      case JMP_IND:
+      case JSR:
+         return 3;
+      default:
+         return 1;
+      }
+   }
+
+   private static int getOperand(int[] memory, int offset, int address, int length) {
+      if (length == 1) {
+         return 0;
+      }
+      int low = memory[offset | ((address + 1) & 0xFF)];
+      if (length == 2) {
+         return low;
+      }
+      return (memory[offset | ((address + 2) & 0xFF)] << 8) | low;
+   }
+
+   private boolean isCompilable(int opCode, int operand) {
+      int kind = KINDS[opCode] & KIND_MASK;
+      String handler = HANDLERS[opCode];
+
+      if (handler != null && STACK_HANDLERS.contains(handler) && !_dynarec.canWrite(0x0100)) {
+         return false;
+      }
+
+      switch (kind) {
+      case ZP:
+      case ZPX:
+      case ZPY:
+         return canAccess(handler, 0x0000);
+      case ABS:
+         return canAccess(handler, operand);
+      case INDX:
+      case INDY:
+         // The pointer, the address itself is checked when the op runs
+         return _dynarec.canRead(0x0000);
+      case JMP_IND:
+         return _dynarec.canRead(operand) && _dynarec.canRead(operand & 0xFF00);
+      default:
+         return true;
+      }
+   }
+
+   private boolean canAccess(String handler, int address) {
+      if (WRITING_HANDLERS.contains(handler)) {
+         return _dynarec.canWrite(address);
+      }
+      return _dynarec.canRead(address);
+   }
+
+   /**
+    * Emits op i, and returns whether it always leaves the block.
+    */
+   private boolean emitOp(Code code, int opCode, int operand, int[] pcs, int i, Label[] labels) {
+      int pc = pcs[i];
+      int kind = KINDS[opCode] & KIND_MASK;
+      boolean pageCycle = (KINDS[opCode] & PAGE_CYCLE) != 0;
+      String handler = HANDLERS[opCode];
+      String access = WRITING_HANDLERS.contains(handler) ? "canWrite" : "canRead";
+
+      switch (kind) {
+      case IMM:
+      case ZP:
+      case ZPX:
+      case ZPY:
+      case ABS:
+         emitOpCycles(code, opCode);
+         code.local(ALOAD, CPU);
+         if (kind == IMM) {
+            code.push(pc + 1);
+         } else if (kind == ZPX || kind == ZPY) {
+            code.push(operand);
+            code.local(ALOAD, CPU);
+            code.field(GETFIELD, CPU_CLASS, kind == ZPX ? "_X" : "_Y", "I");
+            code.op(IADD);
+            code.push(0xFF);
+            code.op(IAND);
+         } else {
+            code.push(operand);
+         }
+         code.method(INVOKEVIRTUAL, CPU_CLASS, handler, "(I)V");
+         return false;
+
+      case ABSX:
+      case ABSY:
+         code.push(operand);
+         code.local(ALOAD, CPU);
+         code.field(GETFIELD, CPU_CLASS, kind == ABSX ? "_X" : "_Y", "I");
+         code.op(IADD);
+         code.push(0xFFFF);
+         code.op(IAND);
+         code.local(ISTORE, ADDRESS);
+         emitAddressCheck(code, access, pc);
+         if (pageCycle) {
+            emitPageCycle(code, operand);
+         }
+         emitHandlerCall(code, opCode);
+         return false;
+
+      case INDX:
+         // Pointer
+         code.push(operand);
+         code.local(ALOAD, CPU);
+         code.field(GETFIELD, CPU_CLASS, "_X", "I");
+         code.op(IADD);
+         code.push(0xFF);
+         code.op(IAND);
+         code.local(ISTORE, ADDRESS);
+         // High and low byte
+         code.local(ALOAD, CPU);
+         code.local(ILOAD, ADDRESS);
+         code.push(1);
+         code.op(IADD);
+         code.push(0xFF);
+         code.op(IAND);
+         emitReadMemory(code);
+         code.push(8);
+         code.op(ISHL);
+         code.local(ALOAD, CPU);
+         code.local(ILOAD, ADDRESS);
+         emitReadMemory(code);
+         code.op(IOR);
+         code.local(ISTORE, ADDRESS);
+         emitAddressCheck(code, access, pc);
+         emitHandlerCall(code, opCode);
+         return false;
+
+      case INDY:
+         code.local(ALOAD, CPU);
+         code.push((operand + 1) & 0xFF);
+         emitReadMemory(code);
+         code.push(8);
+         code.op(ISHL);
+         code.local(ALOAD, CPU);
+         code.push(operand);
+         emitReadMemory(code);
+         code.op(IOR);
+         code.local(ISTORE, BASE_ADDRESS);
+         code.local(ILOAD, BASE_ADDRESS);
+         code.local(ALOAD, CPU);
+         code.field(GETFIELD, CPU_CLASS, "_Y", "I");
+         code.op(IADD);
+         code.push(0xFFFF);
+         code.op(IAND);
+         code.local(ISTORE, ADDRESS);
+         emitAddressCheck(code, access, pc);
+         if (pageCycle) {
+            Label samePage = code.newLabel();
+            code.local(ILOAD, ADDRESS);
+            code.push(8);
+            code.op(ISHR);
+            code.local(ILOAD, BASE_ADDRESS);
+            code.push(8);
+            code.op(ISHR);
+            code.jump(IF_ICMPEQ, samePage);
+            code.iinc(CYCLES, 1);
+            code.mark(samePage);
+         }
+         emitHandlerCall(code, opCode);
+         return false;
+
+      case IMPL:
+         emitOpCycles(code, opCode);
+         code.local(ALOAD, CPU);
+         code.method(INVOKEVIRTUAL, CPU_CLASS, handler, "()V");
+         return false;
+
+      case ACC:
+      case REG_X:
+      case REG_Y: {
+         String register = kind == ACC ? "_A" : kind == REG_X ? "_X" : "_Y";
+         emitOpCycles(code, opCode);
+         code.local(ALOAD, CPU);
+         code.local(ALOAD, CPU);
+         code.local(ALOAD, CPU);
+         code.field(GETFIELD, CPU_CLASS, register, "I");
+         code.method(INVOKEVIRTUAL, CPU_CLASS, handler, "(I)I");
+         code.field(PUTFIELD, CPU_CLASS, register, "I");
+         return false;
+      }
+
+      case CLEAR_FLAG:
+      case SET_FLAG:
+         emitOpCycles(code, opCode);
+         code.local(ALOAD, CPU);
+         code.op(DUP);
+         code.field(GETFIELD, CPU_CLASS, "_P", "I");
+         if (kind == CLEAR_FLAG) {
+            code.push(~FLAGS[opCode]);
+            code.op(IAND);
+         } else {
+            code.push(FLAGS[opCode]);
+            code.op(IOR);
+         }
+         code.field(PUTFIELD, CPU_CLASS, "_P", "I");
+         return false;
+
+      case NOP:
+         emitOpCycles(code, opCode);
+         return false;
+
+      case BRANCH_IF_CLEAR:
+      case BRANCH_IF_SET: {
+         int nextPc = pc + 2;
+         int target = 0xFFFF & (nextPc + (byte) operand);
+         Label notTaken = code.newLabel();
+         emitOpCycles(code, opCode);
+         code.local(ALOAD, CPU);
+         if (FLAGS[opCode] == Cpu.Z_FLAG) {
+            // Z is set when the low 8 bits of _NZ are 0
+            code.field(GETFIELD, CPU_CLASS, "_NZ", "I");
+            code.push(0xFF);
+            code.op(IAND);
+            code.jump(kind == BRANCH_IF_CLEAR ? IFEQ : IFNE, notTaken);
+         } else {
+            if (FLAGS[opCode] == Cpu.N_FLAG) {
+               code.field(GETFIELD, CPU_CLASS, "_NZ", "I");
+               code.push(0x180);
+            } else {
+               code.field(GETFIELD, CPU_CLASS, "_P", "I");
+               code.push(FLAGS[opCode]);
+            }
+            code.op(IAND);
+            code.jump(kind == BRANCH_IF_CLEAR ? IFNE : IFEQ, notTaken);
+         }
+         code.iinc(CYCLES, (nextPc >> 8) != (target >> 8) ? 2 : 1);
+         emitJump(code, target, pcs, labels);
+         code.mark(notTaken);
+         return false;
+      }
+
+      case JMP:
+         emitOpCycles(code, opCode);
+         emitJump(code, operand, pcs, labels);
+         return true;
+
+      case JMP_IND: {
+         // No carry into the high byte of the pointer
+         int highAddress = (operand & 0xFF) == 0xFF ? operand & 0xFF00 : operand + 1;
+         emitOpCycles(code, opCode);
+         code.local(ALOAD, CPU);
+         code.local(ALOAD, CPU);
+         code.push(highAddress);
+         emitReadMemory(code);
+         code.push(8);
+         code.op(ISHL);
+         code.local(ALOAD, CPU);
+         code.push(operand);
+         emitReadMemory(code);
+         code.op(IOR);
+         code.field(PUTFIELD, CPU_CLASS, "_PC", "I");
+         emitReturn(code);
+         return true;
+      }
+
+      case JSR:
+         emitOpCycles(code, opCode);
+         code.local(ALOAD, CPU);
+         code.push(pc + 3);
+         code.field(PUTFIELD, CPU_CLASS, "_PC", "I");
+         code.local(ALOAD, CPU);
+         code.push(operand);
+         code.method(INVOKEVIRTUAL, CPU_CLASS, handler, "(I)V");
+         emitReturn(code);
+         return true;
+
+      case PC_FROM_STACK:
+         emitOpCycles(code, opCode);
+         code.local(ALOAD, CPU);
+         code.method(INVOKEVIRTUAL, CPU_CLASS, handler, "()V");
+         emitReturn(code);
+         return true;
+
+      default:
+         throw new IllegalStateException("Op " + Integer.toHexString(opCode) + " isn't compilable");
+      }
+   }
+
+   // Leaves the block with PC at pc unless dynarec.access(address)
+   private static void emitAddressCheck(Code code, String access, int pc) {
+      Label plain = code.newLabel();
+      code.local(ALOAD, DYNAREC);
+      code.local(ILOAD, ADDRESS);
+      code.method(INVOKEVIRTUAL, DYNAREC_CLASS, access, "(I)Z");
+      code.jump(IFNE, plain);
+      emitExit(code, pc);
+      code.mark(plain);
+   }
+
+   private static void emitPageCycle(Code code, int baseAddress) {
+      Label samePage = code.newLabel();
+      code.local(ILOAD, ADDRESS);
+      code.push(8);
+      code.op(ISHR);
+      code.push(baseAddress >> 8);
+      code.jump(IF_ICMPEQ, samePage);
+      code.iinc(CYCLES, 1);
+      code.mark(samePage);
+   }
+
+   // The op runs from here on
+   private static void emitOpCycles(Code code, int opCode) {
+      code.iinc(CYCLES, Cpu.OP_CYCLES[opCode]);
+      code.iinc(OPS, 1);
+   }
+
+   private static void emitHandlerCall(Code code, int opCode) {
+      emitOpCycles(code, opCode);
+      code.local(ALOAD, CPU);
+      code.local(ILOAD, ADDRESS);
+      code.method(INVOKEVIRTUAL, CPU_CLASS, HANDLERS[opCode], "(I)V");
+   }
+
+   private static void emitReadMemory(Code code) {
+      code.method(INVOKEVIRTUAL, CPU_CLASS, "readMemory", "(I)I");
+   }
+
+   // Continues at the target if it's an op of this block, leaves the block otherwise
+   private static void emitJump(Code code, int target, int[] pcs, Label[] labels) {
+      for (int i = 0; i < labels.length; i++) {
+         if (pcs[i] == target) {
+            code.jump(GOTO, labels[i]);
+            return;
+         }
+      }
+      emitExit(code, target);
+   }
+
+   private static void emitExit(Code code, int pc) {
+      code.local(ALOAD, CPU);
+      code.push(pc);
+      code.field(PUTFIELD, CPU_CLASS, "_PC", "I");
+      emitReturn(code);
+   }
+
+   // Counts the ops run into cpu._opCount and returns the cycles taken
+   private static void emitReturn(Code code) {
+      code.local(ALOAD, CPU);
+      code.op(DUP);
+      code.field(GETFIELD, CPU_CLASS, "_opCount", "I");
+      code.local(ILOAD, OPS);
+      code.op(IADD);
+      code.field(PUTFIELD, CPU_CLASS, "_opCount", "I");
+      code.local(ILOAD, CYCLES);
+      code.op(IRETURN);
+   }
+}
@@ -0,0 +1,288 @@
+package nesrs.cpu;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough of a class file writer for BlockCompiler: a constant pool and methods with
+ * a Code attribute, nothing else. Classes are written as version 49, so the verifier infers
+ * the stack map frames itself and Code doesn't need a StackMapTable.
+ */
+final class ClassFileWriter {
+
+   static final int ACC_PUBLIC = 0x0001;
+   static final int ACC_FINAL = 0x0010;
+   static final int ACC_SUPER = 0x0020;
+
+   // Opcodes
+   static final int ICONST_0 = 0x03;
+   static final int BIPUSH = 0x10;
+   static final int SIPUSH = 0x11;
+   static final int LDC_W = 0x13;
+   static final int ILOAD = 0x15;
+   static final int ALOAD = 0x19;
+   static final int ISTORE = 0x36;
+   static final int DUP = 0x59;
+   static final int IADD = 0x60;
+   static final int ISHL = 0x78;
+   static final int ISHR = 0x7A;
+   static final int IAND = 0x7E;
+   static final int IOR = 0x80;
+   static final int IINC = 0x84;
+   static final int IFEQ = 0x99;
+   static final int IFNE = 0x9A;
+   static final int IF_ICMPEQ = 0x9F;
+   static final int IF_ICMPLT = 0xA1;
+   static final int GOTO = 0xA7;
+   static final int IRETURN = 0xAC;
+   static final int RETURN = 0xB1;
+   static final int GETFIELD = 0xB4;
+   static final int PUTFIELD = 0xB5;
+   static final int INVOKEVIRTUAL = 0xB6;
+   static final int INVOKESPECIAL = 0xB7;
+
+   private static final int CONSTANT_UTF8 = 1;
+   private static final int CONSTANT_INTEGER = 3;
+   private static final int CONSTANT_CLASS = 7;
+   private static final int CONSTANT_FIELDREF = 9;
+   private static final int CONSTANT_METHODREF = 10;
+   private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+   private final ByteArrayOutputStream _constantPool = new ByteArrayOutputStream();
+   private final Map<String, Integer> _constants = new HashMap<String, Integer>();
+   private int _constantCount = 1;
+
+   private final ByteArrayOutputStream _methods = new ByteArrayOutputStream();
+   private int _methodCount;
+
+   private final int _thisClass;
+   private final int _superClass;
+   private final int _interface;
+
+   ClassFileWriter(String className, String superName, String interfaceName) {
+      _thisClass = classConstant(className);
+      _superClass = classConstant(superName);
+      _interface = classConstant(interfaceName);
+   }
+
+   Code newCode() {
+      return new Code();
+   }
+
+   void addMethod(int access, String name, String descriptor, int maxStack, int maxLocals,
+         Code code) {
+      byte[] bytes = code.toByteArray();
+
+      writeShort(_methods, access);
+      writeShort(_methods, utf8Constant(name));
+      writeShort(_methods, utf8Constant(descriptor));
+      writeShort(_methods, 1); // attributes
+      writeShort(_methods, utf8Constant("Code"));
+      writeInt(_methods, 12 + bytes.length);
+      writeShort(_methods, maxStack);
+      writeShort(_methods, maxLocals);
+      writeInt(_methods, bytes.length);
+      _methods.write(bytes, 0, bytes.length);
+      writeShort(_methods, 0); // exception table
+      writeShort(_methods, 0); // attributes
+      _methodCount++;
+   }
+
+   byte[] toByteArray() {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      writeInt(out, 0xCAFEBABE);
+      writeShort(out, 0); // minor version
+      writeShort(out, 49); // major version
+      writeShort(out, _constantCount);
+      writeBytes(out, _constantPool);
+      writeShort(out, ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+      writeShort(out, _thisClass);
+      writeShort(out, _superClass);
+      writeShort(out, 1); // interfaces
+      writeShort(out, _interface);
+      writeShort(out, 0); // fields
+      writeShort(out, _methodCount);
+      writeBytes(out, _methods);
+      writeShort(out, 0); // attributes
+      return out.toByteArray();
+   }
+
+   //
+   // Constant pool
+   //
+
+   private int utf8Constant(String value) {
+      Integer index = _constants.get("U" + value);
+      if (index == null) {
+         _constantPool.write(CONSTANT_UTF8);
+         byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+         writeShort(_constantPool, bytes.length);
+         _constantPool.write(bytes, 0, bytes.length);
+         index = addConstant("U" + value);
+      }
+      return index;
+   }
+
+   private int intConstant(int value) {
+      Integer index = _constants.get("I" + value);
+      if (index == null) {
+         _constantPool.write(CONSTANT_INTEGER);
+         writeInt(_constantPool, value);
+         index = addConstant("I" + value);
+      }
+      return index;
+   }
+
+   private int classConstant(String name) {
+      Integer index = _constants.get("C" + name);
+      if (index == null) {
+         int nameIndex = utf8Constant(name);
+         _constantPool.write(CONSTANT_CLASS);
+         writeShort(_constantPool, nameIndex);
+         index = addConstant("C" + name);
+      }
+      return index;
+   }
+
+   private int memberConstant(int tag, String owner, String name, String descriptor) {
+      String key = tag + owner + "." + name + descriptor;
+      Integer index = _constants.get(key);
+      if (index == null) {
+         int ownerIndex = classConstant(owner);
+         int nameAndTypeIndex = nameAndTypeConstant(name, descriptor);
+
+         _constantPool.write(tag);
+         writeShort(_constantPool, ownerIndex);
+         writeShort(_constantPool, nameAndTypeIndex);
+         index = addConstant(key);
+      }
+      return index;
+   }
+
+   private int nameAndTypeConstant(String name, String descriptor) {
+      Integer index = _constants.get("N" + name + descriptor);
+      if (index == null) {
+         int nameIndex = utf8Constant(name);
+         int descriptorIndex = utf8Constant(descriptor);
+         _constantPool.write(CONSTANT_NAME_AND_TYPE);
+         writeShort(_constantPool, nameIndex);
+         writeShort(_constantPool, descriptorIndex);
+         index = addConstant("N" + name + descriptor);
+      }
+      return index;
+   }
+
+   private int addConstant(String key) {
+      int index = _constantCount++;
+      _constants.put(key, index);
+      return index;
+   }
+
+   private static void writeShort(ByteArrayOutputStream out, int value) {
+      out.write(value >> 8);
+      out.write(value);
+   }
+
+   private static void writeBytes(ByteArrayOutputStream out, ByteArrayOutputStream bytes) {
+      byte[] array = bytes.toByteArray();
+      out.write(array, 0, array.length);
+   }
+
+   private static void writeInt(ByteArrayOutputStream out, int value) {
+      writeShort(out, value >> 16);
+      writeShort(out, value);
+   }
+
+   //
+   // Code
+   //
+
+   static final class Label {
+      private int _position = -1;
+      private final List<Integer> _jumps = new ArrayList<Integer>();
+   }
+
+   final class Code {
+      private final ByteArrayOutputStream _code = new ByteArrayOutputStream();
+      private final List<Label> _labels = new ArrayList<Label>();
+
+      void op(int opcode) {
+         _code.write(opcode);
+      }
+
+      // iload, aload and istore
+      void local(int opcode, int index) {
+         _code.write(opcode);
+         _code.write(index);
+      }
+
+      void iinc(int index, int delta) {
+         _code.write(IINC);
+         _code.write(index);
+         _code.write(delta);
+      }
+
+      void push(int value) {
+         if (-1 <= value && value <= 5) {
+            _code.write(ICONST_0 + value);
+         } else if (Byte.MIN_VALUE <= value && value <= Byte.MAX_VALUE) {
+            _code.write(BIPUSH);
+            _code.write(value);
+         } else if (Short.MIN_VALUE <= value && value <= Short.MAX_VALUE) {
+            _code.write(SIPUSH);
+            writeShort(_code, value);
+         } else {
+            _code.write(LDC_W);
+            writeShort(_code, intConstant(value));
+         }
+      }
+
+      // getfield and putfield
+      void field(int opcode, String owner, String name, String descriptor) {
+         _code.write(opcode);
+         writeShort(_code, memberConstant(CONSTANT_FIELDREF, owner, name, descriptor));
+      }
+
+      // invokevirtual and invokespecial
+      void method(int opcode, String owner, String name, String descriptor) {
+         _code.write(opcode);
+         writeShort(_code, memberConstant(CONSTANT_METHODREF, owner, name, descriptor));
+      }
+
+      Label newLabel() {
+         Label label = new Label();
+         _labels.add(label);
+         return label;
+      }
+
+      void mark(Label label) {
+         label._position = _code.size();
+      }
+
+      // Branches with 16 bit offsets, patched once all labels are marked
+      void jump(int opcode, Label label) {
+         label._jumps.add(_code.size());
+         _code.write(opcode);
+         writeShort(_code, 0);
+      }
+
+      private byte[] toByteArray() {
+         byte[] bytes = _code.toByteArray();
+         for (Label label : _labels) {
+            for (int jump : label._jumps) {
+               if (label._position < 0) {
+                  throw new IllegalStateException("Unmarked label");
+               }
+               int offset = label._position - jump;
+               bytes[jump + 1] = (byte) (offset >> 8);
+               bytes[jump + 2] = (byte) offset;
+            }
+         }
+         return bytes;
+      }
+   }
+}
@@ -0,0 +1,11 @@
+package nesrs.cpu;
+
+/**
+ * Block of 6502 code compiled by BlockCompiler.
+ */
+interface CompiledBlock {
+   // Runs the block's ops while the cycles taken stay below cycleBudget and returns the cycles
+   // taken, with PC at the next op. Stops before an op that would access memory other than
+   // plain RAM or ROM, so 0 means the interpreter has to run the first op.
+   int execute(Cpu cpu, Dynarec dynarec, int cycleBudget);
+}
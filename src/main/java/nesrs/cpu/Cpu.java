@@ -19,7 +19,7 @@ public class Cpu implements CpuPin {
    }
 
    // Operations' cycles
-   private static final int[] OP_CYCLES = new int[] {
+   /*package*/ static final int[] OP_CYCLES = new int[] {
    /*       0 1 2 3 4 5 6 7 8 9 A B C D E F*/
    /*0x00*/ 7,6,2,8,3,3,5,5,3,2,2,2,4,4,6,6,
    /*0x10*/ 2,5,2,8,4,4,6,6,2,4,2,7,4,4,7,7,
@@ -65,7 +65,8 @@ public class Cpu implements CpuPin {
    /*package*/ int _X;  // X index register (8 bits)
    /*package*/ int _Y;  // Y index register (8 bits)
    /*package*/ int _S;  // Stack pointer (8 bits)
-   /*package*/ int _P;  // Status register (set of flags) (8 bits)
+   /*package*/ int _P;  // Status register (set of flags) (8 bits), except N and Z
+   /*package*/ int _NZ; // Last result N and Z are derived from, see getP()
    /*package*/ int _PC; // Program counter (16 bits)
 
    // Number of cycles of the last executed op
@@ -77,8 +78,26 @@ public class Cpu implements CpuPin {
    // 64Kb of CPU's addressable memory
    private final CpuMemory _memory;
 
+   // Page of the last instruction fetch and the memory backing it, if it can be read directly
+   private int _fetchPage = -1;
+   private int[] _fetchPageMemory;
+   private int _fetchPageOffset;
+
    private final boolean _decimalModeSupported;
 
+   // Dynamic recompiler, null unless enabled
+   private Dynarec _dynarec;
+
+   // Cycles run so far (wrapping around), which tell the idle loop detector when passes end and
+   // DMA which cycles are odd
+   private int _cycles;
+   private final IdleLoopDetector _idleLoopDetector;
+
+   // Ops run so far (wrapping around), also those of compiled blocks and skipped idle loops
+   /*package*/ int _opCount;
+   // Cycles run by compiled blocks so far (wrapping around)
+   private int _compiledCycles;
+
    //
    // Constructors
    //
@@ -90,6 +109,9 @@ public class Cpu implements CpuPin {
    public Cpu(CpuMemory memory, boolean decimalModeSupported) {
       _memory = memory;
       _decimalModeSupported = decimalModeSupported;
+      _idleLoopDetector = new IdleLoopDetector(memory);
+
+      _memory.setPageMapListener(() -> handlePageMapChange());
    }
 
    public int getA() {
@@ -108,14 +130,79 @@ public class Cpu implements CpuPin {
       return _S;
    }
 
+   /**
+    * Flags are evaluated lazily: ops only store the result that N and Z depend on in _NZ and
+    * the status register is put together when it's needed. Z is set when the low 8 bits of _NZ
+    * are 0 and N when bit 7 or bit 8 is set (bit 8 lets BIT and SRE set N apart from Z).
+    */
    public int getP() {
-      return _P;
+      return _P
+            | ((_NZ & 0x180) != 0 ? N_FLAG : 0)
+            | ((_NZ & 0xFF) == 0 ? Z_FLAG : 0);
+   }
+
+   /*package*/ void setP(int P) {
+      _P = P & ~(N_FLAG | Z_FLAG);
+      _NZ = ((P & N_FLAG) << 1) | (~P & Z_FLAG);
    }
 
    public int getPC() {
       return _PC;
    }
 
+   /**
+    * Enables compiling hot blocks of PRG ROM code to JVM bytecode, run by executeOps(int).
+    */
+   public void setDynarecEnabled(boolean enabled) {
+      _dynarec = enabled ? new Dynarec(_memory) : null;
+   }
+
+   public boolean isDynarecEnabled() {
+      return _dynarec != null;
+   }
+
+   /**
+    * Cycles of one pass through the idle loop the last op jumped back into, if that pass left
+    * the cpu exactly as the pass before it and no interrupt it would take is pending, and 0
+    * otherwise. The passes after it then do the same for getIdleLoopStableCycles() at least, as
+    * long as no interrupt comes in, and can be skipped with skipIdleLoop(int).
+    */
+   public int getIdleLoopCycles() {
+      if (hasUnmaskedInterrupt()) {
+         return 0;
+      }
+
+      return _idleLoopDetector.getRepeatedLoopCycles(_cycles);
+   }
+
+   // Cycles during which the memory read by the idle loop stays the same
+   public int getIdleLoopStableCycles() {
+      return _idleLoopDetector.getStableCycles();
+   }
+
+   /**
+    * Skips passes through the idle loop taking the cycles, which must be a multiple of
+    * getIdleLoopCycles().
+    */
+   public void skipIdleLoop(int cycles) {
+      _cycles += cycles;
+      _opCount += _idleLoopDetector.skip(cycles);
+   }
+
+   /**
+    * Ops run so far, wrapping around, so only differences count. Unlike the calls of
+    * executeOp() and executeOps(int) this counts every op of the compiled blocks and of the
+    * skipped idle loop passes. Interrupts aren't ops.
+    */
+   public int getOpCount() {
+      return _opCount;
+   }
+
+   // Cycles run by compiled blocks so far, wrapping around, 0 without the dynarec
+   public int getCompiledCycles() {
+      return _compiledCycles;
+   }
+
    //
    // Actions
    //
@@ -126,7 +213,7 @@ public class Cpu implements CpuPin {
       _X = X;
       _Y = Y;
       _S = S;
-      _P = P;
+      setP(P);
       _PC = PC;
    }
 
@@ -137,7 +224,7 @@ public class Cpu implements CpuPin {
       _X = 0x00;
       _Y = 0x00;
       _S = 0xFF;
-      _P = B_FLAG | R_FLAG | I_FLAG;
+      setP(B_FLAG | R_FLAG | I_FLAG);
       _PC = (readMemory(0xFFFD) << 8) | readMemory(0xFFFC);
 
       return _opCycles;
@@ -164,14 +251,43 @@ public class Cpu implements CpuPin {
       if (hasPendingInterrupt()) {
          executePendingInterruptOp();
       } else {
-         int opCode = readMemory(_PC++);
+         int opCode = fetch();
          _opCycles = OP_CYCLES[opCode];
          executeOp(opCode);
+         _opCount++;
       }
 
+      _cycles += _opCycles;
       return _opCycles;
    }
 
+   /**
+    * Executes the op at PC like executeOp(), or, with the dynarec enabled, the ops of the block
+    * compiled for PC while the cycles they take stay below cycleBudget. The caller picks the
+    * budget so that no interrupt or other event the ops could observe is due before it runs out.
+    * Returns the cycles taken.
+    */
+   public int executeOps(int cycleBudget) {
+      if (_dynarec != null && !hasUnmaskedInterrupt()) {
+         CompiledBlock block = _dynarec.getBlock(_PC);
+         if (block != null) {
+            // A masked irq is dropped like executeOp() does, the apu raises it again when it
+            // catches up after the block, which ends at the ops clearing I
+            _pendingInterrupt = null;
+
+            int cycles = block.execute(this, _dynarec, cycleBudget);
+            if (cycles > 0) {
+               _opCycles = cycles;
+               _cycles += cycles;
+               _compiledCycles += cycles;
+               return cycles;
+            }
+         }
+      }
+
+      return executeOp();
+   }
+
    @Override
    public int getOpCycles() {
       return _opCycles;
@@ -207,14 +323,14 @@ public class Cpu implements CpuPin {
          _X = 0x00;
          _Y = 0x00;
          _S = 0xFF;
-         _P = Z_FLAG | R_FLAG | I_FLAG;
+         setP(Z_FLAG | R_FLAG | I_FLAG);
          _PC = (readMemory(0xFFFD) << 8) | readMemory(0xFFFC);
 
       } else if (_pendingInterrupt == InterruptType.NMI) {
          _opCycles = 7;
          push((_PC >> 8) & 0xFF);
          push(_PC & 0x00FF);
-         push(_P & ~B_FLAG);
+         push(getP() & ~B_FLAG);
          _P = _P & ~D_FLAG;
          _PC = (readMemory(0xFFFB) << 8) | readMemory(0xFFFA);
 
@@ -222,7 +338,7 @@ public class Cpu implements CpuPin {
          _opCycles = 7;
          push((_PC >> 8) & 0xFF);
          push(_PC & 0x00FF);
-         push(_P & ~B_FLAG);
+         push(getP() & ~B_FLAG);
          _P = _P & ~D_FLAG;
          _P = _P & ~I_FLAG;
          _PC = (readMemory(0xFFFF) << 8) | readMemory(0xFFFE);
@@ -235,6 +351,12 @@ public class Cpu implements CpuPin {
       return _pendingInterrupt != null;
    }
 
+   // Pending and not an irq while I is set, which the next op would just drop
+   private boolean hasUnmaskedInterrupt() {
+      return _pendingInterrupt != null
+            && (_pendingInterrupt != InterruptType.IRQ || (_P & I_FLAG) == 0);
+   }
+
    //
    // Memory management
    //
@@ -248,10 +370,57 @@ public class Cpu implements CpuPin {
    public void writeMemory(int address, int value) {
       int additionalWriteCycles = _memory.write(address, value);
       if (additionalWriteCycles > 0) {
-         _opCycles += additionalWriteCycles;
+         // DMA starts on an even cycle, one after the write if that ends on an odd one
+         _opCycles += additionalWriteCycles + ((_cycles + _opCycles) & 1);
       }
    }
 
+   // Called by the op at jumpAddress once it jumped back to PC
+   private void handleBackJump(int jumpAddress) {
+      if ((jumpAddress >> 8) == _fetchPage) {
+         _idleLoopDetector.handleBackJump(this, jumpAddress, _fetchPageMemory, _fetchPageOffset,
+               _opCycles, _cycles + _opCycles);
+      }
+   }
+
+   private void handlePageMapChange() {
+      _fetchPage = -1;
+
+      if (_dynarec != null) {
+         _dynarec.handlePageMapChange();
+      }
+   }
+
+   /**
+    * Reads the opcode or operand byte at PC and increments PC. Bytes from RAM and PRG ROM
+    * are read straight from the page's backing array while PC stays in that page,
+    * everything else goes through the bus.
+    */
+   private int fetch() {
+      int address = _PC++;
+
+      if ((address >> 8) == _fetchPage) {
+         return _fetchPageMemory[_fetchPageOffset | (address & 0xFF)];
+      }
+
+      return fetchFromNewPage(address);
+   }
+
+   private int fetchFromNewPage(int address) {
+      int page = (address >> 8) & 0xFF;
+      int[] pageMemory = _memory.getPageMemory(page);
+
+      if (pageMemory == null) {
+         _fetchPage = -1;
+         return readMemory(address);
+      }
+
+      _fetchPage = address >> 8;
+      _fetchPageMemory = pageMemory;
+      _fetchPageOffset = _memory.getPageOffset(page);
+      return _fetchPageMemory[_fetchPageOffset | (address & 0xFF)];
+   }
+
    private boolean isPageBoundaryCrossed(int address1, int address2) {
       return (address1 >> 8) != (address2 >> 8);
    }
@@ -270,34 +439,34 @@ public class Cpu implements CpuPin {
 
    // 4. Absolute addressing - ABS
    private int calculateMemoryAddressABS() {
-      int low = readMemory(_PC++);
-      int high = readMemory(_PC++);
+      int low = fetch();
+      int high = fetch();
       return 0xFFFF & ((high << 8) | low);
    }
 
    // 5. Zero page addressing - ZP
    private int calculateMemoryAddressZP() {
-      int low = readMemory(_PC++);
+      int low = fetch();
       return low;
    }
 
    // 6. Indexed zero page addressing with register X - ZP,X
    private int calculateMemoryAddressZPX() {
-      int low = readMemory(_PC++);
+      int low = fetch();
       return 0x00FF & (_X + low);
    }
 
    // 7. Indexed zero page addressing with register Y - ZP,Y
    private int calculateMemoryAddressZPY() {
-      int low = readMemory(_PC++);
+      int low = fetch();
       return 0x00FF & (_Y + low);
    }
 
    // 8. Indexed absolute addressing with register X - ABS,X
    private int calculateMemoryAddressABSX(
          boolean countAdditionalCycleOnPageBoundaryCrossed) {
-      int low = readMemory(_PC++);
-      int high = readMemory(_PC++);
+      int low = fetch();
+      int high = fetch();
       int address = 0xFFFF & ((high << 8) | low);
       int resultAddress = 0xFFFF & (address + _X);
       if (countAdditionalCycleOnPageBoundaryCrossed
@@ -311,8 +480,8 @@ public class Cpu implements CpuPin {
    // 9. Indexed absolute addressing with register Y - ABS,Y
    private int calculateMemoryAddressABSY(
          boolean countAdditionalCycleOnPageBoundaryCrossed) {
-      int low = readMemory(_PC++);
-      int high = readMemory(_PC++);
+      int low = fetch();
+      int high = fetch();
       int address = 0xFFFF & ((high << 8) | low);
       int resultAddress = 0xFFFF & (address + _Y);
       if (countAdditionalCycleOnPageBoundaryCrossed
@@ -325,7 +494,7 @@ public class Cpu implements CpuPin {
 
    // 10. Relative addressing - REL
    private int calculateMemoryAddressREL() {
-      int inc = readMemory(_PC++);
+      int inc = fetch();
       int offset = 0;
       boolean isPositive = true;
       if ((inc & 0x80) == 0) {
@@ -344,7 +513,7 @@ public class Cpu implements CpuPin {
 
    // 11. Indexed indirect (pre-indexed) addressing with register X - (IND,X)
    private int calculateMemoryAddress_INDX_() {
-      int low = readMemory(_PC++);
+      int low = fetch();
       int address = 0x00FF & (low + _X);
       int nextAddress = 0x00FF & (address + 1);
       return 0xFFFF & ((readMemory(nextAddress) << 8) | readMemory(address));
@@ -353,7 +522,7 @@ public class Cpu implements CpuPin {
    // 12. Indirect indexed (post-indexed) addressing with register Y - (IND),Y
    private int calculateMemoryAddress_IND_Y(
          boolean countAdditionalCycleOnPageBoundaryCrossed) {
-      int low = readMemory(_PC++);
+      int low = fetch();
 
       int lowAddress = readMemory(low);
       int highAddress = readMemory(0x00FF & (low + 1));
@@ -369,8 +538,8 @@ public class Cpu implements CpuPin {
 
    // 13. Absolute indirect addressing - IND
    private int calculateMemoryAddressIND(boolean isPageWrappingNotAllowed) {
-      int low = readMemory(_PC++);
-      int high = readMemory(_PC++);
+      int low = fetch();
+      int high = fetch();
       int address = 0xFFFF & ((high << 8) | low);
       int nextAddress = address + 1;
       if ((address & 0xFF) == 0xFF) {
@@ -381,32 +550,6 @@ public class Cpu implements CpuPin {
       return 0xFFFF & ((readMemory(nextAddress) << 8) | readMemory(address));
    }
 
-   private int calculateMemoryAddress(CpuAddressingMode mode) {
-      int address = 0;
-
-      switch (mode) {
-         case ACC: break;
-         case IMPL: break;
-         case IMM: address = calculateMemoryAddressIMM(); break;
-         case ABS: address = calculateMemoryAddressABS(); break;
-         case ZP: address = calculateMemoryAddressZP(); break;
-         case ZPX: address = calculateMemoryAddressZPX(); break;
-         case ZPY: address = calculateMemoryAddressZPY(); break;
-         case ABSX: address = calculateMemoryAddressABSX(false); break;
-         case ABSX_: address = calculateMemoryAddressABSX(true); break;
-         case ABSY: address = calculateMemoryAddressABSY(false); break;
-         case ABSY_: address = calculateMemoryAddressABSY(true); break;
-         case REL: address = calculateMemoryAddressREL(); break;
-         case _INDX: address = calculateMemoryAddress_INDX_(); break;
-         case _IND_Y: address = calculateMemoryAddress_IND_Y(false); break;
-         case _IND_Y_: address = calculateMemoryAddress_IND_Y(true); break;
-         case IND: address = calculateMemoryAddressIND(false); break;
-         case IND_: address = calculateMemoryAddressIND(true); break;
-      }
-
-      return address;
-   }
-
    //
    // Stack manipulations
    //
@@ -438,62 +581,62 @@ public class Cpu implements CpuPin {
       switch (opCode) {
 
       /*1.ADC*/
-      case 0x69/*IMM*/: opADC(CpuAddressingMode.IMM); break;
-      case 0x65/*ZP*/: opADC(CpuAddressingMode.ZP); break;
-      case 0x75/*ZP,X*/: opADC(CpuAddressingMode.ZPX); break;
-      case 0x6D/*ABS*/: opADC(CpuAddressingMode.ABS); break;
-      case 0x7D/*ABS,X+*/:opADC(CpuAddressingMode.ABSX_); break;
-      case 0x79/*ABS,Y+*/:opADC(CpuAddressingMode.ABSY_); break;
-      case 0x61/*(IND,X)*/:opADC(CpuAddressingMode._INDX); break;
-      case 0x71/*(IND),Y+*/:opADC(CpuAddressingMode._IND_Y_); break;
+      case 0x69/*IMM*/: opADC(calculateMemoryAddressIMM()); break;
+      case 0x65/*ZP*/: opADC(calculateMemoryAddressZP()); break;
+      case 0x75/*ZP,X*/: opADC(calculateMemoryAddressZPX()); break;
+      case 0x6D/*ABS*/: opADC(calculateMemoryAddressABS()); break;
+      case 0x7D/*ABS,X+*/:opADC(calculateMemoryAddressABSX(true)); break;
+      case 0x79/*ABS,Y+*/:opADC(calculateMemoryAddressABSY(true)); break;
+      case 0x61/*(IND,X)*/:opADC(calculateMemoryAddress_INDX_()); break;
+      case 0x71/*(IND),Y+*/:opADC(calculateMemoryAddress_IND_Y(true)); break;
 
       /*2.AND*/
-      case 0x29/*IMM*/: opAND(CpuAddressingMode.IMM); break;
-      case 0x25/*ZP*/: opAND(CpuAddressingMode.ZP); break;
-      case 0x35/*ZP,X*/: opAND(CpuAddressingMode.ZPX); break;
-      case 0x2D/*ABS*/: opAND(CpuAddressingMode.ABS); break;
-      case 0x3D/*ABS,X+*/: opAND(CpuAddressingMode.ABSX_); break;
-      case 0x39/*ABS,Y+*/: opAND(CpuAddressingMode.ABSY_); break;
-      case 0x21/*(IND,X)*/: opAND(CpuAddressingMode._INDX); break;
-      case 0x31/*(IND),Y+*/: opAND(CpuAddressingMode._IND_Y_); break;
+      case 0x29/*IMM*/: opAND(calculateMemoryAddressIMM()); break;
+      case 0x25/*ZP*/: opAND(calculateMemoryAddressZP()); break;
+      case 0x35/*ZP,X*/: opAND(calculateMemoryAddressZPX()); break;
+      case 0x2D/*ABS*/: opAND(calculateMemoryAddressABS()); break;
+      case 0x3D/*ABS,X+*/: opAND(calculateMemoryAddressABSX(true)); break;
+      case 0x39/*ABS,Y+*/: opAND(calculateMemoryAddressABSY(true)); break;
+      case 0x21/*(IND,X)*/: opAND(calculateMemoryAddress_INDX_()); break;
+      case 0x31/*(IND),Y+*/: opAND(calculateMemoryAddress_IND_Y(true)); break;
 
       /*3.ASL*/
-      case 0x0A/*ACC*/: opASL(CpuAddressingMode.ACC); break;
-      case 0x06/*ZP*/: opASL(CpuAddressingMode.ZP); break;
-      case 0x16/*ZP,X*/: opASL(CpuAddressingMode.ZPX); break;
-      case 0x0E/*ABS*/: opASL(CpuAddressingMode.ABS); break;
-      case 0x1E/*ABS,X*/: opASL(CpuAddressingMode.ABSX); break;
+      case 0x0A/*ACC*/: _A = opShiftLeft(_A); break;
+      case 0x06/*ZP*/: opASL(calculateMemoryAddressZP()); break;
+      case 0x16/*ZP,X*/: opASL(calculateMemoryAddressZPX()); break;
+      case 0x0E/*ABS*/: opASL(calculateMemoryAddressABS()); break;
+      case 0x1E/*ABS,X*/: opASL(calculateMemoryAddressABSX(false)); break;
 
       /*4.BCC*/
-      case 0x90/*REL*/: opBCC(CpuAddressingMode.REL); break;
+      case 0x90/*REL*/: opBCC(calculateMemoryAddressREL()); break;
 
       /*5.BCS*/
-      case 0xB0/*REL*/: opBCS(CpuAddressingMode.REL); break;
+      case 0xB0/*REL*/: opBCS(calculateMemoryAddressREL()); break;
 
       /*6.BEQ*/
-      case 0xF0/*REL*/: opBEQ(CpuAddressingMode.REL); break;
+      case 0xF0/*REL*/: opBEQ(calculateMemoryAddressREL()); break;
 
       /*7.BIT*/
-      case 0x24/*ZP*/: opBIT(CpuAddressingMode.ZP); break;
-      case 0x2C/*ABS*/: opBIT(CpuAddressingMode.ABS); break;
+      case 0x24/*ZP*/: opBIT(calculateMemoryAddressZP()); break;
+      case 0x2C/*ABS*/: opBIT(calculateMemoryAddressABS()); break;
 
       /*8.BMI*/
-      case 0x30/*REL*/: opBMI(CpuAddressingMode.REL); break;
+      case 0x30/*REL*/: opBMI(calculateMemoryAddressREL()); break;
 
       /*9.BNE*/
-      case 0xD0/*REL*/: opBNE(CpuAddressingMode.REL); break;
+      case 0xD0/*REL*/: opBNE(calculateMemoryAddressREL()); break;
 
       /*10.BPL*/
-      case 0x10/*REL*/: opBPL(CpuAddressingMode.REL); break;
+      case 0x10/*REL*/: opBPL(calculateMemoryAddressREL()); break;
 
       /*11.BRK*/
       case 0x00/*IMPL*/: opBRK(); break;
 
       /*12.BVC*/
-      case 0x50/*REL*/: opBVC(CpuAddressingMode.REL); break;
+      case 0x50/*REL*/: opBVC(calculateMemoryAddressREL()); break;
 
       /*13.BVS*/
-      case 0x70/*REL*/: opBVS(CpuAddressingMode.REL); break;
+      case 0x70/*REL*/: opBVS(calculateMemoryAddressREL()); break;
 
       /*14.CLC*/
       case 0x18/*IMPL*/: _P = _P & ~C_FLAG; break;
@@ -508,30 +651,30 @@ public class Cpu implements CpuPin {
       case 0xB8/*IMPL*/: _P = _P & ~V_FLAG; break;
 
       /*18.CMP*/
-      case 0xC9/*IMM*/: opCMP(CpuAddressingMode.IMM); break;
-      case 0xC5/*ZP*/: opCMP(CpuAddressingMode.ZP); break;
-      case 0xD5/*ZP,X*/: opCMP(CpuAddressingMode.ZPX); break;
-      case 0xCD/*ABS*/: opCMP(CpuAddressingMode.ABS); break;
-      case 0xDD/*ABS,X+*/: opCMP(CpuAddressingMode.ABSX_); break;
-      case 0xD9/*ABS,Y+*/: opCMP(CpuAddressingMode.ABSY_); break;
-      case 0xC1/*(IND,X)*/: opCMP(CpuAddressingMode._INDX); break;
-      case 0xD1/*(IND),Y+*/: opCMP(CpuAddressingMode._IND_Y_); break;
+      case 0xC9/*IMM*/: opCMP(calculateMemoryAddressIMM()); break;
+      case 0xC5/*ZP*/: opCMP(calculateMemoryAddressZP()); break;
+      case 0xD5/*ZP,X*/: opCMP(calculateMemoryAddressZPX()); break;
+      case 0xCD/*ABS*/: opCMP(calculateMemoryAddressABS()); break;
+      case 0xDD/*ABS,X+*/: opCMP(calculateMemoryAddressABSX(true)); break;
+      case 0xD9/*ABS,Y+*/: opCMP(calculateMemoryAddressABSY(true)); break;
+      case 0xC1/*(IND,X)*/: opCMP(calculateMemoryAddress_INDX_()); break;
+      case 0xD1/*(IND),Y+*/: opCMP(calculateMemoryAddress_IND_Y(true)); break;
 
       /*19.CPX*/
-      case 0xE0/*IMM*/: opCPX(CpuAddressingMode.IMM); break;
-      case 0xE4/*ZP*/: opCPX(CpuAddressingMode.ZP); break;
-      case 0xEC/*ABS*/: opCPX(CpuAddressingMode.ABS); break;
+      case 0xE0/*IMM*/: opCPX(calculateMemoryAddressIMM()); break;
+      case 0xE4/*ZP*/: opCPX(calculateMemoryAddressZP()); break;
+      case 0xEC/*ABS*/: opCPX(calculateMemoryAddressABS()); break;
 
       /*20.CPY*/
-      case 0xC0/*IMM*/: opCPY(CpuAddressingMode.IMM); break;
-      case 0xC4/*ZP*/: opCPY(CpuAddressingMode.ZP); break;
-      case 0xCC/*ABS*/: opCPY(CpuAddressingMode.ABS); break;
+      case 0xC0/*IMM*/: opCPY(calculateMemoryAddressIMM()); break;
+      case 0xC4/*ZP*/: opCPY(calculateMemoryAddressZP()); break;
+      case 0xCC/*ABS*/: opCPY(calculateMemoryAddressABS()); break;
 
       /*21.DEC*/
-      case 0xC6/*ZP*/: opDEC(CpuAddressingMode.ZP); break;
-      case 0xD6/*ZP,X*/: opDEC(CpuAddressingMode.ZPX); break;
-      case 0xCE/*ABS*/: opDEC(CpuAddressingMode.ABS); break;
-      case 0xDE/*ABS,X*/: opDEC(CpuAddressingMode.ABSX); break;
+      case 0xC6/*ZP*/: opDEC(calculateMemoryAddressZP()); break;
+      case 0xD6/*ZP,X*/: opDEC(calculateMemoryAddressZPX()); break;
+      case 0xCE/*ABS*/: opDEC(calculateMemoryAddressABS()); break;
+      case 0xDE/*ABS,X*/: opDEC(calculateMemoryAddressABSX(false)); break;
 
       /*22.DEX*/
       case 0xCA/*IMPL*/: _X = opDecrease(_X); break;
@@ -540,20 +683,20 @@ public class Cpu implements CpuPin {
       case 0x88/*IMPL*/: _Y = opDecrease(_Y); break;
 
       /*24.EOR*/
-      case 0x49/*IMM*/: opEOR(CpuAddressingMode.IMM); break;
-      case 0x45/*ZP*/: opEOR(CpuAddressingMode.ZP); break;
-      case 0x55/*ZP,X*/: opEOR(CpuAddressingMode.ZPX); break;
-      case 0x4D/*ABS*/: opEOR(CpuAddressingMode.ABS); break;
-      case 0x5D/*ABS,X+*/: opEOR(CpuAddressingMode.ABSX_); break;
-      case 0x59/*ABS,Y+*/: opEOR(CpuAddressingMode.ABSY_); break;
-      case 0x41/*(IND,X)*/: opEOR(CpuAddressingMode._INDX); break;
-      case 0x51/*(IND),Y+*/: opEOR(CpuAddressingMode._IND_Y_); break;
+      case 0x49/*IMM*/: opEOR(calculateMemoryAddressIMM()); break;
+      case 0x45/*ZP*/: opEOR(calculateMemoryAddressZP()); break;
+      case 0x55/*ZP,X*/: opEOR(calculateMemoryAddressZPX()); break;
+      case 0x4D/*ABS*/: opEOR(calculateMemoryAddressABS()); break;
+      case 0x5D/*ABS,X+*/: opEOR(calculateMemoryAddressABSX(true)); break;
+      case 0x59/*ABS,Y+*/: opEOR(calculateMemoryAddressABSY(true)); break;
+      case 0x41/*(IND,X)*/: opEOR(calculateMemoryAddress_INDX_()); break;
+      case 0x51/*(IND),Y+*/: opEOR(calculateMemoryAddress_IND_Y(true)); break;
 
       /*25.INC*/
-      case 0xE6/*ZP*/: opINC(CpuAddressingMode.ZP); break;
-      case 0xF6/*ZP,X*/: opINC(CpuAddressingMode.ZPX); break;
-      case 0xEE/*ABS*/: opINC(CpuAddressingMode.ABS); break;
-      case 0xFE/*ABS,X*/: opINC(CpuAddressingMode.ABSX); break;
+      case 0xE6/*ZP*/: opINC(calculateMemoryAddressZP()); break;
+      case 0xF6/*ZP,X*/: opINC(calculateMemoryAddressZPX()); break;
+      case 0xEE/*ABS*/: opINC(calculateMemoryAddressABS()); break;
+      case 0xFE/*ABS,X*/: opINC(calculateMemoryAddressABSX(false)); break;
 
       /*26.INX*/
       case 0xE8/*IMPL*/: _X = opIncrease(_X); break;
@@ -562,55 +705,55 @@ public class Cpu implements CpuPin {
       case 0xC8/*IMPL*/: _Y = opIncrease(_Y); break;
 
       /*28.JMP*/
-      case 0x4C/*ABS*/: opJMP(CpuAddressingMode.ABS); break;
-      case 0x6C/*IND*/: opJMP(CpuAddressingMode.IND_); break;
+      case 0x4C/*ABS*/: opJMP(calculateMemoryAddressABS()); break;
+      case 0x6C/*IND*/: opJMP(calculateMemoryAddressIND(true)); break;
 
       /*29.JSR*/
-      case 0x20/*ABS*/:opJSR(CpuAddressingMode.ABS); break;
+      case 0x20/*ABS*/:opJSR(calculateMemoryAddressABS()); break;
 
       /*30.LDA*/
-      case 0xA9/*IMM*/: opLDA(CpuAddressingMode.IMM); break;
-      case 0xA5/*ZP*/: opLDA(CpuAddressingMode.ZP); break;
-      case 0xB5/*ZP,X*/: opLDA(CpuAddressingMode.ZPX); break;
-      case 0xAD/*ABS*/: opLDA(CpuAddressingMode.ABS); break;
-      case 0xBD/*ABS,X+*/: opLDA(CpuAddressingMode.ABSX_); break;
-      case 0xB9/*ABS,Y+*/: opLDA(CpuAddressingMode.ABSY_); break;
-      case 0xA1/*(IND,X)*/: opLDA(CpuAddressingMode._INDX); break;
-      case 0xB1/*(IND),Y+*/: opLDA(CpuAddressingMode._IND_Y_); break;
+      case 0xA9/*IMM*/: opLDA(calculateMemoryAddressIMM()); break;
+      case 0xA5/*ZP*/: opLDA(calculateMemoryAddressZP()); break;
+      case 0xB5/*ZP,X*/: opLDA(calculateMemoryAddressZPX()); break;
+      case 0xAD/*ABS*/: opLDA(calculateMemoryAddressABS()); break;
+      case 0xBD/*ABS,X+*/: opLDA(calculateMemoryAddressABSX(true)); break;
+      case 0xB9/*ABS,Y+*/: opLDA(calculateMemoryAddressABSY(true)); break;
+      case 0xA1/*(IND,X)*/: opLDA(calculateMemoryAddress_INDX_()); break;
+      case 0xB1/*(IND),Y+*/: opLDA(calculateMemoryAddress_IND_Y(true)); break;
 
       /*31.LDX*/
-      case 0xA2/*IMM*/: opLDX(CpuAddressingMode.IMM); break;
-      case 0xA6/*ZP*/: opLDX(CpuAddressingMode.ZP); break;
-      case 0xB6/*ZP,Y*/: opLDX(CpuAddressingMode.ZPY); break;
-      case 0xAE/*ABS*/: opLDX(CpuAddressingMode.ABS); break;
-      case 0xBE/*ABS,Y+*/: opLDX(CpuAddressingMode.ABSY_); break;
+      case 0xA2/*IMM*/: opLDX(calculateMemoryAddressIMM()); break;
+      case 0xA6/*ZP*/: opLDX(calculateMemoryAddressZP()); break;
+      case 0xB6/*ZP,Y*/: opLDX(calculateMemoryAddressZPY()); break;
+      case 0xAE/*ABS*/: opLDX(calculateMemoryAddressABS()); break;
+      case 0xBE/*ABS,Y+*/: opLDX(calculateMemoryAddressABSY(true)); break;
 
       /*32.LDY*/
-      case 0xA0/*IMM*/: opLDY(CpuAddressingMode.IMM); break;
-      case 0xA4/*ZP*/: opLDY(CpuAddressingMode.ZP); break;
-      case 0xB4/*ZP,X*/: opLDY(CpuAddressingMode.ZPX); break;
-      case 0xAC/*ABS*/: opLDY(CpuAddressingMode.ABS); break;
-      case 0xBC/*ABS,X+*/: opLDY(CpuAddressingMode.ABSX_); break;
+      case 0xA0/*IMM*/: opLDY(calculateMemoryAddressIMM()); break;
+      case 0xA4/*ZP*/: opLDY(calculateMemoryAddressZP()); break;
+      case 0xB4/*ZP,X*/: opLDY(calculateMemoryAddressZPX()); break;
+      case 0xAC/*ABS*/: opLDY(calculateMemoryAddressABS()); break;
+      case 0xBC/*ABS,X+*/: opLDY(calculateMemoryAddressABSX(true)); break;
 
       /*33.LSR*/
-      case 0x4A/*ACC*/: opLSR(CpuAddressingMode.ACC); break;
-      case 0x46/*ZP*/: opLSR(CpuAddressingMode.ZP); break;
-      case 0x56/*ZP,X*/: opLSR(CpuAddressingMode.ZPX); break;
-      case 0x4E/*ABS*/: opLSR(CpuAddressingMode.ABS); break;
-      case 0x5E/*ABS,X*/: opLSR(CpuAddressingMode.ABSX); break;
+      case 0x4A/*ACC*/: _A = opShiftRight(_A); break;
+      case 0x46/*ZP*/: opLSR(calculateMemoryAddressZP()); break;
+      case 0x56/*ZP,X*/: opLSR(calculateMemoryAddressZPX()); break;
+      case 0x4E/*ABS*/: opLSR(calculateMemoryAddressABS()); break;
+      case 0x5E/*ABS,X*/: opLSR(calculateMemoryAddressABSX(false)); break;
 
       /*34.NOP*/
       case 0xEA/*IMPL*/: break;
 
       /*35.ORA*/
-      case 0x09/*IMM*/: opORA(CpuAddressingMode.IMM); break;
-      case 0x05/*ZP*/: opORA(CpuAddressingMode.ZP); break;
-      case 0x15/*ZP,X*/: opORA(CpuAddressingMode.ZPX); break;
-      case 0x0D/*ABS*/: opORA(CpuAddressingMode.ABS); break;
-      case 0x1D/*ABS,X+*/: opORA(CpuAddressingMode.ABSX_); break;
-      case 0x19/*ABS,Y+*/: opORA(CpuAddressingMode.ABSY_); break;
-      case 0x01/*(IND,X)*/: opORA(CpuAddressingMode._INDX); break;
-      case 0x11/*(IND),Y+*/: opORA(CpuAddressingMode._IND_Y_);break;
+      case 0x09/*IMM*/: opORA(calculateMemoryAddressIMM()); break;
+      case 0x05/*ZP*/: opORA(calculateMemoryAddressZP()); break;
+      case 0x15/*ZP,X*/: opORA(calculateMemoryAddressZPX()); break;
+      case 0x0D/*ABS*/: opORA(calculateMemoryAddressABS()); break;
+      case 0x1D/*ABS,X+*/: opORA(calculateMemoryAddressABSX(true)); break;
+      case 0x19/*ABS,Y+*/: opORA(calculateMemoryAddressABSY(true)); break;
+      case 0x01/*(IND,X)*/: opORA(calculateMemoryAddress_INDX_()); break;
+      case 0x11/*(IND),Y+*/: opORA(calculateMemoryAddress_IND_Y(true));break;
 
       /*36.PHA*/
       case 0x48/*IMPL*/: opPHA(); break;
@@ -625,18 +768,18 @@ public class Cpu implements CpuPin {
       case 0x28/*IMPL*/: opPLP(); break;
 
       /*40.ROL*/
-      case 0x2A/*ACC*/: opROL(CpuAddressingMode.ACC); break;
-      case 0x26/*ZP*/: opROL(CpuAddressingMode.ZP); break;
-      case 0x36/*ZP,X*/: opROL(CpuAddressingMode.ZPX); break;
-      case 0x2E/*ABS*/: opROL(CpuAddressingMode.ABS); break;
-      case 0x3E/*ABS,X*/: opROL(CpuAddressingMode.ABSX); break;
+      case 0x2A/*ACC*/: _A = opRotateLeft(_A); break;
+      case 0x26/*ZP*/: opROL(calculateMemoryAddressZP()); break;
+      case 0x36/*ZP,X*/: opROL(calculateMemoryAddressZPX()); break;
+      case 0x2E/*ABS*/: opROL(calculateMemoryAddressABS()); break;
+      case 0x3E/*ABS,X*/: opROL(calculateMemoryAddressABSX(false)); break;
 
       /*41.ROR*/
-      case 0x6A/*ACC*/: opROR(CpuAddressingMode.ACC); break;
-      case 0x66/*ZP*/: opROR(CpuAddressingMode.ZP); break;
-      case 0x76/*ZP,X*/: opROR(CpuAddressingMode.ZPX); break;
-      case 0x6E/*ABS*/: opROR(CpuAddressingMode.ABS); break;
-      case 0x7E/*ABS,X*/: opROR(CpuAddressingMode.ABSX); break;
+      case 0x6A/*ACC*/: _A = opRotateRight(_A); break;
+      case 0x66/*ZP*/: opROR(calculateMemoryAddressZP()); break;
+      case 0x76/*ZP,X*/: opROR(calculateMemoryAddressZPX()); break;
+      case 0x6E/*ABS*/: opROR(calculateMemoryAddressABS()); break;
+      case 0x7E/*ABS,X*/: opROR(calculateMemoryAddressABSX(false)); break;
 
       /*42.RTI*/
       case 0x40/*IMPL*/: opRTI(); break;
@@ -645,14 +788,14 @@ public class Cpu implements CpuPin {
       case 0x60/*IMPL*/: opRTS(); break;
 
       /*44.SBC*/
-      case 0xE9/*IMM*/: opSBC(CpuAddressingMode.IMM); break;
-      case 0xE5/*ZP*/: opSBC(CpuAddressingMode.ZP); break;
-      case 0xF5/*ZP,X*/: opSBC(CpuAddressingMode.ZPX); break;
-      case 0xED/*ABS*/: opSBC(CpuAddressingMode.ABS); break;
-      case 0xFD/*ABS,X+*/: opSBC(CpuAddressingMode.ABSX_); break;
-      case 0xF9/*ABS,Y+*/: opSBC(CpuAddressingMode.ABSY_); break;
-      case 0xE1/*(IND,X)*/: opSBC(CpuAddressingMode._INDX); break;
-      case 0xF1/*(IND),Y+*/: opSBC(CpuAddressingMode._IND_Y_); break;
+      case 0xE9/*IMM*/: opSBC(calculateMemoryAddressIMM()); break;
+      case 0xE5/*ZP*/: opSBC(calculateMemoryAddressZP()); break;
+      case 0xF5/*ZP,X*/: opSBC(calculateMemoryAddressZPX()); break;
+      case 0xED/*ABS*/: opSBC(calculateMemoryAddressABS()); break;
+      case 0xFD/*ABS,X+*/: opSBC(calculateMemoryAddressABSX(true)); break;
+      case 0xF9/*ABS,Y+*/: opSBC(calculateMemoryAddressABSY(true)); break;
+      case 0xE1/*(IND,X)*/: opSBC(calculateMemoryAddress_INDX_()); break;
+      case 0xF1/*(IND),Y+*/: opSBC(calculateMemoryAddress_IND_Y(true)); break;
 
       /*45.SEC*/
       case 0x38/*IMPL*/: _P = _P | C_FLAG; break;
@@ -664,23 +807,23 @@ public class Cpu implements CpuPin {
       case 0x78/*IMPL*/: _P = _P | I_FLAG; break;
 
       /*48.STA*/
-      case 0x85/*ZP*/: opSTA(CpuAddressingMode.ZP); break;
-      case 0x95/*ZP,X*/: opSTA(CpuAddressingMode.ZPX); break;
-      case 0x8D/*ABS*/: opSTA(CpuAddressingMode.ABS); break;
-      case 0x9D/*ABS,X*/: opSTA(CpuAddressingMode.ABSX); break;
-      case 0x99/*ABS,Y*/: opSTA(CpuAddressingMode.ABSY); break;
-      case 0x81/*(IND,X)*/: opSTA(CpuAddressingMode._INDX); break;
-      case 0x91/*(IND),Y*/: opSTA(CpuAddressingMode._IND_Y); break;
+      case 0x85/*ZP*/: opSTA(calculateMemoryAddressZP()); break;
+      case 0x95/*ZP,X*/: opSTA(calculateMemoryAddressZPX()); break;
+      case 0x8D/*ABS*/: opSTA(calculateMemoryAddressABS()); break;
+      case 0x9D/*ABS,X*/: opSTA(calculateMemoryAddressABSX(false)); break;
+      case 0x99/*ABS,Y*/: opSTA(calculateMemoryAddressABSY(false)); break;
+      case 0x81/*(IND,X)*/: opSTA(calculateMemoryAddress_INDX_()); break;
+      case 0x91/*(IND),Y*/: opSTA(calculateMemoryAddress_IND_Y(false)); break;
 
       /*49.STX*/
-      case 0x86/*ZP*/: opSTX(CpuAddressingMode.ZP); break;
-      case 0x96/*ZP,Y*/: opSTX(CpuAddressingMode.ZPY); break;
-      case 0x8E/*ABS*/: opSTX(CpuAddressingMode.ABS); break;
+      case 0x86/*ZP*/: opSTX(calculateMemoryAddressZP()); break;
+      case 0x96/*ZP,Y*/: opSTX(calculateMemoryAddressZPY()); break;
+      case 0x8E/*ABS*/: opSTX(calculateMemoryAddressABS()); break;
 
       /*50.STY*/
-      case 0x84/*ZP*/: opSTY(CpuAddressingMode.ZP); break;
-      case 0x94/*ZP,X*/: opSTY(CpuAddressingMode.ZPX); break;
-      case 0x8C/*ABS*/: opSTY(CpuAddressingMode.ABS); break;
+      case 0x84/*ZP*/: opSTY(calculateMemoryAddressZP()); break;
+      case 0x94/*ZP,X*/: opSTY(calculateMemoryAddressZPX()); break;
+      case 0x8C/*ABS*/: opSTY(calculateMemoryAddressABS()); break;
 
       /*51.TAX*/
       case 0xAA/*IMPL*/:opTAX();break;
@@ -705,119 +848,118 @@ public class Cpu implements CpuPin {
 //       */
 
       /*DOP*/
-      case 0x04/*ZP*/: opDOP(CpuAddressingMode.ZP); break;
-      case 0x14/*ZP,X*/: opDOP(CpuAddressingMode.ZPX); break;
-      case 0x34/*ZP,X*/: opDOP(CpuAddressingMode.ZPX); break;
-      case 0x44/*ZP*/: opDOP(CpuAddressingMode.ZP); break;
-      case 0x54/*ZP,X*/: opDOP(CpuAddressingMode.ZPX); break;
-      case 0x64/*ZP*/: opDOP(CpuAddressingMode.ZP); break;
-      case 0x74/*ZP,X*/: opDOP(CpuAddressingMode.ZPX); break;
-      case 0x80/*IMM*/: opDOP(CpuAddressingMode.IMM); break;
-      case 0x82/*IMM*/: opDOP(CpuAddressingMode.IMM); break;
-      case 0x89/*IMM*/: opDOP(CpuAddressingMode.IMM); break;
-      case 0xC2/*IMM*/: opDOP(CpuAddressingMode.IMM); break;
-      case 0xD4/*ZP,X*/: opDOP(CpuAddressingMode.ZPX); break;
-      case 0xE2/*IMM*/: opDOP(CpuAddressingMode.IMM); break;
-      case 0xF4/*ZP,X*/: opDOP(CpuAddressingMode.ZPX); break;
+      case 0x04/*ZP*/: opDOP(calculateMemoryAddressZP()); break;
+      case 0x14/*ZP,X*/: opDOP(calculateMemoryAddressZPX()); break;
+      case 0x34/*ZP,X*/: opDOP(calculateMemoryAddressZPX()); break;
+      case 0x44/*ZP*/: opDOP(calculateMemoryAddressZP()); break;
+      case 0x54/*ZP,X*/: opDOP(calculateMemoryAddressZPX()); break;
+      case 0x64/*ZP*/: opDOP(calculateMemoryAddressZP()); break;
+      case 0x74/*ZP,X*/: opDOP(calculateMemoryAddressZPX()); break;
+      case 0x80/*IMM*/: opDOP(calculateMemoryAddressIMM()); break;
+      case 0x82/*IMM*/: opDOP(calculateMemoryAddressIMM()); break;
+      case 0x89/*IMM*/: opDOP(calculateMemoryAddressIMM()); break;
+      case 0xC2/*IMM*/: opDOP(calculateMemoryAddressIMM()); break;
+      case 0xD4/*ZP,X*/: opDOP(calculateMemoryAddressZPX()); break;
+      case 0xE2/*IMM*/: opDOP(calculateMemoryAddressIMM()); break;
+      case 0xF4/*ZP,X*/: opDOP(calculateMemoryAddressZPX()); break;
 
       /*TOP*/
-      case 0x0C/*ABS*/: opTOP(CpuAddressingMode.ABS); break;
-      case 0x1C/*ABS,X*/: opTOP(CpuAddressingMode.ABSX_); break;
-      case 0x3C/*ABS,X*/: opTOP(CpuAddressingMode.ABSX_); break;
-      case 0x5C/*ABS,X*/: opTOP(CpuAddressingMode.ABSX_); break;
-      case 0x7C/*ABS,X*/: opTOP(CpuAddressingMode.ABSX_); break;
-      case 0xDC/*ABS,X*/: opTOP(CpuAddressingMode.ABSX_); break;
-      case 0xFC/*ABS,X*/: opTOP(CpuAddressingMode.ABSX_); break;
+      case 0x0C/*ABS*/: opTOP(calculateMemoryAddressABS()); break;
+      case 0x1C/*ABS,X*/: opTOP(calculateMemoryAddressABSX(true)); break;
+      case 0x3C/*ABS,X*/: opTOP(calculateMemoryAddressABSX(true)); break;
+      case 0x5C/*ABS,X*/: opTOP(calculateMemoryAddressABSX(true)); break;
+      case 0x7C/*ABS,X*/: opTOP(calculateMemoryAddressABSX(true)); break;
+      case 0xDC/*ABS,X*/: opTOP(calculateMemoryAddressABSX(true)); break;
+      case 0xFC/*ABS,X*/: opTOP(calculateMemoryAddressABSX(true)); break;
 
       /*LAX*/
-      case 0xA7/*ZP*/: opLAX(CpuAddressingMode.ZP); break;
-      case 0xB7/*ZP,Y*/: opLAX(CpuAddressingMode.ZPY); break;
-      case 0xAF/*ABS*/: opLAX(CpuAddressingMode.ABS); break;
-      case 0xBF/*ABS,Y*/: opLAX(CpuAddressingMode.ABSY); break;
-      case 0xA3/*(IND,X)*/: opLAX(CpuAddressingMode._INDX); break;
-      case 0xB3/*(IND),Y+*/: opLAX(CpuAddressingMode._IND_Y_); break;
+      case 0xA7/*ZP*/: opLAX(calculateMemoryAddressZP()); break;
+      case 0xB7/*ZP,Y*/: opLAX(calculateMemoryAddressZPY()); break;
+      case 0xAF/*ABS*/: opLAX(calculateMemoryAddressABS()); break;
+      case 0xBF/*ABS,Y*/: opLAX(calculateMemoryAddressABSY(false)); break;
+      case 0xA3/*(IND,X)*/: opLAX(calculateMemoryAddress_INDX_()); break;
+      case 0xB3/*(IND),Y+*/: opLAX(calculateMemoryAddress_IND_Y(true)); break;
 
       /*AAX*/
-      case 0x87/*ZP*/: opAAX(CpuAddressingMode.ZP); break;
-      case 0x97/*ZP,Y*/: opAAX(CpuAddressingMode.ZPY); break;
-      case 0x83/*(IND,X)*/: opAAX(CpuAddressingMode._INDX); break;
-      case 0x8F/*ABS*/: opAAX(CpuAddressingMode.ABS); break;
+      case 0x87/*ZP*/: opAAX(calculateMemoryAddressZP()); break;
+      case 0x97/*ZP,Y*/: opAAX(calculateMemoryAddressZPY()); break;
+      case 0x83/*(IND,X)*/: opAAX(calculateMemoryAddress_INDX_()); break;
+      case 0x8F/*ABS*/: opAAX(calculateMemoryAddressABS()); break;
 
       /*SBC*/
-      case 0xEB/*IMM*/: opSBC(CpuAddressingMode.IMM); break;
+      case 0xEB/*IMM*/: opSBC(calculateMemoryAddressIMM()); break;
 
       /*DCP*/
-      case 0xC7/*ZP*/: opDCP(CpuAddressingMode.ZP); break;
-      case 0xD7/*ZP,X*/: opDCP(CpuAddressingMode.ZPX); break;
-      case 0xCF/*ABS*/: opDCP(CpuAddressingMode.ABS); break;
-      case 0xDF/*ABS,X*/: opDCP(CpuAddressingMode.ABSX); break;
-      case 0xDB/*ABS,Y*/: opDCP(CpuAddressingMode.ABSY); break;
-      case 0xC3/*(IND,X)*/: opDCP(CpuAddressingMode._INDX); break;
-      case 0xD3/*(IND),Y*/: opDCP(CpuAddressingMode._IND_Y); break;
+      case 0xC7/*ZP*/: opDCP(calculateMemoryAddressZP()); break;
+      case 0xD7/*ZP,X*/: opDCP(calculateMemoryAddressZPX()); break;
+      case 0xCF/*ABS*/: opDCP(calculateMemoryAddressABS()); break;
+      case 0xDF/*ABS,X*/: opDCP(calculateMemoryAddressABSX(false)); break;
+      case 0xDB/*ABS,Y*/: opDCP(calculateMemoryAddressABSY(false)); break;
+      case 0xC3/*(IND,X)*/: opDCP(calculateMemoryAddress_INDX_()); break;
+      case 0xD3/*(IND),Y*/: opDCP(calculateMemoryAddress_IND_Y(false)); break;
 
       /*ISC*/
-      case 0xE7/*ZP*/: opISC(CpuAddressingMode.ZP); break;
-      case 0xF7/*ZPX*/: opISC(CpuAddressingMode.ZPX); break;
-      case 0xEF/*ABS*/: opISC(CpuAddressingMode.ABS); break;
-      case 0xFF/*ABS,X*/: opISC(CpuAddressingMode.ABSX); break;
-      case 0xFB/*ABS,Y*/: opISC(CpuAddressingMode.ABSY); break;
-      case 0xE3/*(IND,X)*/: opISC(CpuAddressingMode._INDX); break;
-      case 0xF3/*(IND),Y*/: opISC(CpuAddressingMode._IND_Y); break;
+      case 0xE7/*ZP*/: opISC(calculateMemoryAddressZP()); break;
+      case 0xF7/*ZPX*/: opISC(calculateMemoryAddressZPX()); break;
+      case 0xEF/*ABS*/: opISC(calculateMemoryAddressABS()); break;
+      case 0xFF/*ABS,X*/: opISC(calculateMemoryAddressABSX(false)); break;
+      case 0xFB/*ABS,Y*/: opISC(calculateMemoryAddressABSY(false)); break;
+      case 0xE3/*(IND,X)*/: opISC(calculateMemoryAddress_INDX_()); break;
+      case 0xF3/*(IND),Y*/: opISC(calculateMemoryAddress_IND_Y(false)); break;
 
       /*SLO*/
-      case 0x07/*ZP*/: opSLO(CpuAddressingMode.ZP); break;
-      case 0x17/*ZP,X*/: opSLO(CpuAddressingMode.ZPX); break;
-      case 0x0F/*ABS*/: opSLO(CpuAddressingMode.ABS); break;
-      case 0x1F/*ABS,X*/: opSLO(CpuAddressingMode.ABSX); break;
-      case 0x1B/*ABS,Y*/: opSLO(CpuAddressingMode.ABSY); break;
-      case 0x03/*(IND,X)*/: opSLO(CpuAddressingMode._INDX); break;
-      case 0x13/*(IND),Y*/: opSLO(CpuAddressingMode._IND_Y); break;
+      case 0x07/*ZP*/: opSLO(calculateMemoryAddressZP()); break;
+      case 0x17/*ZP,X*/: opSLO(calculateMemoryAddressZPX()); break;
+      case 0x0F/*ABS*/: opSLO(calculateMemoryAddressABS()); break;
+      case 0x1F/*ABS,X*/: opSLO(calculateMemoryAddressABSX(false)); break;
+      case 0x1B/*ABS,Y*/: opSLO(calculateMemoryAddressABSY(false)); break;
+      case 0x03/*(IND,X)*/: opSLO(calculateMemoryAddress_INDX_()); break;
+      case 0x13/*(IND),Y*/: opSLO(calculateMemoryAddress_IND_Y(false)); break;
 
       /*RLA*/
-      case 0x27/*ZP*/: opRLA(CpuAddressingMode.ZP); break;
-      case 0x37/*ZP,X*/: opRLA(CpuAddressingMode.ZPX); break;
-      case 0x2F/*ABS*/: opRLA(CpuAddressingMode.ABS); break;
-      case 0x3F/*ABS,X*/: opRLA(CpuAddressingMode.ABSX); break;
-      case 0x3B/*ABS,Y*/: opRLA(CpuAddressingMode.ABSY); break;
-      case 0x23/*(IND,X)*/: opRLA(CpuAddressingMode._INDX); break;
-      case 0x33/*(IND),Y*/: opRLA(CpuAddressingMode._IND_Y); break;
+      case 0x27/*ZP*/: opRLA(calculateMemoryAddressZP()); break;
+      case 0x37/*ZP,X*/: opRLA(calculateMemoryAddressZPX()); break;
+      case 0x2F/*ABS*/: opRLA(calculateMemoryAddressABS()); break;
+      case 0x3F/*ABS,X*/: opRLA(calculateMemoryAddressABSX(false)); break;
+      case 0x3B/*ABS,Y*/: opRLA(calculateMemoryAddressABSY(false)); break;
+      case 0x23/*(IND,X)*/: opRLA(calculateMemoryAddress_INDX_()); break;
+      case 0x33/*(IND),Y*/: opRLA(calculateMemoryAddress_IND_Y(false)); break;
 
       /*SRE*/
-      case 0x47/*ZP*/: opSRE(CpuAddressingMode.ZP); break;
-      case 0x57/*ZP,X*/: opSRE(CpuAddressingMode.ZPX); break;
-      case 0x4F/*ABS*/: opSRE(CpuAddressingMode.ABS); break;
-      case 0x5F/*ABS,X*/: opSRE(CpuAddressingMode.ABSX); break;
-      case 0x5B/*ABS,Y*/: opSRE(CpuAddressingMode.ABSY); break;
-      case 0x43/*(IND,X)*/: opSRE(CpuAddressingMode._INDX); break;
-      case 0x53/*(IND),Y*/: opSRE(CpuAddressingMode._IND_Y); break;
+      case 0x47/*ZP*/: opSRE(calculateMemoryAddressZP()); break;
+      case 0x57/*ZP,X*/: opSRE(calculateMemoryAddressZPX()); break;
+      case 0x4F/*ABS*/: opSRE(calculateMemoryAddressABS()); break;
+      case 0x5F/*ABS,X*/: opSRE(calculateMemoryAddressABSX(false)); break;
+      case 0x5B/*ABS,Y*/: opSRE(calculateMemoryAddressABSY(false)); break;
+      case 0x43/*(IND,X)*/: opSRE(calculateMemoryAddress_INDX_()); break;
+      case 0x53/*(IND),Y*/: opSRE(calculateMemoryAddress_IND_Y(false)); break;
 
       /*RRA*/
-      case 0x67/*ZP*/: opRRA(CpuAddressingMode.ZP); break;
-      case 0x77/*ZP,X*/: opRRA(CpuAddressingMode.ZPX); break;
-      case 0x6F/*ABS*/: opRRA(CpuAddressingMode.ABS); break;
-      case 0x7F/*ABS,X*/: opRRA(CpuAddressingMode.ABSX); break;
-      case 0x7B/*ABS,Y*/: opRRA(CpuAddressingMode.ABSY); break;
-      case 0x63/*(IND,X)*/: opRRA(CpuAddressingMode._INDX); break;
-      case 0x73/*(IND),Y*/: opRRA(CpuAddressingMode._IND_Y); break;
+      case 0x67/*ZP*/: opRRA(calculateMemoryAddressZP()); break;
+      case 0x77/*ZP,X*/: opRRA(calculateMemoryAddressZPX()); break;
+      case 0x6F/*ABS*/: opRRA(calculateMemoryAddressABS()); break;
+      case 0x7F/*ABS,X*/: opRRA(calculateMemoryAddressABSX(false)); break;
+      case 0x7B/*ABS,Y*/: opRRA(calculateMemoryAddressABSY(false)); break;
+      case 0x63/*(IND,X)*/: opRRA(calculateMemoryAddress_INDX_()); break;
+      case 0x73/*(IND),Y*/: opRRA(calculateMemoryAddress_IND_Y(false)); break;
       }
    }
 
-   private void opADC(CpuAddressingMode mode) {
-      int address = calculateMemoryAddress(mode);
+   /*package*/ void opADC(int address) {
       int value = readMemory(address);
 
       if ((_P & D_FLAG) == 0 || !_decimalModeSupported) {
          int res = _A + value + ((_P & C_FLAG) != 0 ? 1 : 0);
 
-         _P = _P & ~(N_FLAG | V_FLAG | Z_FLAG | C_FLAG); // Clear flags
-         _P = _P | (res & N_FLAG); // N
+         _P = _P & ~(V_FLAG | C_FLAG); // Clear flags
          _P = _P | ((~(_A ^ value) & (_A ^ (res & 0xFF)) & 0x80) != 0 ? V_FLAG : 0); // V
-         _P = _P | ((res & 0xFF) == 0 ? Z_FLAG : 0); // Z
          _P = _P | (res > 0xFF ? C_FLAG : 0); // C
 
          _A = res & 0xFF;
+         _NZ = _A; // N, Z
       } else {
-         int carry = (_P & C_FLAG) != 0 ? 1 : 0;
+         int P = getP();
+         int carry = (P & C_FLAG) != 0 ? 1 : 0;
          int AL = (_A & 15) + (value & 15) + carry; // Calculate the lower nybble.
          int AH = (_A >> 4) + (value >> 4) + (AL > 15 ? 1 : 0); // Calculate the upper nybble.
 
@@ -827,85 +969,77 @@ public class Cpu implements CpuPin {
 
            /* Negative and Overflow flags are set with the same logic than in
               Binary mode, but after fixing the lower nybble. */
-           _P = _P | ((AH & 8) != 0 ? N_FLAG : 0); // N
-           _P = _P | (((((AH << 4) ^ _A) & 128) != 0) && (((_A ^ value) & 128) == 0) ? V_FLAG : 0); // V
+           P = P | ((AH & 8) != 0 ? N_FLAG : 0); // N
+           P = P | (((((AH << 4) ^ _A) & 128) != 0) && (((_A ^ value) & 128) == 0) ? V_FLAG : 0); // V
            // Z flag is set just like in Binary mode.
-           _P = _P | (_A + value + carry != 0 ? Z_FLAG : 0); // Z
+           P = P | (_A + value + carry != 0 ? Z_FLAG : 0); // Z
 
            if (AH > 9) {
               AH += 6; // BCD fix up for upper nybble.
            }
            /* Carry is the only flag set after fixing the result. */
-           _P = _P | (AH > 15 ? C_FLAG : 0); // C
+           P = P | (AH > 15 ? C_FLAG : 0); // C
+           setP(P);
            _A = ((AH << 4) | (AL & 15)) & 255;
       }
    }
 
-   private void opAND(CpuAddressingMode mode) {
-      int address = calculateMemoryAddress(mode);
+   /*package*/ void opAND(int address) {
       int value = readMemory(address);
 
       _A = _A & value;
-      _P = _P & ~(N_FLAG | Z_FLAG); // Clear flags
-      _P = _P | ((_A & 0x80) != 0 ? N_FLAG : 0); // N
-      _P = _P | (_A == 0 ? Z_FLAG : 0); // Z
+      _NZ = _A; // N, Z
    }
 
-   private void opASL(CpuAddressingMode mode) {
-      if (mode == CpuAddressingMode.ACC) {
-         _A = opASL(_A);
-      } else {
-         int address = calculateMemoryAddress(mode);
-         int value = readMemory(address);
+   /*package*/ void opASL(int address) {
+      int value = readMemory(address);
 
-         int newValue = opASL(value);
-         writeMemory(address, newValue);
-      }
+      int newValue = opShiftLeft(value);
+      writeMemory(address, newValue);
    }
 
-   private int opASL(int value) {
+   /*package*/ int opShiftLeft(int value) {
       int res = (value << 1) & 0xFF;
-      _P = _P & ~(N_FLAG | Z_FLAG | C_FLAG); // Clear flags
-      _P = _P | ((res & 0x80) > 0 ? N_FLAG : 0); // N
-      _P = _P | (res == 0 ? Z_FLAG : 0); // Z
+      _P = _P & ~C_FLAG; // Clear flags
+      _NZ = res; // N, Z
       _P = _P | ((value & 0x80) > 0 ? C_FLAG : 0); // C
 
       return res;
    }
 
-   private void opBCC(CpuAddressingMode mode) {
-      opBranch((_P & C_FLAG) == 0, calculateMemoryAddress(mode));
+   /*package*/ void opBCC(int jumpAddress) {
+      opBranch((_P & C_FLAG) == 0, jumpAddress);
    }
 
-   private void opBCS(CpuAddressingMode mode) {
-      opBranch((_P & C_FLAG) != 0, calculateMemoryAddress(mode));
+   /*package*/ void opBCS(int jumpAddress) {
+      opBranch((_P & C_FLAG) != 0, jumpAddress);
    }
 
-   private void opBEQ(CpuAddressingMode mode) {
-      opBranch((_P & Z_FLAG) != 0, calculateMemoryAddress(mode));
+   /*package*/ void opBEQ(int jumpAddress) {
+      opBranch((_NZ & 0xFF) == 0, jumpAddress);
    }
 
-   private void opBMI(CpuAddressingMode mode) {
-      opBranch((_P & N_FLAG) != 0, calculateMemoryAddress(mode));
+   /*package*/ void opBMI(int jumpAddress) {
+      opBranch((_NZ & 0x180) != 0, jumpAddress);
    }
 
-   private void opBNE(CpuAddressingMode mode) {
-      opBranch((_P & Z_FLAG) == 0, calculateMemoryAddress(mode));
+   /*package*/ void opBNE(int jumpAddress) {
+      opBranch((_NZ & 0xFF) != 0, jumpAddress);
    }
 
-   private void opBPL(CpuAddressingMode mode) {
-      opBranch((_P & N_FLAG) == 0, calculateMemoryAddress(mode));
+   /*package*/ void opBPL(int jumpAddress) {
+      opBranch((_NZ & 0x180) == 0, jumpAddress);
    }
 
-   private void opBVC(CpuAddressingMode mode) {
-      opBranch((_P & V_FLAG) == 0, calculateMemoryAddress(mode));
+   /*package*/ void opBVC(int jumpAddress) {
+      opBranch((_P & V_FLAG) == 0, jumpAddress);
    }
 
-   private void opBVS(CpuAddressingMode mode) {
-      opBranch((_P & V_FLAG) != 0, calculateMemoryAddress(mode));
+   /*package*/ void opBVS(int jumpAddress) {
+      opBranch((_P & V_FLAG) != 0, jumpAddress);
    }
 
-   private void opBranch(boolean condition, int jumpAddress) {
+   /*package*/ void opBranch(boolean condition, int jumpAddress) {
       if (condition) {
          if (isPageBoundaryCrossed(_PC, jumpAddress)) {
             _opCycles += 2;
@@ -913,271 +1047,225 @@ public class Cpu implements CpuPin {
             _opCycles += 1;
          }
 
+         int opAddress = _PC - 2;
          _PC = jumpAddress;
+         if (jumpAddress <= opAddress) {
+            handleBackJump(opAddress);
+         }
       }
    }
 
-   private void opBIT(CpuAddressingMode mode) {
-      int address = calculateMemoryAddress(mode);
+   /*package*/ void opBIT(int address) {
       int value = readMemory(address);
 
-      _P = _P & ~(N_FLAG | V_FLAG | Z_FLAG); // Clear flags
-      _P = _P | ((value & 0x80) != 0 ? N_FLAG : 0); // N
+      _P = _P & ~V_FLAG; // Clear flags
       _P = _P | ((value & 0x40) != 0 ? V_FLAG : 0); // V
-      _P = _P | ((_A & value) == 0 ? Z_FLAG : 0); // Z
+      _NZ = (_A & value) | ((value & 0x80) << 1); // N from the value, Z from the and
    }
 
-   private void opBRK() {
+   /*package*/ void opBRK() {
       _PC++; // skip next bite (usually it is a NOP or number that is analyzed by the interrupt handler)
       push(_PC >> 8); // push high bits
       push(_PC & 0xFF); // push low bits
       _P = _P | B_FLAG; // B
-      push(_P);
+      push(getP());
       _PC = (readMemory(0xFFFF) << 8)|readMemory(0xFFFE);
    }
 
-   private void opCMP(CpuAddressingMode mode) {
-      int address = calculateMemoryAddress(mode);
+   /*package*/ void opCMP(int address) {
       int value = readMemory(address);
       opCompare(_A, value);
    }
 
-   private void opCPX(CpuAddressingMode mode) {
-      int address = calculateMemoryAddress(mode);
+   /*package*/ void opCPX(int address) {
       int value = readMemory(address);
       opCompare(_X, value);
    }
 
-   private void opCPY(CpuAddressingMode mode) {
-      int address = calculateMemoryAddress(mode);
+   /*package*/ void opCPY(int address) {
       int value = readMemory(address);
       opCompare(_Y, value);
    }
 
-   private void opCompare(int register, int value) {
-      int res = (register - value) & 0xFF;
-      _P = _P & ~(N_FLAG | Z_FLAG | C_FLAG); // Clear flags
-      _P = _P | ((res & 0x80) != 0 ? N_FLAG : 0); // N
-      _P = _P | (res == 0 ? Z_FLAG : 0); // Z
+   /*package*/ void opCompare(int register, int value) {
+      _P = _P & ~C_FLAG; // Clear flags
+      _NZ = (register - value) & 0xFF; // N, Z
       _P = _P | (register >= value ? C_FLAG : 0); // C
    }
 
-   private void opDEC(CpuAddressingMode mode) {
-      int address = calculateMemoryAddress(mode);
+   /*package*/ void opDEC(int address) {
       int value = readMemory(address);
       writeMemory(address, opDecrease(value));
    }
 
-   private int opDecrease(int value) {
+   /*package*/ int opDecrease(int value) {
       int res = (value - 1) & 0xFF;
-      _P = _P & ~(N_FLAG | Z_FLAG); // Clear flags
-      _P = _P | ((res & 0x80) != 0 ? N_FLAG : 0); // N
-      _P = _P | (res == 0 ? Z_FLAG : 0); // Z
+      _NZ = res; // N, Z
       return res;
    }
 
-   private void opEOR(CpuAddressingMode mode) {
-      int address = calculateMemoryAddress(mode);
+   /*package*/ void opEOR(int address) {
       int value = readMemory(address);
-      opEOR(value);
-   }
 
-   private void opEOR(int value) {
       _A = _A ^ value;
-      _P = _P & ~(N_FLAG | Z_FLAG); // Clear flags
-      _P = _P | ((_A & 0x80) != 0 ? N_FLAG : 0); // N
-      _P = _P | (_A == 0 ? Z_FLAG : 0); // Z
+      _NZ = _A; // N, Z
    }
 
-   private void opINC(CpuAddressingMode mode) {
-      int address = calculateMemoryAddress(mode);
+   /*package*/ void opINC(int address) {
       int value = readMemory(address);
       writeMemory(address, opIncrease(value));
    }
 
-   private int opIncrease(int value) {
+   /*package*/ int opIncrease(int value) {
       int res = (value + 1) & 0xFF;
-      _P = _P & ~(N_FLAG | Z_FLAG); // Clear flags
-      _P = _P | ((res & 0x80) != 0 ? N_FLAG : 0); // N
-      _P = _P | (res == 0 ? Z_FLAG : 0); // Z
+      _NZ = res; // N, Z
       return res;
    }
 
-   private void opJMP(CpuAddressingMode mode) {
-      int address = calculateMemoryAddress(mode);
+   /*package*/ void opJMP(int address) {
+      int opAddress = _PC - 3;
       _PC = address;
+      if (address <= opAddress) {
+         handleBackJump(opAddress);
+      }
    }
 
-   private void opJSR(CpuAddressingMode mode) {
-      int address = calculateMemoryAddress(mode);
-
+   /*package*/ void opJSR(int address) {
       _PC--;
       push(_PC >> 8);
       push(_PC & 0xFF);
       _PC = address;
    }
 
-   private void opLDA(CpuAddressingMode mode) {
-      int address = calculateMemoryAddress(mode);
+   /*package*/ void opLDA(int address) {
       int value = readMemory(address);
 
       _A = opLoad(value);
    }
 
-   private void opLDX(CpuAddressingMode mode) {
-      int address = calculateMemoryAddress(mode);
+   /*package*/ void opLDX(int address) {
       int value = readMemory(address);
 
       _X = opLoad(value);
    }
 
-   private void opLDY(CpuAddressingMode mode) {
-      int address = calculateMemoryAddress(mode);
+   /*package*/ void opLDY(int address) {
       int value = readMemory(address);
 
       _Y = opLoad(value);
    }
 
-   private int opLoad(int value) {
-      _P = _P & ~(N_FLAG | Z_FLAG); // Clear flags
-      _P = _P | ((value & 0x80) != 0 ? N_FLAG : 0); // N
-      _P = _P | (value == 0 ? Z_FLAG : 0); // Z
+   /*package*/ int opLoad(int value) {
+      _NZ = value; // N, Z
       return value;
    }
 
-   private void opLSR(CpuAddressingMode mode) {
-      if (mode == CpuAddressingMode.ACC) {
-         _A = opLSR(_A);
-      } else {
-         int address = calculateMemoryAddress(mode);
-         int value = readMemory(address);
+   /*package*/ void opLSR(int address) {
+      int value = readMemory(address);
 
-         int newValue = opLSR(value);
-         writeMemory(address, newValue);
-      }
+      int newValue = opShiftRight(value);
+      writeMemory(address, newValue);
    }
 
-   private int opLSR(int value) {
+   /*package*/ int opShiftRight(int value) {
       int res = 0x7F & (value >> 1);
-      _P = _P & ~(N_FLAG | Z_FLAG | C_FLAG); // clear flags
-      _P = _P | (res == 0 ? Z_FLAG : 0); // Z
+      _P = _P & ~C_FLAG; // clear flags
+      _NZ = res; // N, Z
       _P = _P | ((value & 0x01) != 0 ? C_FLAG : 0); // C
 
       return res;
    }
 
-   private void opORA(CpuAddressingMode mode) {
-      int address = calculateMemoryAddress(mode);
+   /*package*/ void opORA(int address) {
       int value = readMemory(address);
-      opORA(value);
-   }
 
-   private void opORA(int value) {
       _A = _A | value;
-      _P = _P & ~(N_FLAG | Z_FLAG); // Clear flags
-      _P = _P | ((_A & 0x80) != 0 ? N_FLAG : 0); // N
-      _P = _P | (_A == 0 ? Z_FLAG : 0); // Z
+      _NZ = _A; // N, Z
    }
 
-   private void opPHA() {
+   /*package*/ void opPHA() {
       push(_A);
    }
 
-   private void opPHP() {
-      push(_P | B_FLAG);
+   /*package*/ void opPHP() {
+      push(getP() | B_FLAG);
    }
 
-   private void opPLA() {
+   /*package*/ void opPLA() {
       _A = pop();
 
-      _P = _P & ~(N_FLAG | Z_FLAG); // Clear flags
-      _P = _P | (_A & N_FLAG); // N
-      _P = _P | (_A == 0 ? Z_FLAG : 0); // Z;
+      _NZ = _A; // N, Z
    }
 
-   private void opPLP() {
-      _P = pop() & ~B_FLAG | R_FLAG;
+   /*package*/ void opPLP() {
+      setP(pop() & ~B_FLAG | R_FLAG);
    }
 
-   private void opROL(CpuAddressingMode mode) {
-      if (mode == CpuAddressingMode.ACC) {
-         _A = opROL(_A);
-      } else {
-         int address = calculateMemoryAddress(mode);
-         int value = readMemory(address);
+   /*package*/ void opROL(int address) {
+      int value = readMemory(address);
 
-         int newValue = opROL(value);
-         writeMemory(address, newValue);
-      }
+      int newValue = opRotateLeft(value);
+      writeMemory(address, newValue);
    }
 
-   private int opROL(int value) {
+   /*package*/ int opRotateLeft(int value) {
       int res = (value << 1) & 0xFF;
       res = res | ((_P & C_FLAG) != 0 ? 1 : 0);
-      _P = _P & ~(N_FLAG | Z_FLAG | C_FLAG); // Clear flags
+      _P = _P & ~C_FLAG; // Clear flags
 
-      _P = _P | ((res & 0x80) != 0 ? N_FLAG : 0); // N
-      _P = _P | (res == 0 ? Z_FLAG : 0); // Z;
+      _NZ = res; // N, Z
       _P = _P | ((value & 0x80) != 0 ? C_FLAG : 0); // C
 
       return res;
    }
 
-   private void opROR(CpuAddressingMode mode) {
-      if (mode == CpuAddressingMode.ACC) {
-         _A = opROR(_A);
-      } else {
-         int address = calculateMemoryAddress(mode);
-         int value = readMemory(address);
+   /*package*/ void opROR(int address) {
+      int value = readMemory(address);
 
-         int newValue = opROR(value);
-         writeMemory(address, newValue);
-      }
+      int newValue = opRotateRight(value);
+      writeMemory(address, newValue);
    }
 
-   private int opROR(int value) {
+   /*package*/ int opRotateRight(int value) {
       int res = (value >> 1) & 0xFF;
       res = res | ((_P & C_FLAG) != 0 ? 0x80 : 0);
-      _P = _P & ~(N_FLAG | Z_FLAG | C_FLAG); // Clear flags
-      _P = _P | ((res & 0x80) != 0 ? N_FLAG : 0); // N
-      _P = _P | (res == 0 ? Z_FLAG : 0); // Z;
+      _P = _P & ~C_FLAG; // Clear flags
+      _NZ = res; // N, Z
       _P = _P | ((value & 0x01) != 0 ? C_FLAG : 0); // C
 
       return res;
    }
 
-   private void opRTI() {
-      _P = pop() & ~B_FLAG;
-      _P = _P | R_FLAG;
+   /*package*/ void opRTI() {
+      setP(pop() & ~B_FLAG | R_FLAG);
       int PCL = pop();
       int PCH = pop();
       _PC = (PCH << 8) | PCL;
    }
 
-   private void opRTS() {
+   /*package*/ void opRTS() {
       int PCL = pop();
       int PCH = pop();
       _PC = (PCH << 8) | PCL;
       _PC++;
    }
 
-   private void opSBC(CpuAddressingMode mode) {
-      int address = calculateMemoryAddress(mode);
+   /*package*/ void opSBC(int address) {
       int value = readMemory(address);
 
       if ((_P & D_FLAG) == 0 || !_decimalModeSupported) {
          int res = _A - value - ((_P & C_FLAG) != 0 ? 0 : 1);
 
-         _P = _P & ~(N_FLAG | V_FLAG | Z_FLAG | C_FLAG); // Clear flags
-         _P = _P | (res & N_FLAG); // N
+         _P = _P & ~(V_FLAG | C_FLAG); // Clear flags
          _P = _P | (((_A ^ value) & (_A ^ (0xFF & res)) & 0x80) != 0 ? V_FLAG : 0); // V
-         _P = _P | ((res & 0xFF) == 0 ? Z_FLAG : 0); // Z
          _P = _P | ((res & 0x100) != 0 ? 0: C_FLAG); // C
          //_P = _P | (res > 0xFF ? C_FLAG : 0); // C
 
          _A = 0xFF & res;
+         _NZ = _A; // N, Z
       } else {
-         int borrow = ((_P & C_FLAG) != 0 ? 0 : 1);
+         int P = getP();
+         int borrow = ((P & C_FLAG) != 0 ? 0 : 1);
          int AL = (_A & 15) - (value & 15) - borrow; // Calculate the lower nybble.
          if ((AL & 16) != 0) {
             AL -= 6; // BCD fix up for lower nybble.
@@ -1188,98 +1276,89 @@ public class Cpu implements CpuPin {
             AH -= 6; // BCD fix up for upper nybble.
          }
 
-         _P = _P | (((_A - value - borrow) & 128) != 0 ? N_FLAG : 0); // N
-         _P = _P | ((((_A - value - borrow) ^ value) & 128) != 0 && ((_A ^ value) & 128) != 0 ? V_FLAG : 0); // V
-         _P = _P | (((_A - value - borrow) & 255) != 0 ? Z_FLAG : 0); // Z
-         _P = _P | (((_A - value - borrow) & 256) != 0 ? C_FLAG : 0); // C
+         P = P | (((_A - value - borrow) & 128) != 0 ? N_FLAG : 0); // N
+         P = P | ((((_A - value - borrow) ^ value) & 128) != 0 && ((_A ^ value) & 128) != 0 ? V_FLAG : 0); // V
+         P = P | (((_A - value - borrow) & 255) != 0 ? Z_FLAG : 0); // Z
+         P = P | (((_A - value - borrow) & 256) != 0 ? C_FLAG : 0); // C
+         setP(P);
 
          _A = ((AH << 4) | (AL & 15)) & 255;
       }
    }
 
-   private void opSTA(CpuAddressingMode mode) {
-      int address = calculateMemoryAddress(mode);
+   /*package*/ void opSTA(int address) {
       writeMemory(address, _A);
    }
 
-   private void opSTX(CpuAddressingMode mode) {
-      int address = calculateMemoryAddress(mode);
+   /*package*/ void opSTX(int address) {
       writeMemory(address, _X);
    }
 
-   private void opSTY(CpuAddressingMode mode) {
-      int address = calculateMemoryAddress(mode);
+   /*package*/ void opSTY(int address) {
       writeMemory(address, _Y);
    }
 
-   private void opTAX() {
+   /*package*/ void opTAX() {
       _X = _A;
       transfer(_X);
    }
 
-   private void opTAY() {
+   /*package*/ void opTAY() {
       _Y = _A;
       transfer(_Y);
    }
 
-   private void opTSX() {
+   /*package*/ void opTSX() {
       _X = _S;
       transfer(_X);
    }
 
-   private void opTXA() {
+   /*package*/ void opTXA() {
       _A = _X;
       transfer(_A);
    }
 
-   private void opTXS() {
+   /*package*/ void opTXS() {
       _S = _X;
    }
 
-   private void opTYA() {
+   /*package*/ void opTYA() {
       _A = _Y;
       transfer(_A);
    }
 
    private void transfer(int toRegister) {
-      _P = _P & ~(N_FLAG | Z_FLAG); // Clear flags
-      _P = _P | ((toRegister & 0x80) != 0 ? N_FLAG : 0); // N
-      _P = _P | (toRegister == 0 ? Z_FLAG : 0); // Z
+      _NZ = toRegister; // N, Z
    }
 
-   private void opDOP(CpuAddressingMode mode) {
+   /*package*/ void opDOP(int address) {
       /*DOP double NOP*/
-      readMemory(calculateMemoryAddress(mode));
+      readMemory(address);
    }
 
-   private void opTOP(CpuAddressingMode mode) {
+   /*package*/ void opTOP(int address) {
       /*TOP triple NOP*/
-      readMemory(calculateMemoryAddress(mode));
+      readMemory(address);
    }
 
-   private void opLAX(CpuAddressingMode mode) {
+   /*package*/ void opLAX(int address) {
       /*LAX Load accumulator and X register with memory
         Status flags: N,Z
        */
 
-      int address = calculateMemoryAddress(mode);
       _A = opLoad(readMemory(address));
       _X = _A;
    }
 
-   private void opAAX(CpuAddressingMode mode) {
+   /*package*/ void opAAX(int address) {
       /*AAX (SAX) [AXS] AND X register with accumulator and store result in memory. */
-      int address = calculateMemoryAddress(mode);
-
       int result = _A & _X;
       writeMemory(address, result);
    }
 
-   private void opDCP(CpuAddressingMode mode) {
+   /*package*/ void opDCP(int address) {
       /*DCP (DCP) [DCM]*/
 
-      int address = calculateMemoryAddress(mode);
-
       int value = readMemory(address);
       value = 0xFF & (value - 1);
 //      if (value != 0) {
@@ -1290,32 +1369,28 @@ public class Cpu implements CpuPin {
 
       int valueToTest = _A - value;
 
-      _P = _P & ~(N_FLAG | Z_FLAG | C_FLAG); // Clear flags
-      _P = _P | ((valueToTest & 0x80) != 0 ? N_FLAG : 0); // N
-      _P = _P | ((valueToTest == 0) ? Z_FLAG : 0); // Z
+      _P = _P & ~C_FLAG; // Clear flags
+      _NZ = valueToTest & 0xFF; // N, Z
       _P = _P | ((valueToTest & 0x100) != 0 ? 0 : C_FLAG); // C
 
       writeMemory(address, value);
    }
 
-   private void opISC(CpuAddressingMode mode) {
+   /*package*/ void opISC(int address) {
       /*ISC (ISB) [INS] Increase memory by one, then subtract memory from accumulator (with
         borrow). Status flags: N,V,Z,C*/
 
-      int address = calculateMemoryAddress(mode);
-
       int value = readMemory(address);
       value = 0xFF & (value + 1);
 
       //int result = _A - value + ((_P & C_FLAG) != 0 ? 1 : 0);
       int result = _A - value - ((_P & C_FLAG) != 0 ? 0 : 1);
 
-      _P = _P & ~(N_FLAG | V_FLAG | Z_FLAG | C_FLAG); // Clear flags
+      _P = _P & ~(V_FLAG | C_FLAG); // Clear flags
       _P = _P | (((_A ^ value) & (_A ^ (result & 0xFF)) & 0x80) != 0 ? V_FLAG : 0); // V
       _P = _P | ((result & 0x100) != 0 ? 0 : C_FLAG); // C
       _A = result & 0xFF;
-      _P = _P | ((_A & 0xFF) == 0 ? Z_FLAG : 0); // Z
-      _P = _P | (_A & N_FLAG); // N
+      _NZ = _A; // N, Z
 
 
 //      int res = _A - value - ((_P & C_FLAG) != 0 ? 0 : 1);
@@ -1331,31 +1406,26 @@ public class Cpu implements CpuPin {
       writeMemory(address, value);
    }
 
-   private void opSLO(CpuAddressingMode mode) {
+   /*package*/ void opSLO(int address) {
       /*SLO (SLO) [ASO]
       Shift left one bit in memory, then OR accumulator with memory. =
       Status flags: N,Z,C*/
-      int address = calculateMemoryAddress(mode);
-
       int value = readMemory(address);
       int result = (value << 1) & 0xFF;
 
       _A = _A | result;
 
-      _P = _P & ~(N_FLAG | Z_FLAG | C_FLAG); // Clear flags
-      _P = _P | (_A & N_FLAG); // N
-      _P = _P | (_A == 0 ? Z_FLAG : 0); // Z
+      _P = _P & ~C_FLAG; // Clear flags
+      _NZ = _A; // N, Z
       _P = _P | ((value & 0x80) != 0 ? C_FLAG : 0); // C
 
       writeMemory(address, result);
    }
 
-   private void opRLA(CpuAddressingMode mode) {
+   /*package*/ void opRLA(int address) {
       /*RLA (RLA) [RLA]
       Rotate one bit left in memory, then AND accumulator with memory. Status
       flags: N,Z,C */
-      int address = calculateMemoryAddress(mode);
-
       int value = readMemory(address);
 
 
@@ -1364,53 +1434,46 @@ public class Cpu implements CpuPin {
 
       _A = _A & res;
 
-      _P = _P & ~(N_FLAG | Z_FLAG | C_FLAG); // Clear flags
-      _P = _P | ((_A & 0x80) != 0 ? N_FLAG : 0); // N
-      _P = _P | (_A == 0 ? Z_FLAG : 0); // Z;
+      _P = _P & ~C_FLAG; // Clear flags
+      _NZ = _A; // N, Z
       _P = _P | ((value & 0x80) != 0 ? C_FLAG : 0); // C
 
       writeMemory(address, res);
    }
 
-   private void opSRE(CpuAddressingMode mode) {
+   /*package*/ void opSRE(int address) {
       /*SRE (SRE) [LSE]
       Shift right one bit in memory, then EOR accumulator with memory. Status
       flags: N,Z,C*/
-      int address = calculateMemoryAddress(mode);
-
       int value = readMemory(address);
 
       int res = 0x7F & (value >> 1);
       _A = _A ^ res;
 
-      _P = _P & ~(N_FLAG | Z_FLAG | C_FLAG); // clear flags
-      _P = _P | ((_A & 0x80) != 0 ? N_FLAG : 0); // N
-      _P = _P | (res == 0 ? Z_FLAG : 0); // Z
+      _P = _P & ~C_FLAG; // clear flags
+      _NZ = res | ((_A & 0x80) << 1); // N from A, Z from the shifted value
       _P = _P | ((value & 0x01) != 0 ? C_FLAG : 0); // C
 
       writeMemory(address, res);
 
    }
 
-   private void opRRA(CpuAddressingMode mode) {
+   /*package*/ void opRRA(int address) {
       /*RRA (RRA) [RRA]
       Rotate one bit right in memory, then add memory to accumulator (with carry).
       Status flags: N,V,Z,C*/
-      int address = calculateMemoryAddress(mode);
-
       int value1 = readMemory(address);
       int value = (value1 >> 1) & 0xFF;
       value = value | ((_P & C_FLAG) != 0 ? 0x80 : 0);
 
       int res = _A + value + ((value1 & 0x01) != 0 ? 1 : 0);
 
-      _P = _P & ~(N_FLAG | V_FLAG | Z_FLAG | C_FLAG); // Clear flags
-      _P = _P | (res & N_FLAG); // N
+      _P = _P & ~(V_FLAG | C_FLAG); // Clear flags
       _P = _P | ((~(_A ^ value) & (_A ^ (res & 0xFF)) & 0x80) != 0 ? V_FLAG : 0); // V
-      _P = _P | ((res & 0xFF) == 0 ? Z_FLAG : 0); // Z
       _P = _P | (res > 0xFF ? C_FLAG : 0); // C
 
       _A = res & 0xFF;
+      _NZ = _A; // N, Z
 
       writeMemory(address, value);
    }
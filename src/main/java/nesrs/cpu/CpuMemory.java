@@ -2,5 +2,32 @@ package nesrs.cpu;
 
 public interface CpuMemory {
    public int read(int address);
+   // Returns the cycles the write halts the cpu for DMA, without the one the cpu adds to align
+   // them when it's on an odd cycle
    public int write(int address, int value);
+
+   // Array backing the 256b page if reading it has no side effects (RAM, PRG ROM), or null.
+   // The page starts at getPageOffset(page) in it. Valid until the page map listener is called.
+   public default int[] getPageMemory(int page) {
+      return null;
+   }
+
+   public default int getPageOffset(int page) {
+      return 0;
+   }
+
+   // Whether writes leave the page's memory unchanged (PRG ROM), so code in it can be compiled.
+   public default boolean isPageReadOnly(int page) {
+      return false;
+   }
+
+   // Lower bound of the cycles during which reading the address keeps returning the same value
+   // and doing nothing a repeated read wouldn't, as long as the cpu doesn't write. By default
+   // pages with page memory never change on their own and everything else may at any time.
+   public default int getCyclesToReadChange(int address) {
+      return getPageMemory((address >> 8) & 0xFF) != null ? Integer.MAX_VALUE : 0;
+   }
+
+   public default void setPageMapListener(PageMapListener pageMapListener) {
+   }
 }
@@ -0,0 +1,130 @@
+package nesrs.cpu;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Dynamic recompiler tier of the Cpu. Counts the entries into each address of read-only pages
+ * (PRG ROM) and compiles the block starting there once it's hot. Blocks are kept by the array
+ * backing their page, so switching a bank out and back in doesn't throw them away, and each
+ * lookup goes through the array currently mapped, so a switched out bank's blocks never run.
+ * Ops which would access anything but RAM and ROM are left to the interpreter.
+ */
+final class Dynarec {
+
+   // Entries into an address before the block starting there gets compiled
+   private static final int COMPILE_THRESHOLD = 16;
+
+   private static final CompiledBlock NOT_COMPILABLE = (cpu, dynarec, cycleBudget) -> 0;
+
+   private final CpuMemory _memory;
+   private final BlockCompiler _compiler;
+
+   // Pages compiled code may read and write directly, and the read-only ones it's compiled from
+   private final boolean[] _readablePages = new boolean[256];
+   private final boolean[] _writablePages = new boolean[256];
+   private final boolean[] _executablePages = new boolean[256];
+
+   private final Map<int[], PageBlocks> _pageBlocks = new IdentityHashMap<int[], PageBlocks>();
+   private int[] _lastPageMemory;
+   private PageBlocks _lastPageBlocks;
+
+   private static final class PageBlocks {
+      // By index in the page memory
+      private final CompiledBlock[] _blocks;
+      private final int[] _blockPcs;
+      private final int[] _entries;
+
+      private PageBlocks(int size) {
+         _blocks = new CompiledBlock[size];
+         _blockPcs = new int[size];
+         _entries = new int[size];
+      }
+   }
+
+   Dynarec(CpuMemory memory) {
+      _memory = memory;
+      _compiler = new BlockCompiler(this);
+
+      updatePages();
+   }
+
+   boolean canRead(int address) {
+      return _readablePages[(address >> 8) & 0xFF];
+   }
+
+   boolean canWrite(int address) {
+      return _writablePages[(address >> 8) & 0xFF];
+   }
+
+   void handlePageMapChange() {
+      // Compiled code only depends on the kind of each page
+      if (updatePages()) {
+         _pageBlocks.clear();
+         _lastPageMemory = null;
+         _lastPageBlocks = null;
+      }
+   }
+
+   private boolean updatePages() {
+      boolean changed = false;
+
+      for (int page = 0; page < 256; page++) {
+         boolean readable = _memory.getPageMemory(page) != null;
+         boolean executable = readable && _memory.isPageReadOnly(page);
+         boolean writable = readable && !executable;
+
+         changed |= readable != _readablePages[page]
+               || writable != _writablePages[page]
+               || executable != _executablePages[page];
+
+         _readablePages[page] = readable;
+         _writablePages[page] = writable;
+         _executablePages[page] = executable;
+      }
+
+      return changed;
+   }
+
+   /**
+    * Block starting at pc, or null if the interpreter has to run it.
+    */
+   CompiledBlock getBlock(int pc) {
+      if (pc > 0xFFFF || !_executablePages[pc >> 8]) {
+         return null;
+      }
+
+      int page = pc >> 8;
+      int[] pageMemory = _memory.getPageMemory(page);
+      int pageOffset = _memory.getPageOffset(page);
+      int index = pageOffset | (pc & 0xFF);
+
+      PageBlocks pageBlocks = _lastPageBlocks;
+      if (pageMemory != _lastPageMemory) {
+         pageBlocks = _pageBlocks.get(pageMemory);
+         if (pageBlocks == null) {
+            pageBlocks = new PageBlocks(pageMemory.length);
+            _pageBlocks.put(pageMemory, pageBlocks);
+         }
+         _lastPageMemory = pageMemory;
+         _lastPageBlocks = pageBlocks;
+      }
+
+      // The same memory may be mapped at another address, compiled blocks are only valid at one
+      CompiledBlock block = pageBlocks._blocks[index];
+      if (block != null && pageBlocks._blockPcs[index] == pc) {
+         return block;
+      }
+
+      if (++pageBlocks._entries[index] < COMPILE_THRESHOLD) {
+         return null;
+      }
+      pageBlocks._entries[index] = 0;
+
+      block = _compiler.compile(pageMemory, pageOffset, pc);
+      pageBlocks._blocks[index] = block != null ? block : NOT_COMPILABLE;
+      pageBlocks._blockPcs[index] = pc;
+
+      return pageBlocks._blocks[index];
+   }
+}
@@ -0,0 +1,189 @@
+package nesrs.cpu;
+
+/**
+ * Recognizes idle loops: a few ops in PRG ROM which only read memory followed by a jump or
+ * branch back to the first of them, like LDA $2002 / BPL or JMP *. Games spin in these while
+ * they wait for an interrupt or for the ppu status to change.
+ *
+ * When a pass through such a loop leaves the cpu exactly as the pass before it did, and the
+ * memory it read stayed the same, every further pass does the same until that memory changes.
+ * Those passes can be skipped by only counting their cycles.
+ */
+final class IdleLoopDetector {
+
+   // Loops stay within one page and their ops are at most this long together
+   private static final int MAX_LOOP_LENGTH = 32;
+
+   // How the ops which can be part of an idle loop get their operand, NONE for all other ops
+   private static final int NONE = 0;
+   private static final int IMPL = 1;
+   private static final int IMM = 2;
+   private static final int ZP = 3;
+   private static final int ABS = 4;
+
+   private static final int[] LENGTHS = {0, 1, 2, 2, 3};
+   private static final int[] MODES = new int[256];
+
+   static {
+      // LDA, LDX, LDY, AND, ORA, EOR, ADC, SBC, CMP, CPX, CPY
+      int[] immediate = {0xA9, 0xA2, 0xA0, 0x29, 0x09, 0x49, 0x69, 0xE9, 0xC9, 0xE0, 0xC0};
+      // The same and BIT
+      int[] zeroPage = {0xA5, 0xA6, 0xA4, 0x25, 0x05, 0x45, 0x65, 0xE5, 0xC5, 0xE4, 0xC4, 0x24};
+      int[] absolute = {0xAD, 0xAE, 0xAC, 0x2D, 0x0D, 0x4D, 0x6D, 0xED, 0xCD, 0xEC, 0xCC, 0x2C};
+      // NOP, TAX, TAY, TXA, TYA, CLC, SEC, CLV, ASL A, LSR A, ROL A, ROR A
+      int[] implied = {0xEA, 0xAA, 0xA8, 0x8A, 0x98, 0x18, 0x38, 0xB8, 0x0A, 0x4A, 0x2A, 0x6A};
+
+      for (int opCode : immediate) {
+         MODES[opCode] = IMM;
+      }
+      for (int opCode : zeroPage) {
+         MODES[opCode] = ZP;
+      }
+      for (int opCode : absolute) {
+         MODES[opCode] = ABS;
+      }
+      for (int opCode : implied) {
+         MODES[opCode] = IMPL;
+      }
+   }
+
+   private final CpuMemory _memory;
+
+   // Last loop looked at: the jump back, the page holding it and, if it's an idle loop,
+   // the cycles of one pass and the addresses it reads
+   private int _jumpAddress = -1;
+   private int[] _pageMemory;
+   private int _loopCycles;
+   private int _loopOps;
+   private final int[] _readAddresses = new int[MAX_LOOP_LENGTH / 2];
+   private int _readCount;
+
+   // Cpu at the end of the last pass, when it ended and until when what it read stays the same
+   private boolean _hasPass;
+   private long _passState;
+   private int _passEnd;
+   private int _passStableUntil;
+
+   // When the last repeated pass ended and how long what it read stays the same after that
+   private boolean _hasRepeatedPass;
+   private int _repeatedPassEnd;
+   private int _repeatedPassStableCycles;
+
+   IdleLoopDetector(CpuMemory memory) {
+      _memory = memory;
+   }
+
+   /**
+    * Called at the end of the op at jumpAddress, which took opCycles and jumped back to PC.
+    * cycles counts the cycles the cpu ran until the end of the op.
+    */
+   void handleBackJump(Cpu cpu, int jumpAddress, int[] pageMemory, int pageOffset,
+         int opCycles, int cycles) {
+
+      if (jumpAddress != _jumpAddress || pageMemory != _pageMemory) {
+         _jumpAddress = jumpAddress;
+         _pageMemory = pageMemory;
+         _loopCycles = findLoopCycles(cpu._PC, jumpAddress, pageMemory, pageOffset);
+         _hasPass = false;
+      }
+
+      if (_loopCycles == 0) {
+         return;
+      }
+
+      // Reads happen while the cpu is behind by the cycles of this op
+      int stableCycles = Integer.MAX_VALUE;
+      for (int i = 0; i < _readCount; i++) {
+         stableCycles = Math.min(stableCycles, _memory.getCyclesToReadChange(_readAddresses[i]));
+      }
+      stableCycles = Math.min(stableCycles, 1 << 30) - opCycles;
+
+      long state = getState(cpu);
+      if (_hasPass && state == _passState && cycles - _passEnd == _loopCycles &&
+            _passStableUntil - cycles > 0) {
+         _hasRepeatedPass = true;
+         _repeatedPassEnd = cycles;
+         _repeatedPassStableCycles = Math.max(stableCycles, 0);
+      }
+
+      _hasPass = true;
+      _passState = state;
+      _passEnd = cycles;
+      _passStableUntil = cycles + stableCycles;
+   }
+
+   /**
+    * Cycles of one pass through the idle loop if the pass which ended at cycles repeated the
+    * one before it, 0 otherwise.
+    */
+   int getRepeatedLoopCycles(int cycles) {
+      return _hasRepeatedPass && _repeatedPassEnd == cycles ? _loopCycles : 0;
+   }
+
+   // Cycles after the repeated pass during which what the loop reads stays the same
+   int getStableCycles() {
+      return _repeatedPassStableCycles;
+   }
+
+   // The cpu skipped passes taking the cycles after the repeated one, returns their ops
+   int skip(int cycles) {
+      _hasRepeatedPass = false;
+      _passEnd += cycles;
+
+      return cycles / _loopCycles * _loopOps;
+   }
+
+   /**
+    * Returns the cycles of one pass through the loop from target to the jump back at
+    * jumpAddress, or 0 if it isn't an idle loop, and collects the addresses it reads.
+    */
+   private int findLoopCycles(int target, int jumpAddress, int[] pageMemory, int pageOffset) {
+      _readCount = 0;
+      _loopOps = 1; // The jump back
+
+      int page = jumpAddress >> 8;
+      if (pageMemory == null || (target >> 8) != page ||
+            jumpAddress - target > MAX_LOOP_LENGTH || !_memory.isPageReadOnly(page)) {
+         return 0;
+      }
+
+      int cycles = 0;
+      int pc = target;
+      while (pc < jumpAddress) {
+         int opCode = pageMemory[pageOffset | (pc & 0xFF)];
+         int mode = MODES[opCode];
+         if (mode == NONE || pc + LENGTHS[mode] > jumpAddress) {
+            return 0;
+         }
+
+         if (mode == ZP) {
+            _readAddresses[_readCount++] = pageMemory[pageOffset | ((pc + 1) & 0xFF)];
+         } else if (mode == ABS) {
+            _readAddresses[_readCount++] = pageMemory[pageOffset | ((pc + 1) & 0xFF)] |
+                  (pageMemory[pageOffset | ((pc + 2) & 0xFF)] << 8);
+         }
+
+         cycles += Cpu.OP_CYCLES[opCode];
+         pc += LENGTHS[mode];
+         _loopOps++;
+      }
+
+      int opCode = pageMemory[pageOffset | (jumpAddress & 0xFF)];
+      if (opCode == 0x4C) {
+         // JMP
+         return cycles + Cpu.OP_CYCLES[opCode];
+
+      } else if ((opCode & 0x1F) == 0x10) {
+         // Taken branch
+         boolean isPageBoundaryCrossed = ((jumpAddress + 2) >> 8) != page;
+         return cycles + Cpu.OP_CYCLES[opCode] + (isPageBoundaryCrossed ? 2 : 1);
+      }
+
+      return 0;
+   }
+
+   private static long getState(Cpu cpu) {
+      int registers = cpu._A | (cpu._X << 8) | (cpu._Y << 16) | (cpu._S << 24);
+      return ((long) cpu.getP() << 32) | (registers & 0xFFFFFFFFL);
+   }
+}
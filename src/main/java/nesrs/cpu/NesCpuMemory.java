@@ -1,5 +1,6 @@
 package nesrs.cpu;
 
+import nesrs.Scheduler;
 import nesrs.apu.ApuPin;
 import nesrs.cartridge.CartridgePin;
 import nesrs.controller.Controller;
@@ -22,6 +23,14 @@ public class NesCpuMemory implements CpuMemory {
 
    private final int[] _ram = new int[0x800]; // CPU ram (2Kb)
 
+   // Bus tables, one entry per 256b page: the array backing the page and the page's offset in
+   // it. Pages without an array (I/O, expansion, PRG RAM) are decoded on every access.
+   private final int[][] _readPages = new int[256][];
+   private final int[] _readPageOffsets = new int[256];
+   private final int[][] _writePages = new int[256][];
+   private final int[] _writePageOffsets = new int[256];
+   private PageMapListener _pageMapListener;
+
    private CartridgePin _cartridge;
    private PpuPin _ppu;
    private ApuPin _apu;
@@ -29,8 +38,69 @@ public class NesCpuMemory implements CpuMemory {
    private Controller _controller1;
    private Controller _controller2;
 
+   public NesCpuMemory() {
+      // RAM and its mirrors
+      for (int page = 0x00; page <= 0x1F; page++) {
+         _readPages[page] = _ram;
+         _readPageOffsets[page] = (page & 0x07) << 8;
+         _writePages[page] = _ram;
+         _writePageOffsets[page] = (page & 0x07) << 8;
+      }
+   }
+
    public void setCartridge(CartridgePin cartridge) {
       _cartridge = cartridge;
+
+      if (_cartridge != null) {
+         _cartridge.setPrgBankListener(() -> updatePrgRomPages());
+      }
+      updatePrgRomPages();
+   }
+
+   private void updatePrgRomPages() {
+      for (int page = 0x80; page <= 0xFF; page++) {
+         if (_cartridge != null) {
+            // 1KB banks
+            _readPages[page] = _cartridge.getPrgRomBank(page << 8);
+            _readPageOffsets[page] = (page & 0x03) << 8;
+         } else {
+            _readPages[page] = null;
+         }
+      }
+
+      if (_pageMapListener != null) {
+         _pageMapListener.handlePageMapChange();
+      }
+   }
+
+   @Override
+   public int[] getPageMemory(int page) {
+      return _readPages[page];
+   }
+
+   @Override
+   public int getPageOffset(int page) {
+      return _readPageOffsets[page];
+   }
+
+   @Override
+   public boolean isPageReadOnly(int page) {
+      return _readPages[page] != null && _writePages[page] == null;
+   }
+
+   @Override
+   public int getCyclesToReadChange(int address) {
+      if ((address & 0xE007) == 0x2002 && _ppu != null) {
+         // PPU status register, rounded down to stay a lower bound
+         return _ppu.getCyclesToStatusChange() / Scheduler.PPU_CYCLES_PER_CPU_CYCLE;
+      }
+
+      return CpuMemory.super.getCyclesToReadChange(address);
+   }
+
+   @Override
+   public void setPageMapListener(PageMapListener pageMapListener) {
+      _pageMapListener = pageMapListener;
    }
 
    public void setPpu(PpuPin ppu) {
@@ -51,15 +121,23 @@ public class NesCpuMemory implements CpuMemory {
 
    @Override
    public int read(int address) {
-      int page = address & 0xF000;
+      int page = (address >> 8) & 0xFF;
+      int[] pageMemory = _readPages[page];
+      if (pageMemory != null) {
+         // RAM, PRG ROM
+         return pageMemory[_readPageOffsets[page] | (address & 0xFF)];
+      }
 
-      if (page == 0x0000 || page == 0x1000) {
-         // RAM
-         return _ram[address & 0x07FF];
+      return decodeRead(address);
+   }
+
+   private int decodeRead(int address) {
+      int page = address & 0xF000;
 
-      } else if (page == 0x2000 || page == 0x3000) {
+      if (page == 0x2000 || page == 0x3000) {
          // PPU
          if (_ppu != null) {
+            _ppu.catchUp();
             return _ppu.readRegister(address & 0x0007);
          }
 
@@ -69,6 +147,7 @@ public class NesCpuMemory implements CpuMemory {
          if (address == 0x4015) {
             // APU
             if (_apu != null) {
+               _apu.catchUp();
                return _apu.readRegister(address);
             }
 
@@ -104,16 +183,25 @@ public class NesCpuMemory implements CpuMemory {
 
    @Override
    public int write(int address, int value) {
-      int page = (address & 0xF000);
-
-      if (page == 0x0000 || page == 0x1000) {
+      int page = (address >> 8) & 0xFF;
+      int[] pageMemory = _writePages[page];
+      if (pageMemory != null) {
          // RAM
-         _ram[address & 0x07FF] = value;
+         pageMemory[_writePageOffsets[page] | (address & 0xFF)] = value;
+         return 0;
+      }
 
-      } else if (page == 0x2000 || page == 0x3000) {
+      return decodeWrite(address, value);
+   }
+
+   private int decodeWrite(int address, int value) {
+      int page = (address & 0xF000);
+
+      if (page == 0x2000 || page == 0x3000) {
          // PPU
 
          if (_ppu != null) {
+            _ppu.catchUp();
             _ppu.writeRegister(address & 0x0007, value);
          }
 
@@ -123,23 +211,32 @@ public class NesCpuMemory implements CpuMemory {
          if (address <= 0x4013 || address == 0x4015 || address == 0x4017) {
             // APU
             if (_apu != null) {
+               _apu.catchUp();
                _apu.writeRegister(address, value);
             }
 
          } else if (address == 0x4014) {
             // DMA
             if (_ppu != null) {
-               int memAddress = value << 8;
-               for (int i = 0; i <= 0xFF; i++) {
-                  int memValue = read(memAddress);
-                  // Writes to 0x2004 which is mapped to ppu's spr ram register
-                  _ppu.writeRegister(PpuPin.REG_SPR_RAM_IO, memValue);
-                  memAddress++;
+               _ppu.catchUp();
+               int memPage = value & 0xFF;
+               if (_readPages[memPage] != null) {
+                  // RAM or PRG ROM, copied as a whole
+                  _ppu.writeSpriteRam(_readPages[memPage], _readPageOffsets[memPage]);
+               } else {
+                  int memAddress = memPage << 8;
+                  for (int i = 0; i <= 0xFF; i++) {
+                     int memValue = read(memAddress);
+                     // Writes to 0x2004 which is mapped to ppu's spr ram register
+                     _ppu.writeRegister(PpuPin.REG_SPR_RAM_IO, memValue);
+                     memAddress++;
+                  }
                }
             }
 
-            //513 cycles 1 for read
-            //1 write, final is read
+            //513 cycles 1 for halt
+            //256 read, 256 write
+            //the cpu adds 1 more to start on an even cycle
             return 513;
 
          } else if (address == 0x4016) {
@@ -163,6 +260,10 @@ public class NesCpuMemory implements CpuMemory {
       } else {
          // Cartridge
          if (_cartridge != null) {
+            if (address >= 0x8000 && _ppu != null) {
+               // Mapper registers (chr banks, mirroring, irq) are seen by the ppu
+               _ppu.catchUp();
+            }
             _cartridge.writePrgMemory(address, value);
          }
       }
@@ -0,0 +1,5 @@
+package nesrs.cpu;
+
+public interface PageMapListener {
+   void handlePageMapChange();
+}
@@ -2,6 +2,7 @@ package nesrs.ppu;
 
 import java.util.Arrays;
 
+import nesrs.Scheduler;
 import nesrs.cartridge.Cartridge;
 import nesrs.ppu.registers.CtrlRegister;
 import nesrs.ppu.registers.MaskRegister;
@@ -10,7 +11,6 @@ import nesrs.ppu.registers.StatusRegister;
 import nesrs.ppu.registers.VramAddressScrollRegister;
 import nesrs.ppu.renderers.Palette;
 import nesrs.ppu.renderers.ScanlineHelper;
-import nesrs.util.BitUtil;
 
 public class Ppu implements PpuPin {
 
@@ -30,7 +30,13 @@ public class Ppu implements PpuPin {
    private static final int NES_WIDTH = 256;
 
    private final int[] _scanlineOffscreenBuffer = new int[NES_WIDTH]; // 256 pixels per scanline
-   private final int[] _frameBuffer = new int[NES_HEIGHT * NES_WIDTH];
+   // RGB of each palette RAM entry with the mask's grayscale and emphasis, refreshed before a
+   // scanline goes out if either changed
+   private final int[] _paletteRgb = new int[32];
+   private boolean _isPaletteRgbStale = true;
+   private final int[] _ownFrameBuffer = new int[NES_HEIGHT * NES_WIDTH];
+   // The video out's if it has one
+   private int[] _frameBuffer = _ownFrameBuffer;
 
    // Background pipeline
    // Eval
@@ -51,6 +57,16 @@ public class Ppu implements PpuPin {
    private int _currentScanlineCyclesCount;
    private boolean _isOddFrame;
    private boolean _canSetVblForFrame;
+   private int _firstIdleCycle;
+   private int _lastIdleCycle;
+
+   // Catch-up execution
+   private int _pendingCycles;
+   private int _cyclesToNextEvent;
+   private Scheduler _scheduler;
+   // Time spent catching up, only measured for the metrics
+   private boolean _isCatchUpTimed;
+   private long _catchUpTimeNs;
 
    // Signal listeners
    private VblListener _vblListener;
@@ -69,6 +85,11 @@ public class Ppu implements PpuPin {
    // PPU
    //
 
+   @Override
+   public void setScheduler(Scheduler scheduler) {
+      _scheduler = scheduler;
+   }
+
    @Override
    public void setVblListener(VblListener vblListener) {
       _vblListener = vblListener;
@@ -77,6 +98,7 @@ public class Ppu implements PpuPin {
    @Override
    public void setVideoOutListener(VideoOutListener videoListener) {
       _videoOutListener = videoListener;
+      _frameBuffer = getNextFrameBuffer();
    }
 
    @Override
@@ -110,11 +132,16 @@ public class Ppu implements PpuPin {
       // Registers
       _ctrlReg.value = 0x00;
       _maskReg.value = 0x06;
+      _isPaletteRgbStale = true;
       _statusReg.value = 0x00;
       _sprRamAddressReg.value = 0x00;
       _vramAddressScrollReg.init();
 
       _memory.initNtRam();
+
+      _pendingCycles = 0;
+      updateIdleCycles();
+      updateCyclesToNextEvent();
    }
 
    @Override
@@ -128,13 +155,27 @@ public class Ppu implements PpuPin {
       // Registers
       _ctrlReg.value = 0x00;
       _maskReg.value = 0x06;
+      _isPaletteRgbStale = true;
       _statusReg.value &= 0x80;
       _vramAddressScrollReg.reset();
+
+      _pendingCycles = 0;
+      updateIdleCycles();
+      updateCyclesToNextEvent();
    }
 
    @Override
    public void executeCycles(int cycles) {
       for (int i = 0; i < cycles; i++) {
+         // Skip the cycles with nothing to do in one step
+         int nextCycle = _currentCycle + 1;
+         if (nextCycle >= _firstIdleCycle && nextCycle <= _lastIdleCycle) {
+            int skippedCycles = Math.min(_lastIdleCycle - _currentCycle, cycles - i);
+            _currentCycle += skippedCycles;
+            i += skippedCycles - 1;
+            continue;
+         }
+
          _currentCycle++;
 
          //
@@ -153,6 +194,8 @@ public class Ppu implements PpuPin {
                _isOddFrame = !_isOddFrame;
                Arrays.fill(_frameBuffer, 0x00);
             }
+
+            updateIdleCycles();
          }
 
          //
@@ -249,16 +292,10 @@ public class Ppu implements PpuPin {
 
             // Send to video
             if (_currentCycle == _currentScanlineCyclesCount - 1) {
-               int[] scanlineBuffer = getScanlineVideo();
-
-               System.arraycopy(
-                     scanlineBuffer,
-                     0,
-                     _frameBuffer,
-                     (_currentScanline - 21) * NES_WIDTH,
-                     NES_WIDTH);
+               writeScanlineVideo((_currentScanline - 21) * NES_WIDTH);
                if (_currentScanline == 260) {
-                  _videoOutListener.handleFrame(_frameBuffer);    
+                  _videoOutListener.handleFrame(_frameBuffer);
+                  _frameBuffer = getNextFrameBuffer();
                }
             }
             break;
@@ -268,6 +305,144 @@ public class Ppu implements PpuPin {
             break;
          }
       }
+
+      updateCyclesToNextEvent();
+   }
+
+   /**
+    * Finds the cycles of the current scanline in which the scanline switch of
+    * executeCycles does nothing: vblank after the nmi, the waste scanline and, with
+    * rendering off, everything but the start and end of the other scanlines.
+    * Registers can't change while executing, so these cycles only need to be counted.
+    */
+   private void updateIdleCycles() {
+      _firstIdleCycle = Integer.MAX_VALUE;
+      _lastIdleCycle = _currentScanlineCyclesCount - 1;
+
+      if (_currentScanline == ScanlineHelper.VBLANK_START_SCANLINE) {
+         // Vbl flag at 0, nmi at 2
+         _firstIdleCycle = 3;
+
+      } else if (_currentScanline <= ScanlineHelper.VBLANK_END_SCANLINE ||
+            _currentScanline == ScanlineHelper.WASTE_SCANLINE) {
+         _firstIdleCycle = 0;
+
+      } else if (_maskReg.isRenderingEnabled()) {
+         // Busy
+
+      } else if (_currentScanline == ScanlineHelper.DUMMY_RENDER_SCANLINE) {
+         // Flags are cleared at 0
+         _firstIdleCycle = 1;
+
+      } else {
+         // Offscreen buffer is cleared at 0 and sent to video at the last cycle
+         _firstIdleCycle = 1;
+         _lastIdleCycle--;
+      }
+   }
+
+   @Override
+   public void addCycles(int cycles) {
+      _pendingCycles += cycles;
+
+      if (_pendingCycles >= _cyclesToNextEvent) {
+         catchUp();
+      }
+   }
+
+   @Override
+   public void catchUp() {
+      if (_pendingCycles > 0) {
+         int cycles = _pendingCycles;
+         _pendingCycles = 0;
+
+         if (_isCatchUpTimed) {
+            long start = System.nanoTime();
+            executeCycles(cycles);
+            _catchUpTimeNs += System.nanoTime() - start;
+         } else {
+            executeCycles(cycles);
+         }
+      }
+   }
+
+   /**
+    * Measures the time catchUp() takes from now on, which is where the ppu does all its work.
+    * Off by default, as it costs two System.nanoTime() calls per catch-up.
+    */
+   public void setCatchUpTimed(boolean isCatchUpTimed) {
+      _isCatchUpTimed = isCatchUpTimed;
+   }
+
+   // Total time spent catching up while timed
+   public long getCatchUpTimeNs() {
+      return _catchUpTimeNs;
+   }
+
+   @Override
+   public int getCyclesToNextEvent() {
+      return _cyclesToNextEvent - _pendingCycles;
+   }
+
+   /**
+    * Lower bound of the cycles after which the ppu may signal the cpu on its own:
+    * the vbl nmi or, while rendering, a mapper irq clocked by pattern fetches.
+    * Everything else is only seen through the registers, which catch up first.
+    */
+   private void updateCyclesToNextEvent() {
+      int cycles = cyclesUntil(ScanlineHelper.VBLANK_START_SCANLINE, 2);
+
+      if (_maskReg.isRenderingEnabled() && _memory.isIrqClockedByPpu()) {
+         if (_currentScanline >= ScanlineHelper.DUMMY_RENDER_SCANLINE) {
+            cycles = 0;
+         } else {
+            cycles = Math.min(cycles, cyclesUntil(ScanlineHelper.DUMMY_RENDER_SCANLINE, 0));
+         }
+      }
+
+      _cyclesToNextEvent = cycles;
+
+      if (_scheduler != null) {
+         _scheduler.schedulePpuCycles(Scheduler.PPU, _cyclesToNextEvent - _pendingCycles);
+      }
+   }
+
+   /**
+    * Lower bound of the cycles until reading $2002 may return another value, or do more than
+    * what the read before did: a set vbl flag is cleared by the next read, sprite zero hit and
+    * overflow may be set on any cycle while rendering and the vbl flag gets set (and suppressed
+    * by a read one cycle before) or the flags get cleared at fixed cycles.
+    */
+   @Override
+   public int getCyclesToStatusChange() {
+      if (_statusReg.isInVblank()) {
+         return 0;
+      }
+
+      if (_maskReg.isRenderingEnabled() &&
+            _currentScanline >= ScanlineHelper.DUMMY_RENDER_SCANLINE &&
+            _currentScanline <= ScanlineHelper.LAST_RENDER_SCANLINE) {
+         return 0;
+      }
+
+      int cycles = Math.min(
+            cyclesUntil(ScanlineHelper.WASTE_SCANLINE, ScanlineHelper.CYCLES_COUNT_IN_SCANLINE - 1),
+            cyclesUntil(ScanlineHelper.DUMMY_RENDER_SCANLINE, 0));
+      return Math.max(cycles - _pendingCycles, 0);
+   }
+
+   private int cyclesUntil(int scanline, int cycle) {
+      if (scanline == _currentScanline && cycle > _currentCycle) {
+         return cycle - _currentCycle;
+      }
+
+      // Rest of this scanline, whole scanlines in between (odd frames drop a cycle)
+      // and the target scanline up to the cycle.
+      int scanlines = (scanline - _currentScanline - 1 + ScanlineHelper.SCANLINES_COUNT_IN_FRAME) %
+            ScanlineHelper.SCANLINES_COUNT_IN_FRAME;
+      return (_currentScanlineCyclesCount - 1 - _currentCycle) +
+            scanlines * (ScanlineHelper.CYCLES_COUNT_IN_SCANLINE - 1) +
+            cycle + 1;
    }
 
    @Override
@@ -328,6 +503,14 @@ public class Ppu implements PpuPin {
       return result;
    }
 
+   @Override
+   public void writeSpriteRam(int[] memory, int offset) {
+      // From the sprite ram address around to just before it, where the address ends up again
+      int address = _sprRamAddressReg.value;
+      System.arraycopy(memory, offset, _spriteRam, address, 0x100 - address);
+      System.arraycopy(memory, offset + 0x100 - address, _spriteRam, 0, address);
+   }
+
    @Override
    public void writeRegister(int register, int value) {
       switch (register) {
@@ -349,7 +532,13 @@ public class Ppu implements PpuPin {
       }
 
       case PpuPin.REG_MASK: {
+         if (((_maskReg.value ^ value) &
+               (MaskRegister.COLOR_INTENSITY | MaskRegister.DISABLE_COLORBURST)) != 0) {
+            _isPaletteRgbStale = true;
+         }
          _maskReg.value = value;
+         updateIdleCycles();
+         updateCyclesToNextEvent();
          break;
       }
 
@@ -463,24 +652,36 @@ public class Ppu implements PpuPin {
       _memory.write(address, value);
    }
 
-   private int[] getScanlineVideo() {
-      int[] scanlineVideoBuffer = new int[_scanlineOffscreenBuffer.length];
+   private int[] getNextFrameBuffer() {
+      int[] frameBuffer = _videoOutListener != null ? _videoOutListener.getFrameBuffer() : null;
+      return frameBuffer != null ? frameBuffer : _ownFrameBuffer;
+   }
+
+   private void writeScanlineVideo(int frameBufferOffset) {
+      if (_isPaletteRgbStale || _memory._isPaletteChanged) {
+         updatePaletteRgb();
+      }
+
+      int[] paletteRgb = _paletteRgb;
+      int[] frameBuffer = _frameBuffer;
       for (int i = 0; i < _scanlineOffscreenBuffer.length; i++) {
-         int paletteOffset = _scanlineOffscreenBuffer[i];
-         // decode
-         switch (paletteOffset) {
-         case 0x10: paletteOffset = 0x00; break;
-         case 0x14: paletteOffset = 0x04; break;
-         case 0x18: paletteOffset = 0x08; break;
-         case 0x1C: paletteOffset = 0x0C; break;
-         }
-         int colorIndex = _memory._paletteRAM[paletteOffset];
-         
-         int rgb = Palette.RGB[colorIndex & 0x3F];
-         scanlineVideoBuffer[i] = rgb;
+         frameBuffer[frameBufferOffset + i] = paletteRgb[_scanlineOffscreenBuffer[i]];
+      }
+   }
+
+   private void updatePaletteRgb() {
+      int colorMask = _maskReg.isGrayscaleEnabled() ? 0x30 : 0x3F;
+      int emphasis = _maskReg.getColorEmphasis() << 6;
+
+      for (int paletteOffset = 0; paletteOffset < _paletteRgb.length; paletteOffset++) {
+         // $10, $14, $18 and $1C show $00, $04, $08 and $0C
+         int colorIndex = (paletteOffset & 0x13) == 0x10 ?
+               _memory._paletteRAM[paletteOffset & 0x0F] : _memory._paletteRAM[paletteOffset];
+         _paletteRgb[paletteOffset] = Palette.RGB_EMPHASIS[emphasis | (colorIndex & colorMask)];
       }
 
-      return scanlineVideoBuffer;
+      _isPaletteRgbStale = false;
+      _memory._isPaletteChanged = false;
    }
 
    // 0x0 - 0x2000, 0x1 - 0x2400, 0x2 - 0x2800, 0x3 - 0x2C00
@@ -610,9 +811,8 @@ public class Ppu implements PpuPin {
       // BG pixel.
       if (_currentCycle > 7 || !_maskReg.isBackgroundClippingEnabled()) {
          int fineX = _vramAddressScrollReg.getBackgroundFineX();
-         int bitPosition = 1 << fineX;
 
-         pixel = _bgRenderPipeline.getPixel(bitPosition);
+         pixel = _bgRenderPipeline.getPixel(fineX);
       }
       // Shift BG pipeline.
       _bgRenderPipeline.shift(1);
@@ -624,8 +824,7 @@ public class Ppu implements PpuPin {
             SpriteRenderTileData spriteRenderTileData = _spriteRenderPipeline.data[_currentCycle];
             if (spriteRenderTileData != null) {
                int fineX = _currentCycle - spriteRenderTileData._xPosition;
-               int bitPosition = 1 << (7 - fineX);
-               int spritePixel = spriteRenderTileData.getPixel(bitPosition);
+               int spritePixel = spriteRenderTileData.getPixel(fineX);
 
                boolean isBgPixelTransparent = (pixel & 0x3) == 0;
 
@@ -698,16 +897,8 @@ public class Ppu implements PpuPin {
       fineY = (_vramAddressScrollReg._address >> 12) & 0x7;
       backgroundPatternTableAddress = _ctrlReg.getBackgroundPatternTableAddress();
       tileDataLowAddress = backgroundPatternTableAddress + (_bgTileLatch._tileIndex << 4) + fineY;
-      int[] res = _memory.readTile(tileDataLowAddress);
-//      _bgTileLatch._tileDataLow = _memory.read(tileDataLowAddress);
-      _bgTileLatch._tileDataLow = res[0];
-      _bgTileLatch._tileDataHigh = res[1];
-
-      //
-      // Pattern table bitmap #1 read
-      //
-//      int tileDataHighAddress = tileDataLowAddress + 8;
-//      _bgTileLatch._tileDataHigh = _memory.read(tileDataHighAddress);
+      // Pattern table bitmap #1 comes decoded along with it
+      _bgTileLatch._tileData = _memory.readTileRow(tileDataLowAddress) & 0xFFFF;
    }
 
    private void fetchNextScanlineBgTileData() {
@@ -818,7 +1009,7 @@ public class Ppu implements PpuPin {
             }
          }
 
-         SpriteRenderTileData spriteRenderData = new SpriteRenderTileData();
+         SpriteRenderTileData spriteRenderData = _spriteRenderPipeline.tileData[spriteIndex];
 
          if (yPosition == 0xFF &&
                (tileIndex == 0xFE || tileIndex == 0xFF) &&
@@ -832,8 +1023,7 @@ public class Ppu implements PpuPin {
             //_memory.readMemory(tileDataLowAddress + 8);
 
             // No sprite
-            spriteRenderData._tileDataLow = 0x0;
-            spriteRenderData._tileDataHigh = 0x0; // Transparent
+            spriteRenderData._tileData = 0x0; // Transparent
             spriteRenderData._attributePaletteData = 0x0; // Irrelevant palette select index
             spriteRenderData._isHighPriority = false; // < background
             spriteRenderData._xPosition = 0x0; // Irrelevant
@@ -842,11 +1032,11 @@ public class Ppu implements PpuPin {
          } else {
 
             int tileDataLowAddress = spritePatternTableAddress + tileIndex * 16 + fineY;
-            spriteRenderData._tileDataLow = _memory.read(tileDataLowAddress);
-            spriteRenderData._tileDataHigh = _memory.read(tileDataLowAddress + 8);
+            int tileRow = _memory.readTileRow(tileDataLowAddress);
             if ((attributes & SPR_ATTR_REVERT_HORIZONTALLY) != 0) {
-               spriteRenderData._tileDataLow = BitUtil.reverseByte(spriteRenderData._tileDataLow);
-               spriteRenderData._tileDataHigh = BitUtil.reverseByte(spriteRenderData._tileDataHigh);
+               spriteRenderData._tileData = tileRow >>> 16;
+            } else {
+               spriteRenderData._tileData = tileRow & 0xFFFF;
             }
             spriteRenderData._attributePaletteData = attributes & SPR_ATTR_PALETTE;
             spriteRenderData._isHighPriority = (attributes & SPR_ATTR_PRIORITY) == 0;
@@ -857,8 +1047,7 @@ public class Ppu implements PpuPin {
          for (int fineX = 0; fineX <= 7; fineX++) {
             int position = spriteRenderData._xPosition + fineX;
             if (position <= 255) {
-               int bitPosition = 1 << (7 - fineX);
-               if (_spriteRenderPipeline.data[position] == null && ((spriteRenderData.getPixel(bitPosition) & 0x3) != 0)) {
+               if (_spriteRenderPipeline.data[position] == null && ((spriteRenderData.getPixel(fineX) & 0x3) != 0)) {
                   _spriteRenderPipeline.data[position] = spriteRenderData;
                }
             }
@@ -872,20 +1061,17 @@ public class Ppu implements PpuPin {
 
    private static class BackgroundTileLatch {
       int _tileIndex = 0x0; // 8 bits
-      int _tileDataLow = 0x0; // 8 bits
-      int _tileDataHigh = 0x0; // 8 bits
+      int _tileData = 0x0; // 16 bits (8 pixels' 2 bit palette indices, leftmost in bits 0-1)
       int _attributePaletteData = 0x0; // 2 bits
    }
 
    private static class BackgroundRenderPipeline {
-      int _tileDataLow = 0x0; // 16 bits (16 pixels - 2 tiles' row pixels)
-      int _tileDataHigh = 0x0; // 16 bits (16 pixels - 2 tiles' row pixels)
+      int _tileData = 0x0; // 32 bits (16 pixels - 2 tiles' row pixels, 2 bits each)
       int _attributePalleteDataLow = 0x0;
       int _attributePalleteDataHigh = 0x0;
 
       final void load(BackgroundTileLatch latch) {
-         _tileDataLow = (BitUtil.reverseByte(latch._tileDataLow) << 8) | (_tileDataLow & 0x00FF);
-         _tileDataHigh = (BitUtil.reverseByte(latch._tileDataHigh) << 8) | (_tileDataHigh & 0x00FF);
+         _tileData = (latch._tileData << 16) | (_tileData & 0xFFFF);
 
          // Load in MSB
          int attributePalleteDataLow = 0x0000;
@@ -902,15 +1088,14 @@ public class Ppu implements PpuPin {
          _attributePalleteDataHigh = attributePalleteDataHigh | (_attributePalleteDataHigh & 0x00FF);
       }
 
-      final int getPixel(int bitPosition) {
-         int tilePaletteDataLowBit = (_tileDataLow & bitPosition) != 0 ? 1 : 0;
-         int tilePaletteDataHighBit = (_tileDataHigh & bitPosition) != 0 ? 2 : 0;
+      final int getPixel(int fineX) {
+         int bitPosition = 1 << fineX;
+         int tilePaletteData = (_tileData >>> (fineX << 1)) & 0x3;
          int attributePaletteDataLowBit = (_attributePalleteDataLow & bitPosition) != 0 ? 4 : 0;
          int attributePaletteDataHighBit = (_attributePalleteDataHigh & bitPosition) != 0 ? 8 : 0;
 
          int paletteIndex =
-               attributePaletteDataHighBit | attributePaletteDataLowBit |
-               tilePaletteDataHighBit | tilePaletteDataLowBit;
+               attributePaletteDataHighBit | attributePaletteDataLowBit | tilePaletteData;
 
          // Palette mirroring
          if (paletteIndex == 0x04 || paletteIndex == 0x08 || paletteIndex == 0x0C) {
@@ -921,31 +1106,36 @@ public class Ppu implements PpuPin {
       }
 
       final void shift(int times) {
-         _tileDataLow >>= times;
-         _tileDataHigh >>= times;
+         _tileData >>>= times << 1;
          _attributePalleteDataLow >>= times;
          _attributePalleteDataHigh >>= times;
       }
    }
 
    private static class SpriteRenderTileData {
-      int _tileDataLow = 0x0; // 8 bits (8 pixels - 1 tile row pixels)
-      int _tileDataHigh = 0x0; // 8 bits (8 pixels - 1 tile row pixels)
+      int _tileData = 0x0; // 16 bits (8 pixels - 1 tile row pixels, 2 bits each)
       int _attributePaletteData = 0x0; // 2 bits (for 8 pixels)
       boolean _isHighPriority = false;
       int _xPosition = 0x0; // 8 bits // X position on the screen
       boolean _isSpriteZero = false;
 
-      public final int getPixel(int bitPosition) {
-         int tilePaletteDataLowBit = ((_tileDataLow & bitPosition) != 0) ? 1 : 0;
-         int tilePaletteDataHighBit = ((_tileDataHigh & bitPosition) != 0) ? 1 : 0;
-         int paleteIndex = (((_attributePaletteData << 2) | (tilePaletteDataHighBit << 1) | tilePaletteDataLowBit)) & 0xF;
+      public final int getPixel(int fineX) {
+         int tilePaletteData = (_tileData >> (fineX << 1)) & 0x3;
+         int paleteIndex = ((_attributePaletteData << 2) | tilePaletteData) & 0xF;
          return 0x10 | paleteIndex;
       }
    }
    
    private static class SpriteRenderPipeline {
       SpriteRenderTileData[] data = new SpriteRenderTileData[256];
+      // Reused for every scanline. Fetched at cycle 256, once the scanline's pixels are out.
+      final SpriteRenderTileData[] tileData = new SpriteRenderTileData[8];
+
+      SpriteRenderPipeline() {
+         for (int i = 0; i < tileData.length; i++) {
+            tileData[i] = new SpriteRenderTileData();
+         }
+      }
    }
    
    //  Attributes byte
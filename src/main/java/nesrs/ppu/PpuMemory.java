@@ -1,6 +1,7 @@
 package nesrs.ppu;
 
 import nesrs.cartridge.Cartridge;
+import nesrs.cartridge.ChrPatternCache;
 
 public class PpuMemory {
    // PPU addressable memory (16Kb)
@@ -26,6 +27,8 @@ public class PpuMemory {
    private int[][] _ntVRAM = new int[2][1024]; // Name table VRAM (A + B)(2Kb) (aka CIRAM)
 
    int[] _paletteRAM = new int[32]; // Background (16b) + Sprite (16b) Palette RAM.
+   // Set on palette RAM writes, for the ppu to refresh the colors it resolved
+   boolean _isPaletteChanged = true;
 
    private Cartridge _cartridge;
 
@@ -33,15 +36,28 @@ public class PpuMemory {
       _cartridge = cartridge;
    }
 
-   public final int[] readTile(int address) {
-      int decodedAddress = address & 0x3FFF; // Size Mirroring 
+   public final boolean isIrqClockedByPpu() {
+      return _cartridge != null && _cartridge.isIrqClockedByPpu();
+   }
+
+   /**
+    * Reads a tile row, both bit planes decoded into 2 bit palette indices. See ChrPatternCache
+    * for the packing, so no array is allocated per fetch.
+    */
+   public final int readTileRow(int address) {
+      int decodedAddress = address & 0x3FFF; // Size Mirroring
+
+      if ((decodedAddress & 0x8) != 0) {
+         // Starts on a high plane (sprite row out of range after a size change), so the bytes
+         // straddle two tiles and aren't a cached row
+         return ChrPatternCache.decodeRow(
+               _cartridge.readChrMemory(decodedAddress),
+               _cartridge.readChrMemory(decodedAddress + 8));
+      }
 
-      int tileDataLow = _cartridge.readChrMemory(decodedAddress);
-      int tileDataHigh = _cartridge.readChrMemory(decodedAddress + 8);
-      
-      return new int[] { tileDataLow, tileDataHigh };
+      return _cartridge.readChrPattern(decodedAddress);
    }
-   
+
    public final int read(int address) {
       int decodedAddress = decodeAddress(address);
 
@@ -81,6 +97,7 @@ public class PpuMemory {
       case 3:
          // Palette
          _paletteRAM[decodedAddress & 0x1F] = value;
+         _isPaletteChanged = true;
       }
    }
 
@@ -1,5 +1,7 @@
 package nesrs.ppu;
 
+import nesrs.Scheduler;
+
 public interface PpuPin {
 
    static final int REG_CTRL = 0; // PPU Control Register (W)
@@ -23,10 +25,22 @@ public interface PpuPin {
 
    // CLK (kind of)
    void executeCycles(int ppuCycles);
+   // Lazy CLK. Cycles are only run once the next vbl nmi or mapper irq may be due, or on
+   // catchUp(), which must be called before anything observes or changes the ppu.
+   void addCycles(int ppuCycles);
+   void catchUp();
+   // Lower bound of the cycles until the next vbl nmi or mapper irq may be due, also kept
+   // scheduled as the scheduler's PPU event
+   int getCyclesToNextEvent();
+   void setScheduler(Scheduler scheduler);
+   // Lower bound of the cycles until reading the status register may return something else
+   int getCyclesToStatusChange();
 
    // R/W, D0-D8, A0-A2, /CS
    int readRegister(int register);
    void writeRegister(int register, int value);
+   // OAM DMA, the 256 values from offset written to the SPR-RAM I/O register one after the other
+   void writeSpriteRam(int[] memory, int offset);
 
    //
    // From inside/output
@@ -2,6 +2,12 @@ package nesrs.ppu;
 
 public interface VideoOutListener {
    void handleFrame(int[] framePixels);
+
+   // Array of 256x240 pixels the ppu draws the next frame straight into, asked as the listener
+   // is set and after each frame. null lets the ppu draw into its own.
+   default int[] getFrameBuffer() {
+      return null;
+   }
    
    default void render() {}
 }
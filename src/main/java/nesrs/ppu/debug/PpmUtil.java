@@ -1,6 +1,7 @@
 package nesrs.ppu.debug;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 
 public class PpmUtil {
@@ -31,4 +32,54 @@ public class PpmUtil {
 
       out.flush();
    }
+
+   /**
+    * Reads the pixels of a binary (P6) ppm image with 8 bit color channels.
+    */
+   public static int[] read(InputStream in) throws IOException {
+      if (!readToken(in).equals("P6")) {
+         throw new IOException("Only binary (P6) ppm images are supported");
+      }
+
+      int width = Integer.parseInt(readToken(in));
+      int height = Integer.parseInt(readToken(in));
+      int maxValue = Integer.parseInt(readToken(in));
+      if (maxValue != 255) {
+         throw new IOException("Unsupported max color value: " + maxValue);
+      }
+
+      int[] pixels = new int[width * height];
+      for (int i = 0; i < pixels.length; i++) {
+         int r = readByte(in);
+         int g = readByte(in);
+         int b = readByte(in);
+         pixels[i] = (r << 16) | (g << 8) | b;
+      }
+
+      return pixels;
+   }
+
+   // Reads a header token and the single whitespace character following it.
+   private static String readToken(InputStream in) throws IOException {
+      StringBuilder token = new StringBuilder();
+      int c = readByte(in);
+      while (Character.isWhitespace(c)) {
+         c = readByte(in);
+      }
+      while (!Character.isWhitespace(c)) {
+         token.append((char) c);
+         c = readByte(in);
+      }
+
+      return token.toString();
+   }
+
+   private static int readByte(InputStream in) throws IOException {
+      int c = in.read();
+      if (c == -1) {
+         throw new IOException("Unexpected end of ppm image");
+      }
+
+      return c;
+   }
 }
@@ -18,6 +18,10 @@ public class PpmVideoOutListener implements VideoOutListener {
       System.arraycopy(frame, 0, _frame, 0, frame.length);
    }
 
+   public int[] getFrame() {
+      return _frame;
+   }
+
    public void write(OutputStream out) throws IOException {
       PpmUtil.write(out, NES_WIDTH, NES_HEIGHT, _frame);
    }
@@ -60,5 +60,14 @@ public class MaskRegister {
       return (value & MaskRegister.SPRITE_CLIPPING) == 0;
    }
 
+   public final boolean isGrayscaleEnabled() {
+      return (value & MaskRegister.DISABLE_COLORBURST) != 0;
+   }
+
+   // Red, green and blue emphasis as bits 0 to 2
+   public final int getColorEmphasis() {
+      return (value & MaskRegister.COLOR_INTENSITY) >> 5;
+   }
+
 
 }
@@ -8,4 +8,37 @@ public class Palette {
    /*0x20*/ 0xECEEEC, 0x4C9AEC, 0x787CEC, 0xB062EC, 0xE454EC, 0xEC58B4, 0xEC6A64, 0xD48820, 0xA0AA00, 0x74C400, 0x4CD020, 0x38CC6C, 0x38B4CC, 0x3C3C3C, 0x000000, 0x000000,
    /*0x30*/ 0xECEEEC, 0xA8CCEC, 0xBCBCEC, 0xD4B2EC, 0xECAEEC, 0xECAED4, 0xECB4B0, 0xE4C490, 0xCCD278, 0xB4DE78, 0xA8E290, 0x98E2B4, 0xA0D6E4, 0xA0A2A0, 0x000000, 0x000000,
    };
+
+   // Darkening of the components an emphasis bit doesn't emphasize (NTSC, approximate)
+   private static final double EMPHASIS_ATTENUATION = 0.746;
+
+   /**
+    * RGB of the colors with PPUMASK's emphasis bits, indexed by emphasis << 6 | color where
+    * emphasis holds the red, green and blue bits (5, 6 and 7 of PPUMASK) as bits 0 to 2.
+    */
+   public static final int[] RGB_EMPHASIS = createEmphasisRgb();
+
+   private static int[] createEmphasisRgb() {
+      int[] rgbEmphasis = new int[8 * 64];
+
+      for (int emphasis = 0; emphasis < 8; emphasis++) {
+         // Red dims green and blue, green dims red and blue, blue dims red and green
+         double red = ((emphasis & 0x6) != 0 ? EMPHASIS_ATTENUATION : 1) *
+               ((emphasis & 0x6) == 0x6 ? EMPHASIS_ATTENUATION : 1);
+         double green = ((emphasis & 0x5) != 0 ? EMPHASIS_ATTENUATION : 1) *
+               ((emphasis & 0x5) == 0x5 ? EMPHASIS_ATTENUATION : 1);
+         double blue = ((emphasis & 0x3) != 0 ? EMPHASIS_ATTENUATION : 1) *
+               ((emphasis & 0x3) == 0x3 ? EMPHASIS_ATTENUATION : 1);
+
+         for (int color = 0; color < 64; color++) {
+            int rgb = RGB[color];
+            rgbEmphasis[(emphasis << 6) | color] =
+                  ((int) Math.round(((rgb >> 16) & 0xFF) * red) << 16) |
+                  ((int) Math.round(((rgb >> 8) & 0xFF) * green) << 8) |
+                  (int) Math.round((rgb & 0xFF) * blue);
+         }
+      }
+
+      return rgbEmphasis;
+   }
 }
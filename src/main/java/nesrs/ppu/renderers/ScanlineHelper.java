@@ -19,14 +19,14 @@ public class ScanlineHelper {
    // 261 dummy scanline
 
    // Platoon works only with vblank start set to 0 right now.
-   public static int VBLANK_START_SCANLINE = 0; //241
-   public static int VBLANK_END_SCANLINE =
+   public static final int VBLANK_START_SCANLINE = 0; //241
+   public static final int VBLANK_END_SCANLINE =
       VBLANK_START_SCANLINE + VBLANK_SCANLINES_IN_FRAME - 1;
 
-   public static int DUMMY_RENDER_SCANLINE = VBLANK_END_SCANLINE + 1;
-   public static int FIRST_RENDER_SCANLINE =
+   public static final int DUMMY_RENDER_SCANLINE = VBLANK_END_SCANLINE + 1;
+   public static final int FIRST_RENDER_SCANLINE =
       (DUMMY_RENDER_SCANLINE + 1) % SCANLINES_COUNT_IN_FRAME;
-   public static int LAST_RENDER_SCANLINE = FIRST_RENDER_SCANLINE + 239;
+   public static final int LAST_RENDER_SCANLINE = FIRST_RENDER_SCANLINE + 239;
 
-   public static int WASTE_SCANLINE = LAST_RENDER_SCANLINE + 1;
+   public static final int WASTE_SCANLINE = LAST_RENDER_SCANLINE + 1;
 }
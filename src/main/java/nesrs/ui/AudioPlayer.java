@@ -1,6 +1,7 @@
 package nesrs.ui;
 
 import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioSystem;
@@ -8,76 +9,137 @@ import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.SourceDataLine;
 
 import nesrs.apu.AudioOutListener;
-import nesrs.apu.devices.Mixer;
 
+/**
+ * Plays the audio on its own thread, so the emulation never waits for the device. Frames hand
+ * their samples over through a SampleRingBuffer, and the thread writes them to the line at
+ * the device's pace.
+ *
+ * The emulation and the device run on different clocks, so the ring would slowly run empty or
+ * full. Instead the sample rate asked of the apu is nudged by up to MAX_RATE_ADJUSTMENT to
+ * keep it half full.
+ */
 public class AudioPlayer implements AudioOutListener, AutoCloseable {
+   // Line buffer in bytes at SAMPLE_RATE, about 46ms
    public static final int BUFFER_SIZE = 2048 * 2;
 
-   public static final int SAMPLE_RATE = 44100;
+   public static final int SAMPLE_RATE = SAMPLE_RATE_44100;
    public static final int BIT_DEPTH = 16;
    public static final boolean SIGNED = true;
 
-   private static final AudioFormat PCM = new AudioFormat(
-         SAMPLE_RATE,
-         BIT_DEPTH,
-         1, // Mono
-         SIGNED, // Signed
-         true);
+   private static final double MAX_RATE_ADJUSTMENT = 0.005;
+   // Samples written to the line at once
+   private static final int CHUNK_SIZE = 256;
 
-   private int _currentCycleInSample = 0;
+   private final int _sampleRate;
+   // Two frames of samples, rounded up to a power of two
+   private final SampleRingBuffer _ring;
+   private final SourceDataLine _sdl;
+   private final Thread _thread;
+   private volatile boolean _isRunning;
 
-   private final Mixer mixer;
-
-   private final byte[] _audioBuffer = new byte[735*2]; // (44100 / 60(fps))  * 2(bytes)
-   private int _audioBufferIndex = 0;
-   private byte[] _audioSamples = new byte[735*2]; // (44100 / 60(fps))  * 2(bytes)
-   private SourceDataLine _sdl;
+   // Each only written by one of the threads
+   private volatile long _underrunCount;
+   private volatile long _overrunCount;
 
    public AudioPlayer() throws LineUnavailableException {
-      mixer = new Mixer(Short.MAX_VALUE * 2 + 1, SIGNED);
+      this(SAMPLE_RATE);
+   }
+
+   public AudioPlayer(int sampleRate) throws LineUnavailableException {
+      _sampleRate = sampleRate;
+      _ring = new SampleRingBuffer(sampleRate / 30);
 
-      _sdl = AudioSystem.getSourceDataLine(PCM);
+      AudioFormat pcm = new AudioFormat(
+            sampleRate,
+            BIT_DEPTH,
+            1, // Mono
+            SIGNED, // Signed
+            true);
+      _sdl = AudioSystem.getSourceDataLine(pcm);
 
-      _sdl.open(PCM, BUFFER_SIZE);
+      _sdl.open(pcm, (int) ((long) BUFFER_SIZE * sampleRate / SAMPLE_RATE) & ~1);
       _sdl.start();
+
+      _isRunning = true;
+      _thread = new Thread(this::play, "Audio");
+      _thread.setDaemon(true);
+      _thread.start();
    }
 
+   /**
+    * Dynamic rate control: a little fewer samples while the ring is more than half full and a
+    * little more while it's less.
+    */
    @Override
-   public void handleAudio(int rec1Dac, int rec2Dac, int triDac, int randomDac, int dmcDac) {
-      _currentCycleInSample++;
+   public int getSampleRate() {
+      double fill = (double) _ring.size() / _ring.getCapacity();
+      return (int) Math.round(_sampleRate * (1 + MAX_RATE_ADJUSTMENT * (1 - 2 * fill)));
+   }
 
-      // Downsample to 44.1KHz hence pick 1 sample every 40 NES cpu cycles.
-      if (_currentCycleInSample != 40) {
-         return;
+   @Override
+   public void handleSamples(short[] samples, int sampleCount) {
+      if (_ring.write(samples, sampleCount) < sampleCount) {
+         _overrunCount++;
       }
+   }
 
-      // Mix
-      short sample = (short)mixer.mix(rec1Dac, rec2Dac, triDac, randomDac, dmcDac);
-
-      if (_audioBufferIndex == _audioBuffer.length) {
-         _audioBufferIndex = 0;
-         _audioSamples = _audioBuffer;
+   public void handleSamples(byte[] audioSamples) {
+      short[] samples = new short[audioSamples.length / 2];
+      for (int i = 0; i < samples.length; i++) {
+         samples[i] = (short) ((audioSamples[2 * i] << 8) | (audioSamples[2 * i + 1] & 0xFF));
       }
-
-      _audioBuffer[_audioBufferIndex] = (byte) ((sample >> 8) & 0x00FF);
-      _audioBuffer[_audioBufferIndex + 1] = (byte) (sample & 0x00FF);
-      _audioBufferIndex += 2;
-
-      _currentCycleInSample = 0;
+      handleSamples(samples, samples.length);
    }
 
-   public void handleSamples(byte[] audioSamples) {
-      _audioSamples = audioSamples;
+   @Override
+   public long getUnderrunCount() {
+      return _underrunCount;
    }
 
    @Override
-   public void render() {
-      _sdl.write(_audioSamples, 0, _audioSamples.length);
+   public long getOverrunCount() {
+      return _overrunCount;
+   }
+
+   // Audio thread
+   private void play() {
+      short[] samples = new short[CHUNK_SIZE];
+      byte[] bytes = new byte[2 * CHUNK_SIZE];
+      // Nothing played yet isn't an underrun
+      boolean isStarving = true;
+
+      while (_isRunning) {
+         int count = _ring.read(samples, CHUNK_SIZE);
+         if (count == 0) {
+            // Only an underrun once the line played all it had too
+            if (!isStarving && _sdl.available() >= _sdl.getBufferSize()) {
+               _underrunCount++;
+               isStarving = true;
+            }
+            LockSupport.parkNanos(1000000);
+            continue;
+         }
+         isStarving = false;
+
+         for (int i = 0; i < count; i++) {
+            bytes[2 * i] = (byte) ((samples[i] >> 8) & 0x00FF);
+            bytes[2 * i + 1] = (byte) (samples[i] & 0x00FF);
+         }
+         _sdl.write(bytes, 0, 2 * count);
+      }
    }
 
    @Override
    public void close() throws IOException {
+      _isRunning = false;
+      try {
+         _thread.join();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+
       _sdl.stop();
       _sdl.close();
    }
-}
\ No newline at end of file
+}
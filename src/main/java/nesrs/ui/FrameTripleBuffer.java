@@ -0,0 +1,66 @@
+package nesrs.ui;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free handoff of frames from the emulation thread to the display thread. The producer
+ * draws into the back buffer and publishes it, the consumer picks up the newest published one
+ * as its front buffer. The third buffer sits in between, so neither side ever waits for the
+ * other, and frames the consumer doesn't get to are just overwritten.
+ */
+final class FrameTripleBuffer {
+   // Set on the middle buffer's index while it holds a frame the consumer hasn't taken
+   private static final int FRESH = 0x4;
+   private static final int INDEX_MASK = 0x3;
+
+   private final int[][] _buffers;
+
+   // Owned by the producer, by the consumer and swapped between them
+   private int _backIndex = 0;
+   private int _frontIndex = 1;
+   private final AtomicInteger _middle = new AtomicInteger(2);
+
+   FrameTripleBuffer(int frameSize) {
+      this(new int[][] { new int[frameSize], new int[frameSize], new int[frameSize] });
+   }
+
+   // Hands off the given three buffers, e.g. the pixels of images
+   FrameTripleBuffer(int[][] buffers) {
+      if (buffers.length != 3) {
+         throw new IllegalArgumentException("Expected 3 buffers, got " + buffers.length);
+      }
+      _buffers = buffers;
+   }
+
+   // Producer
+   int[] getBackBuffer() {
+      return _buffers[_backIndex];
+   }
+
+   // Producer, hands the back buffer over and gets another one
+   void publish() {
+      _backIndex = _middle.getAndSet(_backIndex | FRESH) & INDEX_MASK;
+   }
+
+   /**
+    * Consumer, makes the newest published frame the front buffer. False if none was published
+    * since the last call, then the front buffer stays.
+    */
+   boolean update() {
+      if ((_middle.get() & FRESH) == 0) {
+         return false;
+      }
+      _frontIndex = _middle.getAndSet(_frontIndex) & INDEX_MASK;
+      return true;
+   }
+
+   // Consumer
+   int[] getFrontBuffer() {
+      return _buffers[_frontIndex];
+   }
+
+   // Consumer, which of the buffers given is the front buffer
+   int getFrontIndex() {
+      return _frontIndex;
+   }
+}
@@ -0,0 +1,65 @@
+package nesrs.ui;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free ring of samples between one producer thread, which only writes, and one consumer
+ * thread, which only reads. Each side only advances its own count, and publishes it after the
+ * samples it covers are copied.
+ */
+final class SampleRingBuffer {
+   private final short[] _samples;
+   private final int _mask;
+
+   // Samples written and read since the start
+   private final AtomicLong _writeCount = new AtomicLong();
+   private final AtomicLong _readCount = new AtomicLong();
+
+   // Rounded up to a power of two
+   SampleRingBuffer(int capacity) {
+      _samples = new short[Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1];
+      _mask = _samples.length - 1;
+   }
+
+   int getCapacity() {
+      return _samples.length;
+   }
+
+   // Samples written but not read yet, from either side
+   int size() {
+      return (int) (_writeCount.get() - _readCount.get());
+   }
+
+   /**
+    * Writes as many of the count samples as fit and returns how many did.
+    */
+   int write(short[] samples, int count) {
+      long writeCount = _writeCount.get();
+      int free = _samples.length - (int) (writeCount - _readCount.get());
+      count = Math.min(count, free);
+
+      int index = (int) writeCount & _mask;
+      int firstPart = Math.min(count, _samples.length - index);
+      System.arraycopy(samples, 0, _samples, index, firstPart);
+      System.arraycopy(samples, firstPart, _samples, 0, count - firstPart);
+
+      _writeCount.lazySet(writeCount + count);
+      return count;
+   }
+
+   /**
+    * Reads up to count samples and returns how many there were.
+    */
+   int read(short[] samples, int count) {
+      long readCount = _readCount.get();
+      count = Math.min(count, (int) (_writeCount.get() - readCount));
+
+      int index = (int) readCount & _mask;
+      int firstPart = Math.min(count, _samples.length - index);
+      System.arraycopy(_samples, index, samples, 0, firstPart);
+      System.arraycopy(_samples, 0, samples, firstPart, count - firstPart);
+
+      _readCount.lazySet(readCount + count);
+      return count;
+   }
+}
@@ -3,67 +3,159 @@ package nesrs.ui;
 import java.awt.Canvas;
 import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Image;
 import java.awt.image.BufferStrategy;
 import java.awt.image.BufferedImage;
-import java.awt.image.WritableRaster;
+import java.awt.image.DataBufferInt;
+import java.awt.image.VolatileImage;
+import java.util.concurrent.locks.LockSupport;
 
 import nesrs.ppu.VideoOutListener;
 
+/**
+ * Shows the frames on a display thread of its own, started with start() once the buffer
+ * strategy exists. The emulation thread only publishes each frame to a FrameTripleBuffer, so
+ * drawing, BufferStrategy.show() and vsync never hold it up. The display thread shows the
+ * newest frame whenever it gets to it.
+ *
+ * The three buffers are the pixels of three images, which the ppu draws straight into. The
+ * display thread uploads the newest to a VolatileImage once and scales that up, so nothing is
+ * copied or allocated on the way apart from the Graphics of the buffer strategy.
+ */
 public class VideoPlayer extends Canvas implements VideoOutListener {
    private static final long serialVersionUID = 1L;
 
    private static final int NES_HEIGHT = 240;
    private static final int NES_WIDTH = 256;
 
-   private final BufferedImage _frameBufferImage =
-         new BufferedImage(NES_WIDTH, NES_HEIGHT, BufferedImage.TYPE_INT_RGB);
-   private final int _scale = 2;
+   private final BufferedImage[] _frameImages = new BufferedImage[3];
+   private final FrameTripleBuffer _frames;
+   private final int _scale;
    private final boolean _debug = true;
 
+   // Display thread
+   private VolatileImage _uploadedFrameImage;
    private long _lastFrameEnd = 0;
-   
-   private boolean _explicitRender;
+   private int _fps = -1;
+   private String _fpsText;
 
-   public VideoPlayer(boolean explicitRender) {
-      _explicitRender = explicitRender;
+   private Thread _displayThread;
+   private volatile boolean _isRunning;
+
+   public VideoPlayer() {
+      this(2);
+   }
+
+   public VideoPlayer(int scale) {
+      _scale = scale;
       setSize(NES_WIDTH * _scale, NES_HEIGHT * _scale);
+
+      int[][] buffers = new int[_frameImages.length][];
+      for (int i = 0; i < _frameImages.length; i++) {
+         _frameImages[i] = new BufferedImage(NES_WIDTH, NES_HEIGHT, BufferedImage.TYPE_INT_RGB);
+         buffers[i] = ((DataBufferInt) _frameImages[i].getRaster().getDataBuffer()).getData();
+      }
+      _frames = new FrameTripleBuffer(buffers);
+   }
+
+   // Emulation thread
+   @Override
+   public int[] getFrameBuffer() {
+      return _frames.getBackBuffer();
    }
 
+   // Emulation thread
    @Override
    public void handleFrame(int[] framePixels) {
-      WritableRaster raster = _frameBufferImage.getRaster();
-      raster.setDataElements(0, 0, NES_WIDTH, NES_HEIGHT, framePixels);
-      if (!_explicitRender) {
-         render();
+      // The ppu draws into getFrameBuffer(), only pixels a caller drew elsewhere get copied
+      if (framePixels != _frames.getBackBuffer()) {
+         System.arraycopy(framePixels, 0, _frames.getBackBuffer(), 0, framePixels.length);
       }
+      _frames.publish();
    }
 
-   @Override
-   public final void render() {
+   public void start() {
+      _isRunning = true;
+      _displayThread = new Thread(this::display, "Display");
+      _displayThread.setDaemon(true);
+      _displayThread.start();
+   }
+
+   public void stop() throws InterruptedException {
+      _isRunning = false;
+      _displayThread.join();
+   }
+
+   // Display thread
+   private void display() {
+      while (_isRunning) {
+         if (_frames.update()) {
+            draw(_frameImages[_frames.getFrontIndex()]);
+         } else {
+            LockSupport.parkNanos(1000000);
+         }
+      }
+   }
+
+   private void draw(BufferedImage frameImage) {
       BufferStrategy buffer = getBufferStrategy();
 
-      final Graphics graphics = buffer.getDrawGraphics();
-      try {
-         graphics.drawImage(
-               _frameBufferImage,
-               0,
-               0,
-               NES_WIDTH * _scale,
-               NES_HEIGHT * _scale,
-               null);
-
-         long currentFrameEnd = System.currentTimeMillis();
-         if (_debug && _lastFrameEnd != 0) {
-            long currentFrameDuration = currentFrameEnd - _lastFrameEnd;
-            int fps = (int) (1000f / currentFrameDuration);
-            graphics.setColor(Color.GREEN);
-            graphics.drawString("FPS: " + fps, 16, 16);
+      do {
+         do {
+            final Graphics graphics = buffer.getDrawGraphics();
+            try {
+               graphics.drawImage(
+                     upload(frameImage),
+                     0,
+                     0,
+                     NES_WIDTH * _scale,
+                     NES_HEIGHT * _scale,
+                     null);
+
+               if (_debug) {
+                  graphics.setColor(Color.GREEN);
+                  graphics.drawString(getFpsText(), 16, 16);
+               }
+            } finally {
+               graphics.dispose();
+            }
+         } while (buffer.contentsRestored());
+
+         buffer.show();
+      } while (buffer.contentsLost());
+   }
+
+   // The frame in video memory, or as it is without acceleration
+   private Image upload(BufferedImage frameImage) {
+      if (_uploadedFrameImage == null ||
+            _uploadedFrameImage.validate(getGraphicsConfiguration()) == VolatileImage.IMAGE_INCOMPATIBLE) {
+         _uploadedFrameImage = createVolatileImage(NES_WIDTH, NES_HEIGHT);
+         if (_uploadedFrameImage == null) {
+            return frameImage;
          }
-         _lastFrameEnd = currentFrameEnd;
+      }
+
+      Graphics graphics = _uploadedFrameImage.getGraphics();
+      try {
+         graphics.drawImage(frameImage, 0, 0, null);
       } finally {
          graphics.dispose();
       }
+      return _uploadedFrameImage;
+   }
 
-      buffer.show();
+   // Only builds a new text as the fps change
+   private String getFpsText() {
+      long currentFrameEnd = System.currentTimeMillis();
+      if (_lastFrameEnd != 0) {
+         long currentFrameDuration = Math.max(currentFrameEnd - _lastFrameEnd, 1);
+         int fps = (int) (1000f / currentFrameDuration);
+         if (fps != _fps) {
+            _fps = fps;
+            _fpsText = "FPS: " + fps;
+         }
+      }
+      _lastFrameEnd = currentFrameEnd;
+      return _fpsText != null ? _fpsText : "";
    }
 }
@@ -0,0 +1,100 @@
+package nesrs.ui;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import nesrs.apu.AudioOutListener;
+
+/**
+ * Writes the audio to a 16 bit mono PCM WAV file, for recording or comparing runs. The sizes
+ * in the header are filled in on close().
+ */
+public class WavWriter implements AudioOutListener, AutoCloseable {
+   private static final int HEADER_SIZE = 44;
+   private static final int BYTES_PER_SAMPLE = 2;
+
+   private final int _sampleRate;
+   private final RandomAccessFile _file;
+   private final FileChannel _channel;
+
+   private ByteBuffer _buffer = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+   private long _dataSize;
+
+   public WavWriter(File file, int sampleRate) throws IOException {
+      _sampleRate = sampleRate;
+      _file = new RandomAccessFile(file, "rw");
+      _file.setLength(0);
+      _channel = _file.getChannel();
+
+      writeHeader();
+   }
+
+   @Override
+   public int getSampleRate() {
+      return _sampleRate;
+   }
+
+   @Override
+   public void handleSamples(short[] samples, int sampleCount) {
+      if (_buffer.capacity() < BYTES_PER_SAMPLE * sampleCount) {
+         _buffer = ByteBuffer.allocate(BYTES_PER_SAMPLE * sampleCount).order(ByteOrder.LITTLE_ENDIAN);
+      }
+
+      _buffer.clear();
+      _buffer.asShortBuffer().put(samples, 0, sampleCount);
+      _buffer.limit(BYTES_PER_SAMPLE * sampleCount);
+
+      try {
+         while (_buffer.hasRemaining()) {
+            _channel.write(_buffer);
+         }
+      } catch (IOException e) {
+         throw new RuntimeException("Failed to write samples", e);
+      }
+      _dataSize += BYTES_PER_SAMPLE * sampleCount;
+   }
+
+   public long getDataSize() {
+      return _dataSize;
+   }
+
+   @Override
+   public void close() throws IOException {
+      try {
+         writeHeader();
+      } finally {
+         _file.close();
+      }
+   }
+
+   private void writeHeader() throws IOException {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      header.put(new byte[] { 'R', 'I', 'F', 'F' });
+      header.putInt((int) (HEADER_SIZE - 8 + _dataSize));
+      header.put(new byte[] { 'W', 'A', 'V', 'E' });
+
+      header.put(new byte[] { 'f', 'm', 't', ' ' });
+      header.putInt(16);
+      header.putShort((short) 1); // PCM
+      header.putShort((short) 1); // Mono
+      header.putInt(_sampleRate);
+      header.putInt(_sampleRate * BYTES_PER_SAMPLE);
+      header.putShort((short) BYTES_PER_SAMPLE);
+      header.putShort((short) (8 * BYTES_PER_SAMPLE));
+
+      header.put(new byte[] { 'd', 'a', 't', 'a' });
+      header.putInt((int) _dataSize);
+      header.flip();
+
+      long position = HEADER_SIZE + _dataSize;
+      _channel.position(0);
+      while (header.hasRemaining()) {
+         _channel.write(header);
+      }
+      _channel.position(position);
+   }
+}
@@ -0,0 +1,291 @@
+package nesrs;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import nesrs.ppu.VideoOutListener;
+
+public class NesTest {
+
+   @Test
+   public void testStepFrame() {
+      FrameRecorder video = new FrameRecorder();
+      Nes nes = new Nes(createRom(), video, null, null);
+      nes.powerUp();
+
+      nes.stepFrame();
+      Assert.assertEquals(1, nes.getFrameCount());
+      Assert.assertTrue(nes.getTotalCpuCycles() >= 29781);
+      Assert.assertTrue(nes.getTotalCpuCycles() < 29781 + 8);
+
+      nes.runFrames(9);
+      Assert.assertEquals(10, nes.getFrameCount());
+      Assert.assertTrue(nes.getTotalCpuCycles() >= 10 * 29781);
+      Assert.assertTrue(nes.getTotalCpuCycles() < 10 * 29781 + 8);
+      Assert.assertEquals(10, video._frames.size());
+   }
+
+   @Test
+   public void testRunUntilCycleMatchesStepFrame() {
+      FrameRecorder steppedVideo = new FrameRecorder();
+      Nes stepped = new Nes(createRom(), steppedVideo, null, null);
+      stepped.powerUp();
+      stepped.runFrames(5);
+
+      FrameRecorder cycledVideo = new FrameRecorder();
+      Nes cycled = new Nes(createRom(), cycledVideo, null, null);
+      cycled.powerUp();
+      cycled.runUntilCycle(stepped.getTotalCpuCycles());
+
+      Assert.assertEquals(stepped.getTotalCpuCycles(), cycled.getTotalCpuCycles());
+      Assert.assertEquals(stepped.getFrameCount(), cycled.getFrameCount());
+      Assert.assertEquals(steppedVideo._frames.size(), cycledVideo._frames.size());
+      for (int i = 0; i < steppedVideo._frames.size(); i++) {
+         Assert.assertArrayEquals(steppedVideo._frames.get(i), cycledVideo._frames.get(i));
+      }
+   }
+
+   @Test
+   public void testMetricsListener() {
+      FrameRecorder withoutMetricsVideo = new FrameRecorder();
+      Nes withoutMetrics = new Nes(createRom(), withoutMetricsVideo, null, null);
+      withoutMetrics.powerUp();
+      withoutMetrics.runFrames(5);
+
+      List<NesMetrics> metrics = new ArrayList<NesMetrics>();
+      FrameRecorder withMetricsVideo = new FrameRecorder();
+      Nes withMetrics = new Nes(createRom(), withMetricsVideo, null, null);
+      withMetrics.setMetricsListener(frameMetrics -> {
+         NesMetrics copy = new NesMetrics();
+         copy.frame = frameMetrics.frame;
+         copy.instructions = frameMetrics.instructions;
+         copy.cpuCycles = frameMetrics.cpuCycles;
+         copy.cpuTimeNs = frameMetrics.cpuTimeNs;
+         copy.ppuTimeNs = frameMetrics.ppuTimeNs;
+         metrics.add(copy);
+      });
+      withMetrics.powerUp();
+      withMetrics.runFrames(5);
+
+      Assert.assertEquals(5, metrics.size());
+      long cpuCycles = 0;
+      for (int i = 0; i < metrics.size(); i++) {
+         Assert.assertEquals(i + 1, metrics.get(i).frame);
+         Assert.assertTrue(metrics.get(i).instructions > 0);
+         Assert.assertTrue(metrics.get(i).cpuTimeNs > 0);
+         // Caught up at the end of the frame at least
+         Assert.assertTrue(metrics.get(i).ppuTimeNs > 0);
+         cpuCycles += metrics.get(i).cpuCycles;
+      }
+      Assert.assertEquals(withMetrics.getTotalCpuCycles(), cpuCycles);
+
+      // Metrics don't change emulation
+      Assert.assertEquals(withoutMetrics.getTotalCpuCycles(), withMetrics.getTotalCpuCycles());
+      for (int i = 0; i < withoutMetricsVideo._frames.size(); i++) {
+         Assert.assertArrayEquals(withoutMetricsVideo._frames.get(i), withMetricsVideo._frames.get(i));
+      }
+   }
+
+   @Test
+   public void testDynarecMatchesInterpreter() {
+      assertDynarecMatchesInterpreter(createRom());
+   }
+
+   @Test
+   public void testDynarecMatchesInterpreterOnRamLoop() {
+      long compiledCycles = assertDynarecMatchesInterpreter(createRamLoopRom());
+
+      // Most of the loop runs compiled, next to the real ppu, apu and scheduler
+      Assert.assertTrue("Compiled cycles " + compiledCycles, compiledCycles > 30 * 29781 / 2);
+   }
+
+   @Test
+   public void testMetricsCountEveryOp() {
+      List<NesMetrics> interpretedMetrics = new ArrayList<NesMetrics>();
+      Nes interpreted = new Nes(createRom(), new FrameRecorder(), null, null);
+      interpreted.setMetricsListener(frameMetrics -> interpretedMetrics.add(copyOps(frameMetrics)));
+      interpreted.powerUp();
+      interpreted.runFrames(30);
+
+      List<NesMetrics> recompiledMetrics = new ArrayList<NesMetrics>();
+      Nes recompiled = new Nes(createRom(), new FrameRecorder(), null, null);
+      recompiled.setDynarecEnabled(true);
+      recompiled.setMetricsListener(frameMetrics -> recompiledMetrics.add(copyOps(frameMetrics)));
+      recompiled.powerUp();
+      recompiled.runFrames(30);
+
+      // Compiled blocks and skipped idle loop passes count each of their ops
+      for (int i = 0; i < interpretedMetrics.size(); i++) {
+         Assert.assertEquals(interpretedMetrics.get(i).instructions, recompiledMetrics.get(i).instructions);
+         // Mostly the 3 cycle JMP of the idle loop, not one per skip
+         Assert.assertTrue(interpretedMetrics.get(i).instructions > 29781 / 4);
+      }
+   }
+
+   @Test
+   public void testSteadyStateAllocatesNothing() {
+      java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+      Assume.assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+      com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+      Assume.assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+      allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+      Nes nes = new Nes(createRom(), frame -> {}, null, null);
+      nes.powerUp();
+      // Warm-up, long enough for the JIT to compile what only gets hot with the frame irq on
+      nes.runFrames(600);
+
+      long threadId = Thread.currentThread().getId();
+      long allocatedBefore = allocationBean.getThreadAllocatedBytes(threadId);
+      nes.runFrames(120);
+      long allocated = allocationBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+      Assert.assertEquals("Bytes allocated by 120 frames", 0, allocated);
+   }
+
+   @Test(expected = IllegalStateException.class)
+   public void testStepFrameWhileStarted() {
+      Nes nes = new Nes(createRom(), new FrameRecorder(), null, null);
+      nes.start();
+      try {
+         nes.stepFrame();
+      } finally {
+         nes.stop();
+      }
+   }
+
+   // Returns the cycles the dynarec ran compiled
+   private static long assertDynarecMatchesInterpreter(byte[] rom) {
+      FrameRecorder interpretedVideo = new FrameRecorder();
+      Nes interpreted = new Nes(rom, interpretedVideo, null, null);
+      interpreted.powerUp();
+      interpreted.runFrames(30);
+
+      long[] compiledCycles = new long[1];
+      FrameRecorder recompiledVideo = new FrameRecorder();
+      Nes recompiled = new Nes(rom, recompiledVideo, null, null);
+      recompiled.setDynarecEnabled(true);
+      recompiled.setMetricsListener(frameMetrics -> compiledCycles[0] += frameMetrics.compiledCycles);
+      recompiled.powerUp();
+      recompiled.runFrames(30);
+
+      Assert.assertEquals(interpreted.getTotalCpuCycles(), recompiled.getTotalCpuCycles());
+      Assert.assertEquals(interpretedVideo._frames.size(), recompiledVideo._frames.size());
+      for (int i = 0; i < interpretedVideo._frames.size(); i++) {
+         Assert.assertArrayEquals(interpretedVideo._frames.get(i), recompiledVideo._frames.get(i));
+      }
+      return compiledCycles[0];
+   }
+
+   private static NesMetrics copyOps(NesMetrics frameMetrics) {
+      NesMetrics copy = new NesMetrics();
+      copy.instructions = frameMetrics.instructions;
+      return copy;
+   }
+
+   /**
+    * NROM image which turns on the background and sprites, enables nmi and then loops forever
+    * while the nmi handler keeps changing the universal background color. The apu frame irq
+    * stays on, masked by I.
+    */
+   private static byte[] createRom() {
+      int[] program = {
+            0x78,             // $C000 SEI
+            0xA9, 0x80,       // $C001 LDA #$80
+            0x8D, 0x00, 0x20, // $C003 STA $2000
+            0xA9, 0x1E,       // $C006 LDA #$1E
+            0x8D, 0x01, 0x20, // $C008 STA $2001
+            0x4C, 0x0B, 0xC0, // $C00B JMP $C00B
+            // nmi handler
+            0xA9, 0x3F,       // $C00E LDA #$3F
+            0x8D, 0x06, 0x20, // $C010 STA $2006
+            0xA9, 0x00,       // $C013 LDA #$00
+            0x8D, 0x06, 0x20, // $C015 STA $2006
+            0xE6, 0x10,       // $C018 INC $10
+            0xA5, 0x10,       // $C01A LDA $10
+            0x8D, 0x07, 0x20, // $C01C STA $2007
+            0x40              // $C01F RTI
+      };
+
+      return createRom(program, new int[] {0x0E, 0xC0, 0x00, 0xC0, 0x0B, 0xC0});
+   }
+
+   /**
+    * NROM image like createRom(), but the main loop keeps copying and changing zero page and
+    * RAM through indexed and indirect addressing and a subroutine, and the nmi handler sets the
+    * universal background color to a counter the subroutine increments.
+    */
+   private static byte[] createRamLoopRom() {
+      int[] program = {
+            0x78,             // $C000 SEI
+            0xA9, 0x00,       // $C001 LDA #$00
+            0x85, 0x30,       // $C003 STA $30
+            0xA9, 0x03,       // $C005 LDA #$03
+            0x85, 0x31,       // $C007 STA $31
+            0xA9, 0x80,       // $C009 LDA #$80
+            0x8D, 0x00, 0x20, // $C00B STA $2000
+            0xA9, 0x1E,       // $C00E LDA #$1E
+            0x8D, 0x01, 0x20, // $C010 STA $2001
+            0xA2, 0x00,       // $C013 loop: LDX #$00
+            0xB5, 0x20,       // $C015 copy: LDA $20,X
+            0x9D, 0x00, 0x03, // $C017 STA $0300,X
+            0xB1, 0x30,       // $C01A LDA ($30),Y
+            0x95, 0x40,       // $C01C STA $40,X
+            0x20, 0x2A, 0xC0, // $C01E JSR sub
+            0xE8,             // $C021 INX
+            0xE0, 0x10,       // $C022 CPX #$10
+            0xD0, 0xEF,       // $C024 BNE copy
+            0xC8,             // $C026 INY
+            0x4C, 0x13, 0xC0, // $C027 JMP loop
+            0xF6, 0x20,       // $C02A sub: INC $20,X
+            0xA1, 0x50,       // $C02C LDA ($50,X)
+            0x55, 0x20,       // $C02E EOR $20,X
+            0x60,             // $C030 RTS
+            // nmi handler
+            0xA9, 0x3F,       // $C031 LDA #$3F
+            0x8D, 0x06, 0x20, // $C033 STA $2006
+            0xA9, 0x00,       // $C036 LDA #$00
+            0x8D, 0x06, 0x20, // $C038 STA $2006
+            0xA5, 0x2F,       // $C03B LDA $2F
+            0x8D, 0x07, 0x20, // $C03D STA $2007
+            0x40              // $C040 RTI
+      };
+
+      return createRom(program, new int[] {0x31, 0xC0, 0x00, 0xC0, 0x40, 0xC0});
+   }
+
+   // NROM image with the program at $C000 and the NMI, RESET and IRQ vectors
+   private static byte[] createRom(int[] program, int[] vectorBytes) {
+      byte[] rom = new byte[16 + 16384 + 8192];
+      rom[0] = 'N';
+      rom[1] = 'E';
+      rom[2] = 'S';
+      rom[3] = 0x1A;
+      rom[4] = 1; // 16KB PRG ROM
+      rom[5] = 1; // 8KB CHR ROM
+      for (int i = 0; i < program.length; i++) {
+         rom[16 + i] = (byte) program[i];
+      }
+
+      int vectors = 16 + 0x3FFA;
+      for (int i = 0; i < vectorBytes.length; i++) {
+         rom[vectors + i] = (byte) vectorBytes[i];
+      }
+
+      return rom;
+   }
+
+   private static class FrameRecorder implements VideoOutListener {
+      private final List<int[]> _frames = new ArrayList<int[]>();
+
+      @Override
+      public void handleFrame(int[] frame) {
+         _frames.add(frame.clone());
+      }
+   }
+}
@@ -0,0 +1,57 @@
+package nesrs;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SchedulerTest {
+
+   @Test
+   public void testNextEvent() {
+      Scheduler scheduler = new Scheduler();
+      Assert.assertEquals(Scheduler.NEVER, scheduler.getNextEventCycle());
+      Assert.assertEquals(Integer.MAX_VALUE, scheduler.getCpuCyclesToNextEvent());
+
+      scheduler.schedule(Scheduler.FRAME_END, 1000);
+      scheduler.schedule(Scheduler.PPU, 500);
+      scheduler.schedule(Scheduler.APU, 700);
+      Assert.assertEquals(Scheduler.PPU, scheduler.getNextEvent());
+      Assert.assertEquals(500, scheduler.getNextEventCycle());
+
+      // Later
+      scheduler.schedule(Scheduler.PPU, 1200);
+      Assert.assertEquals(Scheduler.APU, scheduler.getNextEvent());
+
+      // Earlier
+      scheduler.schedule(Scheduler.FRAME_END, 600);
+      Assert.assertEquals(Scheduler.FRAME_END, scheduler.getNextEvent());
+
+      scheduler.cancel(Scheduler.FRAME_END);
+      scheduler.cancel(Scheduler.APU);
+      Assert.assertEquals(Scheduler.PPU, scheduler.getNextEvent());
+      Assert.assertEquals(Scheduler.NEVER, scheduler.getEventCycle(Scheduler.APU));
+   }
+
+   @Test
+   public void testCpuCyclesToNextEvent() {
+      Scheduler scheduler = new Scheduler();
+      scheduler.addCpuCycles(10);
+      Assert.assertEquals(10, scheduler.getCpuCycle());
+
+      scheduler.scheduleCpuCycles(Scheduler.APU, 5);
+      Assert.assertEquals(5, scheduler.getCpuCyclesToNextEvent());
+
+      // 7 ppu cycles take 2 and a third cpu cycles, an op may start in the third
+      scheduler.schedulePpuCycles(Scheduler.PPU, 7);
+      Assert.assertEquals(3, scheduler.getCpuCyclesToNextEvent());
+
+      scheduler.addCpuCycles(4);
+      Assert.assertEquals(0, scheduler.getCpuCyclesToNextEvent());
+
+      scheduler.scheduleCpuCycles(Scheduler.PPU, Integer.MAX_VALUE);
+      Assert.assertEquals(1, scheduler.getCpuCyclesToNextEvent());
+
+      scheduler.reset();
+      Assert.assertEquals(0, scheduler.getCycle());
+      Assert.assertEquals(Scheduler.NEVER, scheduler.getNextEventCycle());
+   }
+}
@@ -0,0 +1,72 @@
+package nesrs.apu;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import nesrs.cpu.NesCpuMemory;
+
+public class ApuCatchUpTest {
+
+   @Test
+   public void testCatchUpMatchesClockingEachCycle() {
+      for (int seed = 0; seed < 16; seed++) {
+         AudioRecorder singleAudio = new AudioRecorder();
+         AudioRecorder bulkAudio = new AudioRecorder();
+         Apu single = createApu(singleAudio);
+         Apu bulk = createApu(bulkAudio);
+
+         Random random = new Random(seed);
+         for (int i = 0; i < 300; i++) {
+            int register = 0x4000 + random.nextInt(0x18);
+            if (register != 0x4014 && register != 0x4016) {
+               int value = random.nextInt(0x100);
+               single.writeRegister(register, value);
+               bulk.catchUp();
+               bulk.writeRegister(register, value);
+            }
+
+            int cycles = 1 + random.nextInt(2000);
+            for (int j = 0; j < cycles; j++) {
+               single.clock();
+            }
+            bulk.addCycles(cycles);
+
+            if (random.nextInt(4) == 0) {
+               bulk.catchUp();
+               Assert.assertEquals("Seed " + seed, single.readRegister(0x4015), bulk.readRegister(0x4015));
+            }
+            if (random.nextInt(8) == 0) {
+               single.endFrame();
+               bulk.endFrame();
+            }
+         }
+         single.endFrame();
+         bulk.endFrame();
+
+         Assert.assertFalse(singleAudio._samples.isEmpty());
+         Assert.assertEquals("Seed " + seed, singleAudio._samples, bulkAudio._samples);
+      }
+   }
+
+   private static Apu createApu(AudioRecorder audio) {
+      Apu apu = new Apu(new NesCpuMemory());
+      apu.setAudioOutListener(audio);
+      apu.init();
+      return apu;
+   }
+
+   private static class AudioRecorder implements AudioOutListener {
+      private final List<Short> _samples = new ArrayList<Short>();
+
+      @Override
+      public void handleSamples(short[] samples, int sampleCount) {
+         for (int i = 0; i < sampleCount; i++) {
+            _samples.add(samples[i]);
+         }
+      }
+   }
+}
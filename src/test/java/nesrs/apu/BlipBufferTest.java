@@ -0,0 +1,85 @@
+package nesrs.apu;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BlipBufferTest {
+
+   private static final int FRAME_CLOCKS = 29781;
+   private static final int SAMPLE_RATE = AudioOutListener.SAMPLE_RATE_44100;
+
+   @Test
+   public void testSamplesPerFrame() {
+      int[] sampleRates = {
+            AudioOutListener.SAMPLE_RATE_22050,
+            AudioOutListener.SAMPLE_RATE_44100,
+            AudioOutListener.SAMPLE_RATE_48000 };
+      for (int sampleRate : sampleRates) {
+         BlipBuffer blipBuffer = new BlipBuffer(Apu.CLOCK_RATE, sampleRate, FRAME_CLOCKS);
+         short[] samples = new short[BlipBuffer.getMaxSamples(Apu.CLOCK_RATE, sampleRate, FRAME_CLOCKS)];
+
+         // 366.9, 733.8 or 798.7 samples a frame, the fraction carries over
+         int samplesPerFrame = FRAME_CLOCKS * sampleRate / Apu.CLOCK_RATE;
+         long total = 0;
+         for (int frame = 0; frame < 600; frame++) {
+            blipBuffer.endFrame(FRAME_CLOCKS);
+            int count = blipBuffer.readSamples(samples);
+            Assert.assertTrue(count == samplesPerFrame || count == samplesPerFrame + 1);
+            total += count;
+         }
+         Assert.assertEquals(600L * FRAME_CLOCKS * sampleRate / Apu.CLOCK_RATE, total);
+      }
+   }
+
+   @Test
+   public void testSampleRateChangesBetweenFrames() {
+      BlipBuffer blipBuffer = new BlipBuffer(Apu.CLOCK_RATE, AudioOutListener.SAMPLE_RATE_48000, FRAME_CLOCKS);
+      short[] samples = new short[BlipBuffer.getMaxSamples(Apu.CLOCK_RATE, AudioOutListener.SAMPLE_RATE_48000, FRAME_CLOCKS)];
+
+      blipBuffer.setSampleRate(SAMPLE_RATE);
+      blipBuffer.endFrame(FRAME_CLOCKS);
+      Assert.assertEquals(733, blipBuffer.readSamples(samples));
+
+      // 0.5% more, with the fraction left over from the last frame
+      blipBuffer.setSampleRate(SAMPLE_RATE + SAMPLE_RATE / 200);
+      blipBuffer.endFrame(FRAME_CLOCKS);
+      Assert.assertEquals(738, blipBuffer.readSamples(samples));
+   }
+
+   @Test
+   public void testStep() {
+      BlipBuffer blipBuffer = new BlipBuffer(Apu.CLOCK_RATE, SAMPLE_RATE, FRAME_CLOCKS);
+      short[] samples = new short[BlipBuffer.getMaxSamples(Apu.CLOCK_RATE, SAMPLE_RATE, FRAME_CLOCKS)];
+
+      blipBuffer.addDelta(1000, 10000);
+      blipBuffer.endFrame(FRAME_CLOCKS);
+      int count = blipBuffer.readSamples(samples);
+
+      // Silence before the step, which rises within the kernel, overshooting a little, and then
+      // slowly decays
+      int step = 1000 * SAMPLE_RATE / Apu.CLOCK_RATE;
+      for (int i = 0; i < step; i++) {
+         Assert.assertEquals(0, samples[i]);
+      }
+      int max = 0;
+      for (int i = step; i < step + 20; i++) {
+         max = Math.max(max, samples[i]);
+      }
+      Assert.assertTrue(max > 9500 && max < 11500);
+      Assert.assertTrue(samples[count - 1] > 0 && samples[count - 1] < max / 2);
+   }
+
+   @Test
+   public void testDcDecays() {
+      BlipBuffer blipBuffer = new BlipBuffer(Apu.CLOCK_RATE, SAMPLE_RATE, FRAME_CLOCKS);
+      short[] samples = new short[BlipBuffer.getMaxSamples(Apu.CLOCK_RATE, SAMPLE_RATE, FRAME_CLOCKS)];
+
+      blipBuffer.addDelta(0, 20000);
+      int count = 0;
+      for (int frame = 0; frame < 10; frame++) {
+         blipBuffer.endFrame(FRAME_CLOCKS);
+         count = blipBuffer.readSamples(samples);
+      }
+      Assert.assertEquals(0, samples[count - 1]);
+   }
+}
@@ -81,4 +81,17 @@ public class DividerTest extends TestCase {
       boolean shouldOutputClock = divider.clock();
       Assert.assertTrue(shouldOutputClock);
    }
+
+   @Test
+   public void testDividerSkip() {
+      Divider divider = new Divider(5);
+      Assert.assertEquals(4, divider.getQuietClocks());
+
+      divider.skip(4);
+      Assert.assertEquals(0, divider.getQuietClocks());
+      Assert.assertTrue(divider.clock());
+      Assert.assertEquals(4, divider.getQuietClocks());
+
+      Assert.assertEquals(Integer.MAX_VALUE, new Divider(0).getQuietClocks());
+   }
 }
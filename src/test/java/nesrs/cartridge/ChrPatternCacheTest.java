@@ -0,0 +1,87 @@
+package nesrs.cartridge;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import nesrs.cartridge.NameTableMirroring.NameTableMirroringType;
+import nesrs.cartridge.mappers.Mapper066;
+
+public class ChrPatternCacheTest {
+
+   @Test
+   public void testDecodeRow() {
+      // Pixels 0..7: 3 0 1 2 0 0 0 1
+      int row = ChrPatternCache.decodeRow(0xA1, 0x90);
+
+      Assert.assertEquals(0x4093, row & 0xFFFF);
+      // Pixels 1 0 0 0 2 1 0 3
+      Assert.assertEquals(0xC601, row >>> 16);
+   }
+
+   @Test
+   public void testFollowsChrRamWrites() {
+      CartridgeMemory cartridgeMemory = buildCartridgeMemory(new int[8][1024], true);
+      Cartridge cartridge = new Cartridge(cartridgeMemory, 0);
+
+      Assert.assertEquals(0, cartridge.readChrPattern(0x1234));
+
+      // Tile 0x23 of the second pattern table, row 4
+      cartridge.writeChrMemory(0x1234, 0xFF);
+      Assert.assertEquals(0x5555, cartridge.readChrPattern(0x1234) & 0xFFFF);
+      Assert.assertEquals(0x5555, cartridge.readChrPattern(0x123C) & 0xFFFF);
+
+      cartridge.writeChrMemory(0x123C, 0x80);
+      Assert.assertEquals(0x5557, cartridge.readChrPattern(0x1234) & 0xFFFF);
+
+      // Other rows untouched
+      Assert.assertEquals(0, cartridge.readChrPattern(0x1233));
+      Assert.assertEquals(0, cartridge.readChrPattern(0x1235));
+   }
+
+   @Test
+   public void testIgnoresChrRomWrites() {
+      int[][] chrRom = new int[8][1024];
+      chrRom[0][0x10] = 0x01;
+      CartridgeMemory cartridgeMemory = buildCartridgeMemory(chrRom, false);
+      Cartridge cartridge = new Cartridge(cartridgeMemory, 0);
+
+      cartridge.writeChrMemory(0x0010, 0xFF);
+      Assert.assertEquals(0x4000, cartridge.readChrPattern(0x0010) & 0xFFFF);
+   }
+
+   @Test
+   public void testFollowsBankSwitches() {
+      int[][] chrRom = new int[32][1024];
+      for (int bank = 0; bank < chrRom.length; bank++) {
+         chrRom[bank][0] = bank;
+      }
+      CartridgeMemory cartridgeMemory = buildCartridgeMemory(chrRom, false);
+      Cartridge cartridge = new Cartridge(cartridgeMemory, 66);
+
+      Assert.assertEquals(
+            ChrPatternCache.decodeRow(0, 0),
+            cartridge.readChrPattern(0x0000));
+      Assert.assertEquals(
+            ChrPatternCache.decodeRow(1, 0),
+            cartridge.readChrPattern(0x0400));
+
+      // Second 8KB CHR bank
+      cartridge.writePrgMemory(0x8000, 0x01);
+      Assert.assertEquals(
+            ChrPatternCache.decodeRow(8, 0),
+            cartridge.readChrPattern(0x0000));
+      Assert.assertEquals(
+            ChrPatternCache.decodeRow(15, 0),
+            cartridge.readChrPattern(0x1C00));
+   }
+
+   private static CartridgeMemory buildCartridgeMemory(int[][] chrMem, boolean isChrMemRam) {
+      return new CartridgeMemory(
+            new int[32][1024],
+            new int[8 * 1024],
+            false,
+            chrMem,
+            isChrMemRam,
+            NameTableMirroringType.HORIZONTAL);
+   }
+}
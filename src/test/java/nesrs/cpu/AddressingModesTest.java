@@ -123,7 +123,7 @@ public class AddressingModesTest extends TestCase {
       memory.write(0x2001, 0x90); // Op
       memory.write(0x2002, 0x0F);
 
-      cpu._P = cpu._P & ~Cpu.C_FLAG;
+      cpu.setP(cpu.getP() & ~Cpu.C_FLAG);
       cpu._PC = 0x2001;
       cpu.executeOp();
 
@@ -167,9 +167,9 @@ public class AddressingModesTest extends TestCase {
 
    private void asserts() throws Exception {
       assertEquals(0x78, cpu._A);
-      assertTrue((cpu._P & Cpu.C_FLAG) != 0);
-      assertTrue((cpu._P & Cpu.V_FLAG) != 0);
-      assertTrue((cpu._P & Cpu.N_FLAG) == 0);
-      assertTrue((cpu._P & Cpu.Z_FLAG) == 0);
+      assertTrue((cpu.getP() & Cpu.C_FLAG) != 0);
+      assertTrue((cpu.getP() & Cpu.V_FLAG) != 0);
+      assertTrue((cpu.getP() & Cpu.N_FLAG) == 0);
+      assertTrue((cpu.getP() & Cpu.Z_FLAG) == 0);
    }
 }
@@ -0,0 +1,293 @@
+package nesrs.cpu;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import nesrs.cartridge.Cartridge;
+import nesrs.cartridge.INesRomCartridgeReader;
+
+public class DynarecTest {
+
+   private static final int NMI_INTERVAL = 2000;
+   private static final int IRQ_INTERVAL = 1500;
+
+   @Test
+   public void testLoopRunsCompiled() {
+      int[] program = {
+            0xA2, 0x00,       // $8000 LDX #$00
+            0xE8,             // $8002 loop: INX
+            0xD0, 0xFD,       // $8003 BNE loop
+            0x4C, 0x00, 0x80, // $8005 JMP $8000
+      };
+      TestMemory memory = new TestMemory(createRom(program));
+      Cpu cpu = new Cpu(memory);
+      cpu.setDynarecEnabled(true);
+      cpu.init(0, 0, 0, 0xFD, Cpu.R_FLAG | Cpu.I_FLAG, 0x8000);
+
+      // Warm-up, until the blocks are compiled
+      for (int i = 0; i < 10000; i++) {
+         cpu.executeOps(1);
+      }
+
+      // The block at $8000 holds the whole loop
+      cpu.init(0, 0, 0, 0xFD, Cpu.R_FLAG | Cpu.I_FLAG, 0x8000);
+      int cycles = cpu.executeOps(1000);
+      Assert.assertTrue("Cycles " + cycles, cycles >= 1000);
+      Assert.assertTrue("Cycles " + cycles, cycles < 1000 + 7);
+   }
+
+   @Test
+   public void testRandomCodeMatchesInterpreter() {
+      for (int seed = 0; seed < 32; seed++) {
+         Random random = new Random(seed);
+         int[][] rom = new int[8][0x100];
+         int[][] switchedRom = new int[8][0x100];
+         int[] ram = new int[0x800];
+         fill(random, rom);
+         fill(random, switchedRom);
+         for (int i = 0; i < ram.length; i++) {
+            ram[i] = random.nextInt(0x100);
+         }
+
+         assertSameAsInterpreter(
+               new TestMemory(rom, switchedRom, ram),
+               new TestMemory(rom, switchedRom, ram),
+               0x8000 | random.nextInt(0x8000),
+               200000,
+               -1);
+      }
+   }
+
+   @Test
+   public void testMaskedIrqTakenAfterCliAndPlp() {
+      int[] program = {
+            0x78,             // $8000 loop: SEI
+            0xE8,             // $8001 INX
+            0x58,             // $8002 CLI
+            0x08,             // $8003 PHP
+            0x78,             // $8004 SEI
+            0xC8,             // $8005 INY
+            0x28,             // $8006 PLP
+            0xE8,             // $8007 INX
+            0x4C, 0x00, 0x80, // $8008 JMP loop
+            0x40,             // $800B irq handler: RTI
+            0x40,             // $800C nmi handler: RTI
+      };
+      int[][] rom = createRom(program);
+      // NMI and IRQ vectors, in the last of the repeated pages
+      rom[7][0xFA] = 0x0C;
+      rom[7][0xFB] = 0x80;
+      rom[7][0xFE] = 0x0B;
+      rom[7][0xFF] = 0x80;
+
+      assertSameAsInterpreter(new TestMemory(rom), new TestMemory(rom), 0x8000, 200000, 0x800B);
+   }
+
+   @Test
+   public void testNestestMatchesInterpreter() throws Exception {
+      InputStream in = getClass().getResourceAsStream("/testroms/nestest/nestest.nes");
+      Assume.assumeNotNull(in);
+      Cartridge cartridge = new INesRomCartridgeReader(in).readCartridge();
+
+      // 16KB of PRG ROM, at $8000 and $C000
+      int[][] prgRom = cartridge.getCartridgeMemory().prgRom;
+      int[][] rom = new int[0x40][0x100];
+      for (int i = 0; i < 0x4000; i++) {
+         rom[i >> 8][i & 0xFF] = prgRom[i >> 10][i & 0x3FF];
+      }
+
+      assertSameAsInterpreter(
+            new TestMemory(rom, rom, new int[0x800]),
+            new TestMemory(rom, rom, new int[0x800]),
+            0xC000,
+            30000,
+            -1);
+   }
+
+   /**
+    * Runs the same code on an interpreting and a recompiling Cpu, with budgets of random
+    * lengths and nmis in between, and checks they agree after every executeOps(int). Unless
+    * irqHandler is -1 the irq is raised every IRQ_INTERVAL cycles too and, like the apu's frame
+    * irq, raised again after every op or compiled block until the cpu got to irqHandler.
+    */
+   private static void assertSameAsInterpreter(TestMemory interpreterMemory,
+         TestMemory dynarecMemory, int pc, int cycles, int irqHandler) {
+
+      Cpu interpreter = new Cpu(interpreterMemory);
+      Cpu dynarec = new Cpu(dynarecMemory);
+      dynarec.setDynarecEnabled(true);
+      interpreter.init(0, 0, 0, 0xFD, Cpu.R_FLAG | Cpu.I_FLAG, pc);
+      dynarec.init(0, 0, 0, 0xFD, Cpu.R_FLAG | Cpu.I_FLAG, pc);
+
+      Random random = new Random(pc);
+      long interpreterCycles = 0;
+      long dynarecCycles = 0;
+      long nextNmi = NMI_INTERVAL;
+      long nextIrq = irqHandler == -1 ? Long.MAX_VALUE : IRQ_INTERVAL;
+      boolean isInterpreterIrqRaised = false;
+      boolean isDynarecIrqRaised = false;
+
+      while (dynarecCycles < cycles) {
+         // Only raising the irq ends the budget, as with the scheduler's APU event
+         long nextEvent = isDynarecIrqRaised ? nextNmi : Math.min(nextNmi, nextIrq);
+         int cycleBudget = (int) Math.min(1 + random.nextInt(200), nextEvent - dynarecCycles);
+         int dynarecOpCycles = dynarec.executeOps(cycleBudget);
+         dynarecCycles += dynarecOpCycles;
+         if (isDynarecIrqRaised && dynarecOpCycles > 0) {
+            isDynarecIrqRaised = raiseIrqUntil(dynarec, irqHandler);
+         }
+         while (interpreterCycles < dynarecCycles) {
+            int opCycles = interpreter.executeOp();
+            interpreterCycles += opCycles;
+            if (isInterpreterIrqRaised && opCycles > 0) {
+               isInterpreterIrqRaised = raiseIrqUntil(interpreter, irqHandler);
+            }
+         }
+
+         String at = "After " + dynarecCycles + " cycles from " + Integer.toHexString(pc);
+         Assert.assertEquals(at, interpreterCycles, dynarecCycles);
+         Assert.assertEquals(at, interpreter.getPC(), dynarec.getPC());
+         Assert.assertEquals(at, interpreter.getA(), dynarec.getA());
+         Assert.assertEquals(at, interpreter.getX(), dynarec.getX());
+         Assert.assertEquals(at, interpreter.getY(), dynarec.getY());
+         Assert.assertEquals(at, interpreter.getS(), dynarec.getS());
+         Assert.assertEquals(at, interpreter.getP(), dynarec.getP());
+         interpreterMemory.assertSame(at, dynarecMemory);
+
+         if (dynarecCycles >= nextNmi) {
+            interpreter.nmi();
+            dynarec.nmi();
+            nextNmi += NMI_INTERVAL;
+         }
+         if (dynarecCycles >= nextIrq) {
+            isInterpreterIrqRaised = raiseIrqUntil(interpreter, irqHandler);
+            isDynarecIrqRaised = raiseIrqUntil(dynarec, irqHandler);
+            nextIrq += IRQ_INTERVAL;
+         }
+      }
+   }
+
+   // Raises the irq again unless the cpu got to the handler, returns whether it's still raised
+   private static boolean raiseIrqUntil(Cpu cpu, int irqHandler) {
+      if (cpu.getPC() == irqHandler) {
+         return false;
+      }
+      cpu.irq();
+      return true;
+   }
+
+   private static void fill(Random random, int[][] pages) {
+      for (int[] page : pages) {
+         for (int i = 0; i < page.length; i++) {
+            page[i] = random.nextInt(0x100);
+         }
+      }
+   }
+
+   private static int[][] createRom(int[] program) {
+      int[][] rom = new int[8][0x100];
+      for (int i = 0; i < program.length; i++) {
+         rom[i >> 8][i & 0xFF] = program[i];
+      }
+      return rom;
+   }
+
+   /**
+    * RAM up to $2000, registers with side effects up to $8000 and ROM above, made of the ROM
+    * pages repeated. Writes to ROM switch the pages at $8000-$8FFF between the ROM and the
+    * switched ROM.
+    */
+   private static class TestMemory implements CpuMemory {
+      private final int[] _ram;
+      private final int[][] _rom;
+      private final int[][] _switchedRom;
+      private final int[][] _pages = new int[0x100][];
+
+      private boolean _switched;
+      private int _registerReads;
+      private int _registerWrites;
+      private PageMapListener _pageMapListener;
+
+      private TestMemory(int[][] rom) {
+         this(rom, rom, new int[0x800]);
+      }
+
+      private TestMemory(int[][] rom, int[][] switchedRom, int[] ram) {
+         _ram = ram.clone();
+         _rom = rom;
+         _switchedRom = switchedRom;
+         updatePages();
+      }
+
+      private void updatePages() {
+         for (int page = 0x80; page <= 0xFF; page++) {
+            int[][] rom = _switched && page <= 0x8F ? _switchedRom : _rom;
+            _pages[page] = rom[page % rom.length];
+         }
+
+         if (_pageMapListener != null) {
+            _pageMapListener.handlePageMapChange();
+         }
+      }
+
+      @Override
+      public int read(int address) {
+         address &= 0xFFFF;
+         if (address < 0x2000) {
+            return _ram[address & 0x7FF];
+         } else if (address < 0x8000) {
+            return _registerReads++ & 0xFF;
+         }
+         return _pages[address >> 8][address & 0xFF];
+      }
+
+      @Override
+      public int write(int address, int value) {
+         address &= 0xFFFF;
+         if (address < 0x2000) {
+            _ram[address & 0x7FF] = value;
+         } else if (address < 0x8000) {
+            _registerWrites = _registerWrites * 31 + value;
+         } else {
+            _switched = (value & 0x01) != 0;
+            updatePages();
+         }
+         return 0;
+      }
+
+      @Override
+      public int[] getPageMemory(int page) {
+         if (page < 0x20) {
+            return _ram;
+         }
+         return _pages[page];
+      }
+
+      @Override
+      public int getPageOffset(int page) {
+         return page < 0x20 ? (page & 0x07) << 8 : 0;
+      }
+
+      @Override
+      public boolean isPageReadOnly(int page) {
+         return page >= 0x80;
+      }
+
+      @Override
+      public void setPageMapListener(PageMapListener pageMapListener) {
+         _pageMapListener = pageMapListener;
+      }
+
+      private void assertSame(String message, TestMemory memory) {
+         Assert.assertTrue(message, Arrays.equals(_ram, memory._ram));
+         Assert.assertEquals(message, _switched, memory._switched);
+         Assert.assertEquals(message, _registerReads, memory._registerReads);
+         Assert.assertEquals(message, _registerWrites, memory._registerWrites);
+      }
+   }
+}
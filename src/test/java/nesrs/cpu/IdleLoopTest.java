@@ -0,0 +1,178 @@
+package nesrs.cpu;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IdleLoopTest {
+
+   @Test
+   public void testJumpToItself() {
+      Cpu cpu = createCpu(new TestMemory(
+            0x4C, 0x00, 0x80  // $8000 JMP $8000
+      ));
+
+      // The first pass has nothing to compare with
+      cpu.executeOp();
+      Assert.assertEquals(0, cpu.getIdleLoopCycles());
+      cpu.executeOp();
+      Assert.assertEquals(3, cpu.getIdleLoopCycles());
+      Assert.assertTrue(cpu.getIdleLoopStableCycles() > 1000000);
+
+      cpu.skipIdleLoop(300);
+      Assert.assertEquals(0, cpu.getIdleLoopCycles());
+      Assert.assertEquals(0x8000, cpu.getPC());
+      cpu.executeOp();
+      Assert.assertEquals(3, cpu.getIdleLoopCycles());
+   }
+
+   @Test
+   public void testPollingRam() {
+      Cpu cpu = createCpu(new TestMemory(
+            0xA5, 0x10,       // $8000 LDA $10
+            0xF0, 0xFC        // $8002 BEQ $8000
+      ));
+
+      runPasses(cpu, 2);
+      Assert.assertEquals(3 + 3, cpu.getIdleLoopCycles());
+   }
+
+   @Test
+   public void testPollingRegister() {
+      TestMemory memory = new TestMemory(
+            0xAD, 0x02, 0x20, // $8000 LDA $2002
+            0x10, 0xFB        // $8003 BPL $8000
+      );
+      Cpu cpu = createCpu(memory);
+
+      memory._cyclesToRegisterChange = 1000;
+      runPasses(cpu, 2);
+      Assert.assertEquals(4 + 3, cpu.getIdleLoopCycles());
+      // Counted from the start of the branch, which took 3 cycles
+      Assert.assertEquals(1000 - 3, cpu.getIdleLoopStableCycles());
+
+      // The pass before still vouches for this one, but not for the next
+      memory._cyclesToRegisterChange = 0;
+      runPasses(cpu, 1);
+      Assert.assertEquals(4 + 3, cpu.getIdleLoopCycles());
+      Assert.assertEquals(0, cpu.getIdleLoopStableCycles());
+      runPasses(cpu, 1);
+      Assert.assertEquals(0, cpu.getIdleLoopCycles());
+   }
+
+   @Test
+   public void testCountingLoopIsNotIdle() {
+      Cpu cpu = createCpu(new TestMemory(
+            0xE8,             // $8000 INX
+            0xD0, 0xFD        // $8001 BNE $8000
+      ));
+
+      for (int i = 0; i < 100; i++) {
+         cpu.executeOp();
+         Assert.assertEquals(0, cpu.getIdleLoopCycles());
+      }
+   }
+
+   @Test
+   public void testWritingLoopIsNotIdle() {
+      Cpu cpu = createCpu(new TestMemory(
+            0xA5, 0x10,       // $8000 LDA $10
+            0x85, 0x11,       // $8002 STA $11
+            0xF0, 0xFA        // $8004 BEQ $8000
+      ));
+
+      for (int i = 0; i < 100; i++) {
+         cpu.executeOp();
+         Assert.assertEquals(0, cpu.getIdleLoopCycles());
+      }
+   }
+
+   @Test
+   public void testPendingInterrupt() {
+      Cpu cpu = createCpu(new TestMemory(
+            0x4C, 0x00, 0x80  // $8000 JMP $8000
+      ));
+
+      runPasses(cpu, 2);
+      Assert.assertEquals(3, cpu.getIdleLoopCycles());
+      cpu.nmi();
+      Assert.assertEquals(0, cpu.getIdleLoopCycles());
+   }
+
+   private static Cpu createCpu(TestMemory memory) {
+      Cpu cpu = new Cpu(memory);
+      cpu.init(0, 0, 0, 0xFD, Cpu.R_FLAG | Cpu.I_FLAG, 0x8000);
+      return cpu;
+   }
+
+   // Runs ops until the cpu jumped back to $8000 as many times
+   private static void runPasses(Cpu cpu, int passes) {
+      for (int i = 0; i < passes; i++) {
+         do {
+            cpu.executeOp();
+         } while (cpu.getPC() != 0x8000);
+      }
+   }
+
+   /**
+    * RAM up to $2000, a register at $2002 which stays the same for _cyclesToRegisterChange and
+    * the program in ROM at $8000.
+    */
+   private static class TestMemory implements CpuMemory {
+      private final int[] _ram = new int[0x800];
+      private final int[] _rom = new int[0x8000];
+
+      private int _cyclesToRegisterChange;
+
+      private TestMemory(int... program) {
+         for (int i = 0; i < program.length; i++) {
+            _rom[i] = program[i];
+         }
+      }
+
+      @Override
+      public int read(int address) {
+         if (address < 0x2000) {
+            return _ram[address & 0x7FF];
+         } else if (address < 0x8000) {
+            return 0x00;
+         }
+         return _rom[address & 0x7FFF];
+      }
+
+      @Override
+      public int write(int address, int value) {
+         if (address < 0x2000) {
+            _ram[address & 0x7FF] = value;
+         }
+         return 0;
+      }
+
+      @Override
+      public int[] getPageMemory(int page) {
+         if (page < 0x20) {
+            return _ram;
+         } else if (page < 0x80) {
+            return null;
+         }
+         return _rom;
+      }
+
+      @Override
+      public int getPageOffset(int page) {
+         return page < 0x20 ? (page & 0x07) << 8 : (page & 0x7F) << 8;
+      }
+
+      @Override
+      public boolean isPageReadOnly(int page) {
+         return page >= 0x80;
+      }
+
+      @Override
+      public int getCyclesToReadChange(int address) {
+         if (address == 0x2002) {
+            return _cyclesToRegisterChange;
+         }
+         return CpuMemory.super.getCyclesToReadChange(address);
+      }
+   }
+}
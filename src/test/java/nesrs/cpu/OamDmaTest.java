@@ -0,0 +1,77 @@
+package nesrs.cpu;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import nesrs.cartridge.Cartridge;
+import nesrs.ppu.Ppu;
+
+public class OamDmaTest {
+
+   private NesCpuMemory _memory;
+   private Ppu _ppu;
+
+   @Before
+   public void setUp() {
+      _ppu = new Ppu((Cartridge) null);
+      _ppu.init();
+      _memory = new NesCpuMemory();
+      _memory.setPpu(_ppu);
+   }
+
+   @Test
+   public void testCopiesPageFromSpriteRamAddress() {
+      for (int i = 0; i <= 0xFF; i++) {
+         _memory.write(0x0300 | i, i ^ 0x5A);
+      }
+
+      _memory.write(0x2003, 0x10);
+      Assert.assertEquals(513, _memory.write(0x4014, 0x03));
+
+      // Starts at $10, wraps around and leaves the address at $10
+      for (int i = 0; i <= 0xFF; i++) {
+         _memory.write(0x2003, (0x10 + i) & 0xFF);
+         Assert.assertEquals(i ^ 0x5A, _memory.read(0x2004));
+      }
+   }
+
+   @Test
+   public void testCopiesMirroredRam() {
+      _memory.write(0x0100, 0x42);
+      _memory.write(0x01FF, 0x24);
+
+      _memory.write(0x2003, 0x00);
+      _memory.write(0x4014, 0x09);
+
+      Assert.assertEquals(0x42, _memory.read(0x2004));
+      _memory.write(0x2003, 0xFF);
+      Assert.assertEquals(0x24, _memory.read(0x2004));
+   }
+
+   @Test
+   public void testCpuAlignsToEvenCycle() {
+      int[] program = {
+            0x8D, 0x14, 0x40, // $0000 STA $4014
+            0xEA,             // $0003 NOP
+            0xEA,             // $0004 NOP
+            0x8D, 0x14, 0x40, // $0005 STA $4014
+            0x8D, 0x14, 0x40, // $0008 STA $4014
+      };
+      for (int i = 0; i < program.length; i++) {
+         _memory.write(i, program[i]);
+      }
+
+      Cpu cpu = new Cpu(_memory);
+      cpu.init(0x02, 0, 0, 0xFD, Cpu.R_FLAG | Cpu.I_FLAG, 0x0000);
+
+      // Ends on cycle 4
+      Assert.assertEquals(4 + 513, cpu.executeOp());
+      Assert.assertEquals(2, cpu.executeOp());
+      Assert.assertEquals(2, cpu.executeOp());
+      // Ends on cycle 4 + 513 + 2 + 2 + 4, which is odd
+      Assert.assertEquals(4 + 514, cpu.executeOp());
+      // Odd again, 514 cycles keep it so
+      Assert.assertEquals(4 + 514, cpu.executeOp());
+   }
+}
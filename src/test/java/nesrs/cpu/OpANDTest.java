@@ -35,8 +35,8 @@ public class OpANDTest extends TestCase {
 
       assertEquals(2, cpu.getOpCycles());
       assertEquals(0x80, cpu._A);
-      assertTrue((cpu._P & Cpu.N_FLAG) != 0);
-      assertTrue((cpu._P & Cpu.Z_FLAG) == 0);
+      assertTrue((cpu.getP() & Cpu.N_FLAG) != 0);
+      assertTrue((cpu.getP() & Cpu.Z_FLAG) == 0);
    }
 
    @Test
@@ -34,9 +34,9 @@ public class OpBITTest extends TestCase {
       cpu.executeOp();
       
       assertEquals(3, cpu.getOpCycles());
-      assertTrue((cpu._P & Cpu.N_FLAG) != 0);
-      assertTrue((cpu._P & Cpu.V_FLAG) == 0);
-      assertTrue((cpu._P & Cpu.Z_FLAG) == 0);
+      assertTrue((cpu.getP() & Cpu.N_FLAG) != 0);
+      assertTrue((cpu.getP() & Cpu.V_FLAG) == 0);
+      assertTrue((cpu.getP() & Cpu.Z_FLAG) == 0);
    }
 
    @Test
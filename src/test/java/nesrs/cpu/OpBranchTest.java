@@ -29,7 +29,7 @@ public class OpBranchTest extends TestCase {
       memory.write(0x2001, 0x90); // Op
       memory.write(0x2002, 0x0F);
 
-      cpu._P = cpu._P & ~Cpu.C_FLAG;
+      cpu.setP(cpu.getP() & ~Cpu.C_FLAG);
       cpu._PC = 0x2001;
       cpu.executeOp();
 
@@ -42,7 +42,7 @@ public class OpBranchTest extends TestCase {
       memory.write(0x2001, 0x90); // Op
       memory.write(0x2002, 0x0F);
 
-      cpu._P = cpu._P | Cpu.C_FLAG;
+      cpu.setP(cpu.getP() | Cpu.C_FLAG);
       cpu._PC = 0x2001;
       cpu.executeOp();
 
@@ -55,7 +55,7 @@ public class OpBranchTest extends TestCase {
       memory.write(0x2001, 0xB0); // Op
       memory.write(0x2002, 0x0F);
 
-      cpu._P = cpu._P | Cpu.C_FLAG;
+      cpu.setP(cpu.getP() | Cpu.C_FLAG);
       cpu._PC = 0x2001;
       cpu.executeOp();
 
@@ -68,7 +68,7 @@ public class OpBranchTest extends TestCase {
       memory.write(0x2001, 0xB0); // Op
       memory.write(0x2002, 0x0F);
 
-      cpu._P = cpu._P & ~Cpu.C_FLAG;
+      cpu.setP(cpu.getP() & ~Cpu.C_FLAG);
       cpu._PC = 0x2001;
       cpu.executeOp();
 
@@ -81,7 +81,7 @@ public class OpBranchTest extends TestCase {
       memory.write(0x2001, 0xF0); // Op
       memory.write(0x2002, 0x0F);
 
-      cpu._P = cpu._P | Cpu.Z_FLAG;
+      cpu.setP(cpu.getP() | Cpu.Z_FLAG);
       cpu._PC = 0x2001;
       cpu.executeOp();
 
@@ -94,7 +94,7 @@ public class OpBranchTest extends TestCase {
       memory.write(0x2001, 0xF0); // Op
       memory.write(0x2002, 0x0F);
 
-      cpu._P = cpu._P & ~Cpu.Z_FLAG;
+      cpu.setP(cpu.getP() & ~Cpu.Z_FLAG);
       cpu._PC = 0x2001;
       cpu.executeOp();
 
@@ -107,7 +107,7 @@ public class OpBranchTest extends TestCase {
       memory.write(0x2001, 0x30); // Op
       memory.write(0x2002, 0x0F);
 
-      cpu._P = cpu._P | Cpu.N_FLAG;
+      cpu.setP(cpu.getP() | Cpu.N_FLAG);
       cpu._PC = 0x2001;
       cpu.executeOp();
 
@@ -120,7 +120,7 @@ public class OpBranchTest extends TestCase {
       memory.write(0x2001, 0x30); // Op
       memory.write(0x2002, 0x0F);
 
-      cpu._P = cpu._P & ~Cpu.N_FLAG;
+      cpu.setP(cpu.getP() & ~Cpu.N_FLAG);
       cpu._PC = 0x2001;
       cpu.executeOp();
 
@@ -133,7 +133,7 @@ public class OpBranchTest extends TestCase {
       memory.write(0x2001, 0xD0); // Op
       memory.write(0x2002, 0x0F);
 
-      cpu._P = cpu._P & ~Cpu.Z_FLAG;
+      cpu.setP(cpu.getP() & ~Cpu.Z_FLAG);
       cpu._PC = 0x2001;
       cpu.executeOp();
 
@@ -146,7 +146,7 @@ public class OpBranchTest extends TestCase {
       memory.write(0x2001, 0xD0); // Op
       memory.write(0x2002, 0x0F);
 
-      cpu._P = cpu._P | Cpu.Z_FLAG;
+      cpu.setP(cpu.getP() | Cpu.Z_FLAG);
       cpu._PC = 0x2001;
       cpu.executeOp();
 
@@ -159,7 +159,7 @@ public class OpBranchTest extends TestCase {
       memory.write(0x2001, 0x10); // Op
       memory.write(0x2002, 0x0F);
 
-      cpu._P = cpu._P & ~Cpu.N_FLAG;
+      cpu.setP(cpu.getP() & ~Cpu.N_FLAG);
       cpu._PC = 0x2001;
       cpu.executeOp();
 
@@ -172,7 +172,7 @@ public class OpBranchTest extends TestCase {
       memory.write(0x2001, 0x10); // Op
       memory.write(0x2002, 0x0F);
 
-      cpu._P = cpu._P | Cpu.N_FLAG;
+      cpu.setP(cpu.getP() | Cpu.N_FLAG);
       cpu._PC = 0x2001;
       cpu.executeOp();
 
@@ -185,7 +185,7 @@ public class OpBranchTest extends TestCase {
       memory.write(0x2001, 0x50); // Op
       memory.write(0x2002, 0x0F);
 
-      cpu._P = cpu._P & ~Cpu.V_FLAG;
+      cpu.setP(cpu.getP() & ~Cpu.V_FLAG);
       cpu._PC = 0x2001;
       cpu.executeOp();
 
@@ -198,7 +198,7 @@ public class OpBranchTest extends TestCase {
       memory.write(0x2001, 0x50); // Op
       memory.write(0x2002, 0x0F);
 
-      cpu._P = cpu._P | Cpu.V_FLAG;
+      cpu.setP(cpu.getP() | Cpu.V_FLAG);
       cpu._PC = 0x2001;
       cpu.executeOp();
 
@@ -211,7 +211,7 @@ public class OpBranchTest extends TestCase {
       memory.write(0x2001, 0x70); // Op
       memory.write(0x2002, 0x0F);
 
-      cpu._P = cpu._P | Cpu.V_FLAG;
+      cpu.setP(cpu.getP() | Cpu.V_FLAG);
       cpu._PC = 0x2001;
       cpu.executeOp();
 
@@ -224,7 +224,7 @@ public class OpBranchTest extends TestCase {
       memory.write(0x2001, 0x70); // Op
       memory.write(0x2002, 0x0F);
 
-      cpu._P = cpu._P & ~Cpu.V_FLAG;
+      cpu.setP(cpu.getP() & ~Cpu.V_FLAG);
       cpu._PC = 0x2001;
       cpu.executeOp();
 
@@ -33,9 +33,9 @@ public class OpCompareTest extends TestCase {
       cpu.executeOp();
 
       assertEquals(2, cpu.getOpCycles());
-      assertTrue((cpu._P & Cpu.N_FLAG) != 0);
-      assertTrue((cpu._P & Cpu.Z_FLAG) == 0);
-      assertTrue((cpu._P & Cpu.C_FLAG) == 0);
+      assertTrue((cpu.getP() & Cpu.N_FLAG) != 0);
+      assertTrue((cpu.getP() & Cpu.Z_FLAG) == 0);
+      assertTrue((cpu.getP() & Cpu.C_FLAG) == 0);
    }
 
    @Test
@@ -48,9 +48,9 @@ public class OpCompareTest extends TestCase {
       cpu.executeOp();
 
       assertEquals(2, cpu.getOpCycles());
-      assertTrue((cpu._P & Cpu.N_FLAG) != 0);
-      assertTrue((cpu._P & Cpu.Z_FLAG) == 0);
-      assertTrue((cpu._P & Cpu.C_FLAG) != 0);
+      assertTrue((cpu.getP() & Cpu.N_FLAG) != 0);
+      assertTrue((cpu.getP() & Cpu.Z_FLAG) == 0);
+      assertTrue((cpu.getP() & Cpu.C_FLAG) != 0);
    }
 
    @Test
@@ -63,9 +63,9 @@ public class OpCompareTest extends TestCase {
       cpu.executeOp();
 
       assertEquals(2, cpu.getOpCycles());
-      assertTrue((cpu._P & Cpu.N_FLAG) != 0);
-      assertTrue((cpu._P & Cpu.Z_FLAG) == 0);
-      assertTrue((cpu._P & Cpu.C_FLAG) == 0);
+      assertTrue((cpu.getP() & Cpu.N_FLAG) != 0);
+      assertTrue((cpu.getP() & Cpu.Z_FLAG) == 0);
+      assertTrue((cpu.getP() & Cpu.C_FLAG) == 0);
    }
 
    @Test
@@ -78,9 +78,9 @@ public class OpCompareTest extends TestCase {
       cpu.executeOp();
 
       assertEquals(2, cpu.getOpCycles());
-      assertTrue((cpu._P & Cpu.N_FLAG) != 0);
-      assertTrue((cpu._P & Cpu.Z_FLAG) == 0);
-      assertTrue((cpu._P & Cpu.C_FLAG) != 0);
+      assertTrue((cpu.getP() & Cpu.N_FLAG) != 0);
+      assertTrue((cpu.getP() & Cpu.Z_FLAG) == 0);
+      assertTrue((cpu.getP() & Cpu.C_FLAG) != 0);
    }
 
    @Test
@@ -93,9 +93,9 @@ public class OpCompareTest extends TestCase {
       cpu.executeOp();
 
       assertEquals(2, cpu.getOpCycles());
-      assertTrue((cpu._P & Cpu.N_FLAG) != 0);
-      assertTrue((cpu._P & Cpu.Z_FLAG) == 0);
-      assertTrue((cpu._P & Cpu.C_FLAG) == 0);
+      assertTrue((cpu.getP() & Cpu.N_FLAG) != 0);
+      assertTrue((cpu.getP() & Cpu.Z_FLAG) == 0);
+      assertTrue((cpu.getP() & Cpu.C_FLAG) == 0);
    }
 
    @Test
@@ -108,8 +108,8 @@ public class OpCompareTest extends TestCase {
       cpu.executeOp();
 
       assertEquals(2, cpu.getOpCycles());
-      assertTrue((cpu._P & Cpu.N_FLAG) != 0);
-      assertTrue((cpu._P & Cpu.Z_FLAG) == 0);
-      assertTrue((cpu._P & Cpu.C_FLAG) != 0);
+      assertTrue((cpu.getP() & Cpu.N_FLAG) != 0);
+      assertTrue((cpu.getP() & Cpu.Z_FLAG) == 0);
+      assertTrue((cpu.getP() & Cpu.C_FLAG) != 0);
    }
 }
\ No newline at end of file
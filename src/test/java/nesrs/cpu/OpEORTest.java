@@ -34,7 +34,7 @@ public class OpEORTest extends TestCase {
 
       assertEquals(2, cpu.getOpCycles());
       assertEquals(0x8A, cpu._A);
-      assertTrue((cpu._P & Cpu.N_FLAG) != 0);
-      assertTrue((cpu._P & Cpu.Z_FLAG) == 0);
+      assertTrue((cpu.getP() & Cpu.N_FLAG) != 0);
+      assertTrue((cpu.getP() & Cpu.Z_FLAG) == 0);
    }
 }
@@ -33,8 +33,8 @@ public class OpIncreaseTest extends TestCase {
 
       assertEquals(5, cpu.getOpCycles());
       assertEquals(0x8F, memory.read(0x0011));
-      assertTrue((cpu._P & Cpu.N_FLAG) != 0);
-      assertTrue((cpu._P & Cpu.Z_FLAG) == 0);
+      assertTrue((cpu.getP() & Cpu.N_FLAG) != 0);
+      assertTrue((cpu.getP() & Cpu.Z_FLAG) == 0);
    }
 
    @Test
@@ -47,8 +47,8 @@ public class OpIncreaseTest extends TestCase {
 
       assertEquals(2, cpu.getOpCycles());
       assertEquals(0x8F, cpu._X);
-      assertTrue((cpu._P & Cpu.N_FLAG) != 0);
-      assertTrue((cpu._P & Cpu.Z_FLAG) == 0);
+      assertTrue((cpu.getP() & Cpu.N_FLAG) != 0);
+      assertTrue((cpu.getP() & Cpu.Z_FLAG) == 0);
    }
 
    @Test
@@ -61,8 +61,8 @@ public class OpIncreaseTest extends TestCase {
 
       assertEquals(2, cpu.getOpCycles());
       assertEquals(0x8F, cpu._Y);
-      assertTrue((cpu._P & Cpu.N_FLAG) != 0);
-      assertTrue((cpu._P & Cpu.Z_FLAG) == 0);
+      assertTrue((cpu.getP() & Cpu.N_FLAG) != 0);
+      assertTrue((cpu.getP() & Cpu.Z_FLAG) == 0);
    }
 }
 
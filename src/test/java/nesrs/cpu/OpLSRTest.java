@@ -33,8 +33,8 @@ public class OpLSRTest extends TestCase {
 
       assertEquals(2, cpu.getOpCycles());
       assertEquals(0x40, cpu._A);
-      assertTrue((cpu._P & Cpu.N_FLAG) == 0);
-      assertTrue((cpu._P & Cpu.Z_FLAG) == 0);
-      assertTrue((cpu._P & Cpu.C_FLAG) != 0);
+      assertTrue((cpu.getP() & Cpu.N_FLAG) == 0);
+      assertTrue((cpu.getP() & Cpu.Z_FLAG) == 0);
+      assertTrue((cpu.getP() & Cpu.C_FLAG) != 0);
    }
 }
@@ -33,8 +33,8 @@ public class OpLoadTest extends TestCase {
 
       assertEquals(2, cpu.getOpCycles());
       assertEquals(0x81, cpu._A);
-      assertTrue((cpu._P & Cpu.N_FLAG) != 0);
-      assertTrue((cpu._P & Cpu.Z_FLAG) == 0);
+      assertTrue((cpu.getP() & Cpu.N_FLAG) != 0);
+      assertTrue((cpu.getP() & Cpu.Z_FLAG) == 0);
    }
 
    @Test
@@ -47,8 +47,8 @@ public class OpLoadTest extends TestCase {
 
       assertEquals(2, cpu.getOpCycles());
       assertEquals(0x81, cpu._X);
-      assertTrue((cpu._P & Cpu.N_FLAG) != 0);
-      assertTrue((cpu._P & Cpu.Z_FLAG) == 0);
+      assertTrue((cpu.getP() & Cpu.N_FLAG) != 0);
+      assertTrue((cpu.getP() & Cpu.Z_FLAG) == 0);
    }
 
    @Test
@@ -61,7 +61,7 @@ public class OpLoadTest extends TestCase {
 
       assertEquals(2, cpu.getOpCycles());
       assertEquals(0x81, cpu._Y);
-      assertTrue((cpu._P & Cpu.N_FLAG) != 0);
-      assertTrue((cpu._P & Cpu.Z_FLAG) == 0);
+      assertTrue((cpu.getP() & Cpu.N_FLAG) != 0);
+      assertTrue((cpu.getP() & Cpu.Z_FLAG) == 0);
    }
 }
@@ -34,8 +34,8 @@ public class OpORATest extends TestCase {
 
       assertEquals(2, cpu.getOpCycles());
       assertEquals(0xC1, cpu._A);
-      assertTrue((cpu._P & Cpu.N_FLAG) != 0);
-      assertTrue((cpu._P & Cpu.Z_FLAG) == 0);
+      assertTrue((cpu.getP() & Cpu.N_FLAG) != 0);
+      assertTrue((cpu.getP() & Cpu.Z_FLAG) == 0);
    }
 }
 
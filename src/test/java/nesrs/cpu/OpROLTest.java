@@ -28,14 +28,14 @@ public class OpROLTest  extends TestCase {
       memory.write(0x2001, 0x2A); // Op
 
       cpu._A = 0x81;
-      cpu._P = cpu._P | Cpu.C_FLAG;
+      cpu.setP(cpu.getP() | Cpu.C_FLAG);
       cpu._PC = 0x2001;
       cpu.executeOp();
 
       assertEquals(2, cpu.getOpCycles());
       assertEquals(0x03, cpu._A);
-      assertTrue((cpu._P & Cpu.N_FLAG) == 0);
-      assertTrue((cpu._P & Cpu.Z_FLAG) == 0);
-      assertTrue((cpu._P & Cpu.C_FLAG) != 0);
+      assertTrue((cpu.getP() & Cpu.N_FLAG) == 0);
+      assertTrue((cpu.getP() & Cpu.Z_FLAG) == 0);
+      assertTrue((cpu.getP() & Cpu.C_FLAG) != 0);
    }
 }
@@ -0,0 +1,64 @@
+package nesrs.ppu;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import nesrs.cartridge.Cartridge;
+
+public class PpuFrameBufferTest {
+
+   private static final int CYCLES_IN_FRAME = 262 * 341;
+
+   @Test
+   public void testDrawsIntoVideoOutBuffers() {
+      int[][] buffers = { new int[256 * 240], new int[256 * 240] };
+      for (int[] buffer : buffers) {
+         Arrays.fill(buffer, -1);
+      }
+      List<int[]> frames = new ArrayList<int[]>();
+
+      Ppu ppu = new Ppu((Cartridge) null);
+      ppu.setVideoOutListener(new VideoOutListener() {
+         @Override
+         public void handleFrame(int[] framePixels) {
+            frames.add(framePixels);
+         }
+
+         @Override
+         public int[] getFrameBuffer() {
+            return buffers[frames.size() % 2];
+         }
+      });
+      ppu.init();
+      ppu.executeCycles(3 * CYCLES_IN_FRAME);
+
+      Assert.assertEquals(3, frames.size());
+      Assert.assertSame(buffers[0], frames.get(0));
+      Assert.assertSame(buffers[1], frames.get(1));
+      Assert.assertSame(buffers[0], frames.get(2));
+
+      // Each frame covers all pixels
+      for (int[] buffer : buffers) {
+         for (int pixel : buffer) {
+            Assert.assertNotEquals(-1, pixel);
+         }
+      }
+   }
+
+   @Test
+   public void testDrawsIntoOwnBufferWithoutOne() {
+      List<int[]> frames = new ArrayList<int[]>();
+
+      Ppu ppu = new Ppu((Cartridge) null);
+      ppu.setVideoOutListener(frames::add);
+      ppu.init();
+      ppu.executeCycles(2 * CYCLES_IN_FRAME);
+
+      Assert.assertEquals(2, frames.size());
+      Assert.assertSame(frames.get(0), frames.get(1));
+   }
+}
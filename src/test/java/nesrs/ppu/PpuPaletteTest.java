@@ -0,0 +1,83 @@
+package nesrs.ppu;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import nesrs.cartridge.Cartridge;
+import nesrs.ppu.renderers.Palette;
+
+public class PpuPaletteTest {
+
+   private static final int CYCLES_IN_FRAME = 262 * 341;
+
+   private Ppu _ppu;
+   private int[] _frame;
+
+   @Before
+   public void setUp() {
+      _ppu = new Ppu((Cartridge) null);
+      _ppu.setVideoOutListener(framePixels -> _frame = framePixels.clone());
+      _ppu.init();
+   }
+
+   @Test
+   public void testBackdropColor() {
+      writePalette(0x00, 0x21);
+      Assert.assertEquals(Palette.RGB[0x21], renderFrame());
+
+      writePalette(0x00, 0x16);
+      Assert.assertEquals(Palette.RGB[0x16], renderFrame());
+   }
+
+   @Test
+   public void testGrayscale() {
+      writePalette(0x00, 0x27);
+      _ppu.writeRegister(PpuPin.REG_MASK, 0x01);
+      Assert.assertEquals(Palette.RGB[0x20], renderFrame());
+
+      _ppu.writeRegister(PpuPin.REG_MASK, 0x00);
+      Assert.assertEquals(Palette.RGB[0x27], renderFrame());
+   }
+
+   @Test
+   public void testEmphasis() {
+      writePalette(0x00, 0x30);
+
+      // Red emphasis dims green and blue
+      _ppu.writeRegister(PpuPin.REG_MASK, 0x20);
+      int rgb = renderFrame();
+      Assert.assertEquals(Palette.RGB_EMPHASIS[(1 << 6) | 0x30], rgb);
+      Assert.assertEquals(0xEC, (rgb >> 16) & 0xFF);
+      Assert.assertTrue((rgb & 0xFF) < 0xEC);
+
+      // All three dim everything
+      _ppu.writeRegister(PpuPin.REG_MASK, 0xE0);
+      rgb = renderFrame();
+      Assert.assertTrue(((rgb >> 16) & 0xFF) < 0xEC);
+      Assert.assertTrue(((rgb >> 8) & 0xFF) < 0xEE);
+      Assert.assertTrue((rgb & 0xFF) < 0xEC);
+
+      _ppu.writeRegister(PpuPin.REG_MASK, 0x00);
+      Assert.assertEquals(Palette.RGB[0x30], renderFrame());
+   }
+
+   @Test
+   public void testEmphasisTableWithoutEmphasis() {
+      for (int color = 0; color < 64; color++) {
+         Assert.assertEquals(Palette.RGB[color], Palette.RGB_EMPHASIS[color]);
+      }
+   }
+
+   private void writePalette(int offset, int color) {
+      _ppu.writeRegister(PpuPin.REG_VRAM_ADDR, 0x3F);
+      _ppu.writeRegister(PpuPin.REG_VRAM_ADDR, offset);
+      _ppu.writeRegister(PpuPin.REG_VRAM_IO, color);
+   }
+
+   // Color of the top left pixel, which shows the backdrop with rendering off
+   private int renderFrame() {
+      _ppu.executeCycles(CYCLES_IN_FRAME);
+      return _frame[0];
+   }
+}
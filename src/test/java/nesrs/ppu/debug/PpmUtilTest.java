@@ -0,0 +1,29 @@
+package nesrs.ppu.debug;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PpmUtilTest {
+
+   @Test
+   public void testWriteAndRead() throws IOException {
+      int[] pixels = new int[] {
+            0x000000, 0xFFFFFF, 0x123456,
+            0xFF0000, 0x00FF00, 0x0000FF };
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      PpmUtil.write(out, 3, 2, pixels);
+
+      int[] readPixels = PpmUtil.read(new ByteArrayInputStream(out.toByteArray()));
+      Assert.assertArrayEquals(pixels, readPixels);
+   }
+
+   @Test(expected = IOException.class)
+   public void testReadTruncated() throws IOException {
+      PpmUtil.read(new ByteArrayInputStream("P6 2 2 255\n\u0001\u0002".getBytes()));
+   }
+}
@@ -0,0 +1,73 @@
+package nesrs.ui;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FrameTripleBufferTest {
+
+   @Test
+   public void testConsumerGetsNewestFrame() {
+      FrameTripleBuffer frames = new FrameTripleBuffer(1);
+      Assert.assertFalse(frames.update());
+
+      frames.getBackBuffer()[0] = 1;
+      frames.publish();
+      frames.getBackBuffer()[0] = 2;
+      frames.publish();
+
+      // Frame 1 got overwritten
+      Assert.assertTrue(frames.update());
+      Assert.assertEquals(2, frames.getFrontBuffer()[0]);
+      Assert.assertFalse(frames.update());
+      Assert.assertEquals(2, frames.getFrontBuffer()[0]);
+
+      frames.getBackBuffer()[0] = 3;
+      frames.publish();
+      Assert.assertTrue(frames.update());
+      Assert.assertEquals(3, frames.getFrontBuffer()[0]);
+   }
+
+   @Test
+   public void testBuffersAreNeverShared() {
+      FrameTripleBuffer frames = new FrameTripleBuffer(1);
+
+      for (int i = 0; i < 10; i++) {
+         frames.publish();
+         Assert.assertNotSame(frames.getBackBuffer(), frames.getFrontBuffer());
+         frames.update();
+         Assert.assertNotSame(frames.getBackBuffer(), frames.getFrontBuffer());
+      }
+   }
+
+   @Test
+   public void testProducerAndConsumerThreads() throws Exception {
+      FrameTripleBuffer frames = new FrameTripleBuffer(256);
+      int total = 20000;
+
+      Thread producer = new Thread(() -> {
+         for (int frame = 1; frame <= total; frame++) {
+            int[] pixels = frames.getBackBuffer();
+            for (int i = 0; i < pixels.length; i++) {
+               pixels[i] = frame;
+            }
+            frames.publish();
+         }
+      });
+      producer.start();
+
+      // Whole frames only, and never an older one
+      int lastFrame = 0;
+      while (lastFrame < total) {
+         if (frames.update()) {
+            int[] pixels = frames.getFrontBuffer();
+            int frame = pixels[0];
+            for (int i = 1; i < pixels.length; i++) {
+               Assert.assertEquals(frame, pixels[i]);
+            }
+            Assert.assertTrue(frame > lastFrame);
+            lastFrame = frame;
+         }
+      }
+      producer.join();
+   }
+}
@@ -0,0 +1,68 @@
+package nesrs.ui;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SampleRingBufferTest {
+
+   @Test
+   public void testWrapsAround() {
+      SampleRingBuffer ring = new SampleRingBuffer(6);
+      Assert.assertEquals(8, ring.getCapacity());
+
+      short[] samples = new short[8];
+      Assert.assertEquals(5, ring.write(new short[] { 1, 2, 3, 4, 5 }, 5));
+      Assert.assertEquals(4, ring.read(samples, 4));
+      Assert.assertEquals(6, ring.write(new short[] { 6, 7, 8, 9, 10, 11 }, 6));
+      Assert.assertEquals(7, ring.size());
+
+      Assert.assertEquals(7, ring.read(samples, 8));
+      Assert.assertArrayEquals(new short[] { 5, 6, 7, 8, 9, 10, 11, 0 }, samples);
+      Assert.assertEquals(0, ring.size());
+   }
+
+   @Test
+   public void testDropsWhatDoesNotFit() {
+      SampleRingBuffer ring = new SampleRingBuffer(4);
+
+      Assert.assertEquals(4, ring.write(new short[] { 1, 2, 3, 4, 5, 6 }, 6));
+      Assert.assertEquals(0, ring.write(new short[] { 7 }, 1));
+
+      short[] samples = new short[4];
+      Assert.assertEquals(4, ring.read(samples, 4));
+      Assert.assertArrayEquals(new short[] { 1, 2, 3, 4 }, samples);
+      Assert.assertEquals(0, ring.read(samples, 4));
+   }
+
+   @Test
+   public void testProducerAndConsumerThreads() throws Exception {
+      SampleRingBuffer ring = new SampleRingBuffer(64);
+      int total = 200000;
+
+      Thread producer = new Thread(() -> {
+         short[] samples = new short[37];
+         int next = 0;
+         while (next < total) {
+            int count = Math.min(samples.length, total - next);
+            for (int i = 0; i < count; i++) {
+               samples[i] = (short) (next + i);
+            }
+            // Retries what didn't fit
+            next += ring.write(samples, count);
+         }
+      });
+      producer.start();
+
+      short[] samples = new short[23];
+      int next = 0;
+      while (next < total) {
+         int count = ring.read(samples, samples.length);
+         for (int i = 0; i < count; i++) {
+            Assert.assertEquals((short) (next + i), samples[i]);
+         }
+         next += count;
+      }
+      producer.join();
+      Assert.assertEquals(0, ring.size());
+   }
+}
@@ -0,0 +1,41 @@
+package nesrs.ui;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WavWriterTest {
+
+   @Test
+   public void testWritesHeaderAndSamples() throws Exception {
+      File file = File.createTempFile("audio", ".wav");
+      file.deleteOnExit();
+
+      try (WavWriter wavWriter = new WavWriter(file, 48000)) {
+         wavWriter.handleSamples(new short[] { 1, -2, 3, 99 }, 3);
+         wavWriter.handleSamples(new short[] { 0x1234 }, 1);
+         Assert.assertEquals(8, wavWriter.getDataSize());
+      }
+
+      ByteBuffer wav = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+      Assert.assertEquals(44 + 8, wav.limit());
+      Assert.assertEquals("RIFF", new String(wav.array(), 0, 4, "US-ASCII"));
+      Assert.assertEquals(36 + 8, wav.getInt(4));
+      Assert.assertEquals("WAVE", new String(wav.array(), 8, 4, "US-ASCII"));
+      Assert.assertEquals(1, wav.getShort(22));
+      Assert.assertEquals(48000, wav.getInt(24));
+      Assert.assertEquals(96000, wav.getInt(28));
+      Assert.assertEquals(16, wav.getShort(34));
+      Assert.assertEquals("data", new String(wav.array(), 36, 4, "US-ASCII"));
+      Assert.assertEquals(8, wav.getInt(40));
+
+      Assert.assertEquals(1, wav.getShort(44));
+      Assert.assertEquals(-2, wav.getShort(46));
+      Assert.assertEquals(3, wav.getShort(48));
+      Assert.assertEquals(0x1234, wav.getShort(50));
+   }
+}
@@ -4,31 +4,53 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 
 import org.junit.Assert;
 
 import nesrs.Nes;
+import nesrs.ppu.debug.PpmUtil;
 import nesrs.ppu.debug.PpmVideoOutListener;
 import nesrs.util.Util;
 
 public abstract class AbstractRomTest {
 
+   private static final int FRAMES_PER_SECOND = 60;
+
+   /**
+    * Runs the rom for up to the given number of emulated seconds and compares the
+    * last frame with the expected screenshot. Emulation stops as soon as a frame
+    * matches the screenshot, so the result doesn't depend on wall-clock time.
+    */
    public void testRom(String romPath, String screenshotPath, int numberOfSeconds) throws Exception {
+      checkRom(romPath, screenshotPath, numberOfSeconds);
+   }
+
+   /**
+    * Same as testRom, but usable outside of a test instance. Every call runs its own
+    * Nes, so separate roms can be checked concurrently.
+    */
+   public static void checkRom(String romPath, String screenshotPath, int numberOfSeconds) throws Exception {
       byte[] romBytes = buildCartridge(romPath);
 
+      int[] expectedFrame;
+      try (InputStream in = AbstractRomTest.class.getResourceAsStream(screenshotPath)) {
+         expectedFrame = PpmUtil.read(in);
+      }
+
       PpmVideoOutListener ppmVideoOutListener = new PpmVideoOutListener();
 
       Nes nes = new Nes(romBytes, ppmVideoOutListener, null, null);
-      nes.start();
+      nes.powerUp();
 
-      long start = System.currentTimeMillis();
-      long end = start;
+      int maxFrames = numberOfSeconds * FRAMES_PER_SECOND;
+      for (int frame = 0; frame < maxFrames; frame++) {
+         nes.stepFrame();
 
-      while (end - start < numberOfSeconds * 1000) {
-         Thread.sleep(200);
-         end = System.currentTimeMillis();
+         if (Arrays.equals(expectedFrame, ppmVideoOutListener.getFrame())) {
+            break;
+         }
       }
-      nes.stop();
 
       ByteArrayOutputStream out = new ByteArrayOutputStream();
       ppmVideoOutListener.write(out);
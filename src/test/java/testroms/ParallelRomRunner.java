@@ -0,0 +1,155 @@
+package testroms;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import testroms.apu_test.rom_singles.ApuTest;
+import testroms.blargg_ppu_tests_2005_09_15b.PpuTest;
+import testroms.branch_timing_tests.BranchTimingTest;
+import testroms.cpu_timing_test6.CpuTimingTest;
+import testroms.sprite_hit_tests.sprite_hit_tests_2005_10_05.SpriteHitTest;
+import testroms.sprite_hit_timing.SpriteHitTimingTest;
+import testroms.sprite_overflow_tests.SpriteOverflowTest;
+import testroms.vbl_nmi_timing.VblNmiTimingTest;
+
+/**
+ * Runs the rom/screenshot pairs of all rom test suites on a fork-join pool. Each
+ * rom gets its own Nes instance, so the roms are checked independently of each
+ * other on as many cores as are available.
+ */
+public class ParallelRomRunner {
+
+   public static class RomTestCase {
+      public final String romPath;
+      public final String screenshotPath;
+      public final int numberOfSeconds;
+
+      public RomTestCase(String romPath, String screenshotPath, int numberOfSeconds) {
+         this.romPath = romPath;
+         this.screenshotPath = screenshotPath;
+         this.numberOfSeconds = numberOfSeconds;
+      }
+   }
+
+   public static class RomTestResult {
+      public final RomTestCase testCase;
+      public final Throwable failure;
+      public final long durationMs;
+
+      public RomTestResult(RomTestCase testCase, Throwable failure, long durationMs) {
+         this.testCase = testCase;
+         this.failure = failure;
+         this.durationMs = durationMs;
+      }
+
+      public boolean isPassed() {
+         return failure == null;
+      }
+   }
+
+   public static List<RomTestCase> getAllTestCases() {
+      List<RomTestCase> testCases = new ArrayList<RomTestCase>();
+      addTestCases(testCases, ApuTest.NES_PATH, ApuTest.PPM_PATH, ApuTest.data());
+      addTestCases(testCases, PpuTest.NES_PATH, PpuTest.PPM_PATH, PpuTest.data());
+      addTestCases(testCases, BranchTimingTest.NES_PATH, BranchTimingTest.PPM_PATH, BranchTimingTest.data());
+      addTestCases(testCases, CpuTimingTest.NES_PATH, CpuTimingTest.PPM_PATH, CpuTimingTest.data());
+      addTestCases(testCases, SpriteHitTest.NES_PATH, SpriteHitTest.PPM_PATH, SpriteHitTest.data());
+      addTestCases(testCases, SpriteHitTimingTest.NES_PATH, SpriteHitTimingTest.PPM_PATH, SpriteHitTimingTest.data());
+      addTestCases(testCases, SpriteOverflowTest.NES_PATH, SpriteOverflowTest.PPM_PATH, SpriteOverflowTest.data());
+      addTestCases(testCases, VblNmiTimingTest.NES_PATH, VblNmiTimingTest.PPM_PATH, VblNmiTimingTest.data());
+
+      return testCases;
+   }
+
+   private static void addTestCases(
+         List<RomTestCase> testCases, String nesPath, String ppmPath, Collection<Object[]> data) {
+
+      for (Object[] parameters : data) {
+         testCases.add(new RomTestCase(
+               nesPath + parameters[0], ppmPath + parameters[1], (Integer) parameters[2]));
+      }
+   }
+
+   public static List<RomTestResult> run(List<RomTestCase> testCases, int parallelism) {
+      ForkJoinPool pool = new ForkJoinPool(parallelism);
+      try {
+         return pool.invoke(new RunTestCasesTask(testCases));
+      } finally {
+         pool.shutdown();
+      }
+   }
+
+   private static RomTestResult run(RomTestCase testCase) {
+      long start = System.currentTimeMillis();
+      Throwable failure = null;
+      try {
+         AbstractRomTest.checkRom(testCase.romPath, testCase.screenshotPath, testCase.numberOfSeconds);
+      } catch (Throwable e) {
+         failure = e;
+      }
+
+      return new RomTestResult(testCase, failure, System.currentTimeMillis() - start);
+   }
+
+   /**
+    * Splits the test cases in halves until a single one is left, so idle workers can
+    * steal the remaining ones.
+    */
+   private static class RunTestCasesTask extends RecursiveTask<List<RomTestResult>> {
+      private static final long serialVersionUID = 1L;
+
+      private final List<RomTestCase> _testCases;
+
+      RunTestCasesTask(List<RomTestCase> testCases) {
+         _testCases = testCases;
+      }
+
+      @Override
+      protected List<RomTestResult> compute() {
+         List<RomTestResult> results = new ArrayList<RomTestResult>(_testCases.size());
+
+         if (_testCases.size() == 1) {
+            results.add(run(_testCases.get(0)));
+
+         } else if (_testCases.size() > 1) {
+            int middle = _testCases.size() / 2;
+            RunTestCasesTask first = new RunTestCasesTask(_testCases.subList(0, middle));
+            RunTestCasesTask second = new RunTestCasesTask(_testCases.subList(middle, _testCases.size()));
+            first.fork();
+            results.addAll(second.compute());
+            results.addAll(0, first.join());
+         }
+
+         return results;
+      }
+   }
+
+   public static void main(String[] args) {
+      int parallelism = args.length > 0 ?
+            Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+
+      long start = System.currentTimeMillis();
+      List<RomTestResult> results = run(getAllTestCases(), parallelism);
+      long end = System.currentTimeMillis();
+
+      int failed = 0;
+      for (RomTestResult result : results) {
+         if (result.isPassed()) {
+            System.out.println("PASS " + result.testCase.romPath + " (" + result.durationMs + " ms)");
+         } else {
+            failed++;
+            System.out.println("FAIL " + result.testCase.romPath + " (" + result.durationMs + " ms): " +
+                  result.failure);
+         }
+      }
+
+      System.out.println(
+            (results.size() - failed) + " passed, " + failed + " failed in " + (end - start) +
+            " ms on " + parallelism + " workers");
+
+      System.exit(failed == 0 ? 0 : 1);
+   }
+}
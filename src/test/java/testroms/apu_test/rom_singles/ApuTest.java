@@ -13,8 +13,8 @@ import testroms.AbstractRomTest;
 @RunWith(Parameterized.class)
 public class ApuTest extends AbstractRomTest {
 
-   private final String NES_PATH = "/testroms/apu_test/rom_singles/";
-   private final String PPM_PATH = NES_PATH;
+   public static final String NES_PATH = "/testroms/apu_test/rom_singles/";
+   public static final String PPM_PATH = NES_PATH;
    
    @Parameters(name = "ApuTest({0})")
    public static Collection<Object[]> data() {
@@ -13,8 +13,8 @@ import testroms.AbstractRomTest;
 @RunWith(Parameterized.class)
 public class SpriteHitTest extends AbstractRomTest {
 
-   private final String NES_PATH = "/testroms" + "/sprite_hit_tests/sprite_hit_tests_2005.10.05/";
-   private final String PPM_PATH = "/testroms" + "/sprite_hit_tests/sprite_hit_tests_2005_10_05/";
+   public static final String NES_PATH = "/testroms" + "/sprite_hit_tests/sprite_hit_tests_2005.10.05/";
+   public static final String PPM_PATH = "/testroms" + "/sprite_hit_tests/sprite_hit_tests_2005_10_05/";
    
    @Parameters(name = "SpriteHitTest({0})")
    public static Collection<Object[]> data() {
@@ -13,8 +13,8 @@ import testroms.AbstractRomTest;
 @RunWith(Parameterized.class)
 public class SpriteHitTimingTest extends AbstractRomTest {
 
-   private final String NES_PATH = "/testroms/sprite_hit_timing/";
-   private final String PPM_PATH = NES_PATH;
+   public static final String NES_PATH = "/testroms/sprite_hit_timing/";
+   public static final String PPM_PATH = NES_PATH;
 
    @Parameters(name = "SpriteHitTimingTest({0})")
    public static Collection<Object[]> data() {